@@ -0,0 +1,70 @@
+package uy.edu.tse.hcen.benchmarks;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión JSON de documentos clínicos con {@link Document#parse} y {@link Document#toJson()},
+ * la ruta de los endpoints de Mongo que no trabajan con BSON crudo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentoJsonBenchmark {
+
+    // Largo del campo contenido: nota breve o informe extenso
+    @Param({"256", "16384"})
+    private int largoContenido;
+
+    private String json;
+    private Document documento;
+
+    @Setup
+    public void preparar() {
+        StringBuilder contenido = new StringBuilder(largoContenido);
+        while (contenido.length() < largoContenido) {
+            contenido.append("Paciente consulta por dolor lumbar, sin fiebre. ");
+        }
+        contenido.setLength(largoContenido);
+        Document ejemplo = new Document("pacienteDoc", "12345678")
+                .append("tipo", "consulta")
+                .append("fechaCreacion", new Date(1_700_000_000_000L))
+                .append("profesional", new Document("nickname", "prof1").append("especialidad", "MEDICINA_GENERAL"))
+                .append("diagnosticos", List.of("M54.5", "R52"))
+                .append("contenido", contenido.toString());
+        json = ejemplo.toJson();
+        documento = Document.parse(json);
+    }
+
+    @Benchmark
+    public Document parse() {
+        return Document.parse(json);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return documento.toJson();
+    }
+
+    @Benchmark
+    public String idaYVuelta() {
+        return Document.parse(json).toJson();
+    }
+}
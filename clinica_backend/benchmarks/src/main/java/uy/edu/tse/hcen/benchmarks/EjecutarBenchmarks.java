@@ -0,0 +1,67 @@
+package uy.edu.tse.hcen.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Punto de entrada de benchmarks.jar. Acepta las mismas opciones que el Main de JMH, pero por
+ * defecto agrega el profiler de GC (tasa de asignación por operación) y guarda los resultados en
+ * JSON en {@code jmh-resultados/<versión>-<fecha>.json}, para comparar entre versiones.
+ */
+public final class EjecutarBenchmarks {
+
+    private EjecutarBenchmarks() {
+        // utility class
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        CommandLineOptions linea;
+        try {
+            linea = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Opciones inválidas: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (linea.shouldHelp() || linea.shouldList() || linea.shouldListWithParams() || linea.shouldListProfilers()
+                || linea.shouldListResultFormats()) {
+            // Listados y ayuda: igual que el Main de JMH
+            try {
+                org.openjdk.jmh.Main.main(args);
+            } catch (Exception e) {
+                throw new RunnerException(e);
+            }
+            return;
+        }
+
+        ChainedOptionsBuilder opciones = new OptionsBuilder().parent(linea);
+        if (linea.getProfilers().isEmpty()) {
+            opciones.addProfiler(GCProfiler.class);
+        }
+        if (!linea.getResultFormat().hasValue()) {
+            opciones.resultFormat(ResultFormatType.JSON);
+        }
+        if (!linea.getResult().hasValue()) {
+            opciones.result(archivoResultados().getPath());
+        }
+        new Runner(opciones.build()).run();
+    }
+
+    private static File archivoResultados() {
+        String version = EjecutarBenchmarks.class.getPackage().getImplementationVersion();
+        String fecha = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        File directorio = new File("jmh-resultados");
+        directorio.mkdirs();
+        return new File(directorio, (version != null ? version : "dev") + "-" + fecha + ".json");
+    }
+}
@@ -0,0 +1,45 @@
+package uy.edu.tse.hcen.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uy.edu.tse.hcen.utils.PasswordUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verificación BCrypt del login ({@link PasswordUtils}). Su costo es deliberado; sirve para ver
+ * cuántos logins por segundo y núcleo soporta la instancia.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordBenchmark {
+
+    private String hash;
+
+    @Setup
+    public void preparar() {
+        hash = PasswordUtils.hashPassword("contraseña-de-prueba");
+    }
+
+    @Benchmark
+    public boolean verifyPasswordCorrecta() {
+        return PasswordUtils.verifyPassword("contraseña-de-prueba", hash);
+    }
+
+    @Benchmark
+    public boolean verifyPasswordIncorrecta() {
+        return PasswordUtils.verifyPassword("otra-contraseña", hash);
+    }
+}
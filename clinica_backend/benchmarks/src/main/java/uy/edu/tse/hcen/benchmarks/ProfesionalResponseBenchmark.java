@@ -0,0 +1,60 @@
+package uy.edu.tse.hcen.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uy.edu.tse.hcen.dto.ProfesionalResponse;
+import uy.edu.tse.hcen.model.ProfesionalSalud;
+import uy.edu.tse.hcen.model.enums.Especialidad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapeo de la lista de profesionales a DTOs ({@link ProfesionalResponse#fromEntity}), como en el
+ * listado de ProfesionalSaludResource.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfesionalResponseBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int cantidad;
+
+    private List<ProfesionalSalud> profesionales;
+
+    @Setup
+    public void preparar() {
+        Especialidad[] especialidades = Especialidad.values();
+        profesionales = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            // Sin contraseña: el constructor completo la hashea con BCrypt
+            ProfesionalSalud p = new ProfesionalSalud();
+            p.setId((long) i);
+            p.setNombre("Profesional " + i);
+            p.setEmail("profesional" + i + "@clinica.uy");
+            p.setNickname("prof" + i);
+            p.setEspecialidad(especialidades[i % especialidades.length]);
+            p.setDireccion("Av. 18 de Julio " + i);
+            profesionales.add(p);
+        }
+    }
+
+    @Benchmark
+    public List<ProfesionalResponse> fromEntityLista() {
+        return profesionales.stream().map(ProfesionalResponse::fromEntity).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package uy.edu.tse.hcen.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uy.edu.tse.hcen.multitenancy.SchemaTenantResolver;
+import uy.edu.tse.hcen.multitenancy.TenantContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolución del schema del tenant ({@link SchemaTenantResolver}), que Hibernate invoca en cada
+ * sesión. El estado es por hilo porque el tenant vive en un ThreadLocal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TenantResolverBenchmark {
+
+    private final SchemaTenantResolver resolver = new SchemaTenantResolver();
+
+    @Setup
+    public void preparar() {
+        TenantContext.setCurrentTenant("101");
+    }
+
+    @TearDown
+    public void limpiar() {
+        TenantContext.clear();
+    }
+
+    @Benchmark
+    public Object resolveCurrentTenantIdentifier() {
+        return resolver.resolveCurrentTenantIdentifier();
+    }
+
+    @Benchmark
+    public Object resolveCurrentTenantIdentifierSinTenant() {
+        TenantContext.clear();
+        try {
+            return resolver.resolveCurrentTenantIdentifier();
+        } finally {
+            TenantContext.setCurrentTenant("101");
+        }
+    }
+}
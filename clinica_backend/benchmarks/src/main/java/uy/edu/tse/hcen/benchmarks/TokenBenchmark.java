@@ -0,0 +1,54 @@
+package uy.edu.tse.hcen.benchmarks;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uy.edu.tse.hcen.utils.TokenUtils;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emisión y validación de JWT ({@link TokenUtils}); la validación corre en cada solicitud
+ * autenticada (AuthTokenFilter).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBenchmark {
+
+    private String token;
+
+    @Setup
+    public void preparar() {
+        // TokenUtils lee la clave al cargarse: se define antes del primer uso si no vino del entorno
+        if (System.getenv("JWT_SECRET_BASE64") == null && System.getProperty("hcen.jwt.secret.base64") == null) {
+            byte[] clave = new byte[32];
+            new SecureRandom().nextBytes(clave);
+            System.setProperty("hcen.jwt.secret.base64", Base64.getEncoder().encodeToString(clave));
+        }
+        token = TokenUtils.generateToken("profesional1", "PROFESIONAL", "101");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return TokenUtils.generateToken("profesional1", "PROFESIONAL", "101");
+    }
+
+    @Benchmark
+    public Claims parseToken() {
+        return TokenUtils.parseToken(token);
+    }
+}
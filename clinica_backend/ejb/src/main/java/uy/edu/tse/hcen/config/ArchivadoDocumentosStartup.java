@@ -0,0 +1,71 @@
+package uy.edu.tse.hcen.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ScheduleExpression;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.inject.Inject;
+import uy.edu.tse.hcen.repository.TareasProgramadas;
+import uy.edu.tse.hcen.service.ArchivadoDocumentosService;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Programa el archivado diario de documentos clínicos viejos cuando {@code HCEN_ARCHIVO_DIAS}
+ * está configurado. Corre a la hora {@code HCEN_ARCHIVO_HORA} (servidor) para todos los tenants.
+ *
+ * El timer se dispara en todas las instancias, pero archiva solo la que reclama la tarea en
+ * {@link TareasProgramadas}: la reclamación dura menos de un día, así que al día siguiente puede
+ * tomarla cualquiera, y si Mongo no responde no se archiva en ninguna.
+ */
+@Singleton
+@Startup
+public class ArchivadoDocumentosStartup {
+
+    private static final Logger LOGGER = Logger.getLogger(ArchivadoDocumentosStartup.class.getName());
+    private static final String TAREA = "archivado-diario";
+    private static final long DURACION_RECLAMO_MS = TimeUnit.HOURS.toMillis(20);
+
+    @Resource
+    private TimerService timerService;
+
+    @Inject
+    private ArchivadoDocumentosService archivadoDocumentosService;
+
+    @Inject
+    private TareasProgramadas tareasProgramadas;
+
+    @PostConstruct
+    public void init() {
+        int dias = ArchivadoDocumentosService.diasConfigurados();
+        if (dias <= 0) {
+            return;
+        }
+        int hora = ConfigUtils.getInt("HCEN_ARCHIVO_HORA", 3);
+        timerService.createCalendarTimer(new ScheduleExpression().hour(hora).minute(0), new TimerConfig(null, false));
+        LOGGER.log(Level.INFO, "ArchivadoDocumentosStartup: archivado diario a las {0}:00 de documentos de más de {1} días",
+                new Object[]{hora, dias});
+    }
+
+    @Timeout
+    public void archivar() {
+        try {
+            if (!tareasProgramadas.reclamar(TAREA, DURACION_RECLAMO_MS)) {
+                LOGGER.fine("ArchivadoDocumentosStartup: el archivado de hoy lo corre otra instancia");
+                return;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "ArchivadoDocumentosStartup: no se pudo reclamar el archivado diario -> {0}", e.getMessage());
+            return;
+        }
+        LOGGER.log(Level.INFO, "ArchivadoDocumentosStartup: archivado diario en la instancia {0}", tareasProgramadas.getInstancia());
+        archivadoDocumentosService.archivar(null, ArchivadoDocumentosService.diasConfigurados());
+    }
+}
@@ -5,94 +5,260 @@ import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Disposes;
 import jakarta.enterprise.inject.Produces;
 import uy.edu.tse.hcen.exceptions.MongoDBConfigurationException;
+import uy.edu.tse.hcen.utils.ConfigUtils;
 
 import org.bson.Document;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Produces the application-wide MongoDB client without blocking deployment.
+ *
+ * {@link #iniciar()} (called at startup by {@link MongoIndicesStartup}) probes every candidate URI
+ * in parallel on background threads and keeps the first one that answers a ping; the rest are
+ * closed. If none answers, the probe is repeated every {@code HCEN_MONGO_REINTENTO_MS} until one
+ * does. The client and database are application-scoped proxies, so injecting them costs nothing:
+ * only the first operation waits (up to {@code HCEN_MONGO_ESPERA_MS}) for the connection, and
+ * fails with {@link MongoDBConfigurationException} if Mongo is still not available.
+ * {@link #isListo()} is the readiness gate used by the Mongo-backed endpoints.
+ */
 @ApplicationScoped
 public class MongoDBProducer {
     private static final Logger LOGGER = Logger.getLogger(MongoDBProducer.class.getName());
     private static final String ENV_URI = System.getenv("MONGODB_URI");
     private static final String DB_NAME = System.getenv().getOrDefault("MONGODB_DB", "hcen_db");
 
+    private final long connectTimeoutMs = ConfigUtils.getLong("HCEN_MONGO_CONNECT_TIMEOUT_MS", 5000);
+    private final long seleccionMs = ConfigUtils.getLong("HCEN_MONGO_SELECCION_MS", 5000);
+    private final long esperaMs = ConfigUtils.getLong("HCEN_MONGO_ESPERA_MS", 10000);
+    private final long reintentoMs = ConfigUtils.getLong("HCEN_MONGO_REINTENTO_MS", 5000);
+    private final int poolMax = ConfigUtils.getInt("HCEN_MONGO_POOL_MAX", 100);
+    private final int poolMin = ConfigUtils.getInt("HCEN_MONGO_POOL_MIN", 0);
+    private final long poolEsperaMs = ConfigUtils.getLong("HCEN_MONGO_POOL_ESPERA_MS", 120000);
+    private final long poolOciosaMs = ConfigUtils.getLong("HCEN_MONGO_POOL_OCIOSA_MS", 0);
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private final CompletableFuture<Conexion> conexion = new CompletableFuture<>();
+    private ScheduledExecutorService sondeos;
+    private volatile String ultimoError;
+    private volatile long inicio;
+    private final AtomicInteger rondas = new AtomicInteger();
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public MongoDBProducer() {
+    }
+
+    /**
+     * Starts connecting in the background, if not started yet. The returned stage completes with
+     * the client once a candidate answers.
+     */
+    public synchronized CompletionStage<MongoClient> iniciar() {
+        if (sondeos == null && !conexion.isDone()) {
+            try {
+                List<String> candidates = candidateUris();
+                sondeos = Executors.newScheduledThreadPool(candidates.size(), runnable -> {
+                    Thread hilo = threadFactory.newThread(runnable);
+                    hilo.setName("hcen-mongo-conexion-" + hilo.getId());
+                    return hilo;
+                });
+                inicio = System.nanoTime();
+                sondear(candidates);
+            } catch (MongoDBConfigurationException e) {
+                LOGGER.log(Level.SEVERE, e.getMessage());
+                conexion.completeExceptionally(e);
+            }
+        }
+        return conexion.thenApply(c -> c.client);
+    }
+
+    /**
+     * @return true once a client is connected (readiness gate for Mongo-backed endpoints).
+     */
+    public boolean isListo() {
+        return conexion.isDone() && !conexion.isCompletedExceptionally();
+    }
+
+    /**
+     * Error of the last failed probe, for logs and server-side diagnostics; null if none failed.
+     * Never returned to unauthenticated callers: driver messages may name hosts and users.
+     */
+    public String getUltimoError() {
+        return ultimoError;
+    }
+
+    public long getReintentoMs() {
+        return reintentoMs;
+    }
+
+    /**
+     * URI of the connected candidate, waiting for the connection like the producers do.
+     */
+    public String uriConectada() {
+        return esperarConexion().uri;
+    }
+
     @Produces
+    @ApplicationScoped
     public MongoClient createMongoClient() {
+        return esperarConexion().client;
+    }
+
+    /**
+     * Candidate URIs: the configured one and, if it points to host 'mongodb', the same with localhost.
+     */
+    static List<String> candidateUris() {
         if (ENV_URI == null || ENV_URI.isBlank()) {
             throw new MongoDBConfigurationException("MongoDBProducer: La variable de entorno MONGODB_URI es obligatoria. Por favor configúrela con los detalles de conexión, incluyendo credenciales.");
         }
-
-        // Build a list of candidate URIs: configured, and replace host 'mongodb' with localhost if needed
         List<String> candidates = new ArrayList<>();
         candidates.add(ENV_URI);
         if (ENV_URI.contains("mongodb://mongodb") || ENV_URI.contains("@mongodb:")) {
             candidates.add(ENV_URI.replace("@mongodb:", "@localhost:"));
         }
+        return candidates;
+    }
 
-        for (String uri : candidates) {
-            try {
-                MongoClientSettings settings = MongoClientSettings.builder()
-                        .applyConnectionString(new ConnectionString(uri))
-                        .applyToSocketSettings(builder -> builder.connectTimeout(5, TimeUnit.SECONDS))
-                        .build();
-
-                MongoClient client = MongoClients.create(settings);
-
-                if (verifyClientConnection(client, uri)) {
-                    LOGGER.log(Level.INFO, "MongoDBProducer: conectado a MongoDB usando URI={0}", uri);
-                    return client;
-                }
-                // otherwise continue to the next candidate
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "MongoDBProducer: no se pudo crear MongoClient para URI={0} -> {1}", new Object[]{uri, e.getMessage()});
-            }
-        }
-
-        throw new MongoDBConfigurationException(
-                "MongoDBProducer: no se pudo conectar a ninguna de las URIs candidatas de MongoDB. Intentadas: " + candidates);
+    static String databaseName() {
+        return DB_NAME;
     }
 
+    // Scoped (proxy) so that injecting the database does not wait for the connection
     @Produces
+    @ApplicationScoped
     public MongoDatabase createMongoDatabase(MongoClient client) {
         return client.getDatabase(DB_NAME);
     }
 
     public void close(@Disposes MongoClient client) {
-        if (client != null) {
-            try {
-                client.close();
-            } catch (Exception e) {
-                LOGGER.log(Level.FINE, "MongoDBProducer: error cerrando MongoClient -> {0}", e.getMessage());
+        cerrar(client, null);
+    }
+
+    @PreDestroy
+    void destroy() {
+        synchronized (this) {
+            if (sondeos != null) {
+                sondeos.shutdownNow();
+            }
+        }
+        // The client may be connected without CDI ever having produced it
+        if (isListo()) {
+            cerrar(conexion.join().client, null);
+        }
+    }
+
+    private Conexion esperarConexion() {
+        iniciar();
+        try {
+            return conexion.get(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            String error = ultimoError;
+            throw new MongoDBConfigurationException("MongoDBProducer: MongoDB todavía no está disponible"
+                    + (error != null ? " (" + error + ")" : ""));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoDBConfigurationException("MongoDBProducer: interrumpido esperando la conexión a MongoDB");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MongoDBConfigurationException configuracion) {
+                throw configuracion;
             }
+            throw new MongoDBConfigurationException("MongoDBProducer: " + e.getCause().getMessage());
         }
     }
 
     /**
-     * Verifies the client by sending a ping command. If ping fails the client is closed and false is returned.
+     * Probes every candidate at once. The first to answer a ping becomes the client; a candidate
+     * that answers later is closed. When all of them fail, the round is retried after a while.
      */
-    private boolean verifyClientConnection(MongoClient client, String uri) {
-        try {
-            client.getDatabase("admin").runCommand(new Document("ping", 1));
-            return true;
-        } catch (Exception pingEx) {
+    private void sondear(List<String> candidates) {
+        AtomicInteger pendientes = new AtomicInteger(candidates.size());
+        // Solo la primera ronda fallida se registra como advertencia: Mongo puede tardar en levantar
+        Level nivel = rondas.getAndIncrement() == 0 ? Level.WARNING : Level.FINE;
+        for (String uri : candidates) {
+            sondeos.execute(() -> {
+                MongoClient client = null;
+                try {
+                    client = MongoClients.create(settings(uri));
+                    client.getDatabase("admin").runCommand(new Document("ping", 1));
+                    if (conexion.complete(new Conexion(client, uri))) {
+                        LOGGER.log(Level.INFO, "MongoDBProducer: conectado a MongoDB usando URI={0} en {1} ms",
+                                new Object[]{uri, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)});
+                        client = null;
+                        synchronized (this) {
+                            sondeos.shutdown();
+                        }
+                        return;
+                    }
+                } catch (Exception e) {
+                    // Sin la URI: puede llevar credenciales
+                    ultimoError = e.getMessage();
+                    LOGGER.log(nivel, "MongoDBProducer: ping falló para URI={0} -> {1}", new Object[]{uri, e.getMessage()});
+                } finally {
+                    cerrar(client, uri);
+                }
+                if (pendientes.decrementAndGet() == 0 && !conexion.isDone()) {
+                    LOGGER.log(nivel, "MongoDBProducer: ninguna URI candidata respondió {0}; se reintenta en {1} ms",
+                            new Object[]{candidates, reintentoMs});
+                    try {
+                        sondeos.schedule(() -> sondear(candidates), Math.max(1, reintentoMs), TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException rechazada) {
+                        // Undeploying
+                    }
+                }
+            });
+        }
+    }
+
+    private MongoClientSettings settings(String uri) {
+        return MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(uri))
+                .applyToSocketSettings(builder -> builder.connectTimeout((int) connectTimeoutMs, TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(builder -> builder.serverSelectionTimeout(seleccionMs, TimeUnit.MILLISECONDS))
+                .applyToConnectionPoolSettings(builder -> builder
+                        .maxSize(Math.max(1, poolMax))
+                        .minSize(Math.max(0, Math.min(poolMin, poolMax)))
+                        .maxWaitTime(poolEsperaMs, TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(poolOciosaMs, TimeUnit.MILLISECONDS))
+                .build();
+    }
+
+    private static void cerrar(MongoClient client, String uri) {
+        if (client != null) {
             try {
                 client.close();
-            } catch (Exception closeEx) {
-                LOGGER.log(Level.FINE, "MongoDBProducer: error cerrando cliente para URI={0} -> {1}", new Object[]{uri, closeEx.getMessage()});
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "MongoDBProducer: error cerrando cliente para URI={0} -> {1}", new Object[]{uri, e.getMessage()});
             }
-            LOGGER.log(Level.WARNING, "MongoDBProducer: ping falló para URI={0} -> {1}", new Object[]{uri, pingEx.getMessage()});
-            return false;
         }
     }
-}
-
 
+    private static final class Conexion {
+        private final MongoClient client;
+        private final String uri;
 
+        Conexion(MongoClient client, String uri) {
+            this.client = client;
+            this.uri = uri;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package uy.edu.tse.hcen.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.inject.Inject;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Inicia al desplegar la conexión a MongoDB en segundo plano (ver {@link MongoDBProducer}) y,
+ * cuando está lista, crea los índices que necesitan las consultas de documentos clínicos. El
+ * despliegue no espera a Mongo: los endpoints que no lo usan quedan disponibles enseguida.
+ * Un fallo al crear los índices se registra pero no afecta a la aplicación.
+ */
+@Singleton
+@Startup
+public class MongoIndicesStartup {
+
+    private static final Logger LOGGER = Logger.getLogger(MongoIndicesStartup.class.getName());
+
+    @Inject
+    private MongoDBProducer mongoDBProducer;
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    @Resource
+    private ManagedExecutorService ejecutor;
+
+    @PostConstruct
+    public void init() {
+        mongoDBProducer.iniciar().thenRunAsync(this::asegurarIndices, ejecutor);
+    }
+
+    private void asegurarIndices() {
+        try {
+            documentoClinicoRepository.asegurarIndices();
+            LOGGER.info("MongoIndicesStartup: índices de documentos clínicos verificados");
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "MongoIndicesStartup: no se pudieron crear los índices -> {0}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package uy.edu.tse.hcen.config;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.connection.AsynchronousSocketChannelStreamFactoryFactory;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import uy.edu.tse.hcen.exceptions.MongoDBConfigurationException;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cliente Mongo de Reactive Streams, en paralelo al cliente sincrónico de {@link MongoDBProducer}.
+ *
+ * Lo usan los endpoints asíncronos de documentos: ninguna solicitud ocupa un hilo mientras espera
+ * a Mongo. Toda la E/S del cliente corre en un grupo fijo de {@code HCEN_MONGO_REACTIVO_HILOS}
+ * hilos (canales asíncronos de NIO.2), así que la cantidad de solicitudes en curso no depende de
+ * la cantidad de hilos; las que superan {@code HCEN_MONGO_REACTIVO_POOL_MAX} conexiones esperan
+ * en la cola del pool sin bloquear a nadie.
+ */
+@ApplicationScoped
+public class MongoReactivoProducer {
+
+    private static final Logger LOGGER = Logger.getLogger(MongoReactivoProducer.class.getName());
+
+    private final int hilos = ConfigUtils.getInt("HCEN_MONGO_REACTIVO_HILOS", 4);
+    private final int maxConexiones = ConfigUtils.getInt("HCEN_MONGO_REACTIVO_POOL_MAX", 100);
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    @Inject
+    private MongoDBProducer mongoDBProducer;
+
+    private AsynchronousChannelGroup grupo;
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public MongoReactivoProducer() {
+    }
+
+    @Produces
+    @ApplicationScoped
+    public MongoClient createMongoClientReactivo() {
+        // Misma URI que eligió el cliente sincrónico (espera su conexión, sin sondear de nuevo)
+        String uri = mongoDBProducer.uriConectada();
+        try {
+            MongoClient client = MongoClients.create(configuracion(uri));
+            LOGGER.log(Level.INFO, "MongoReactivoProducer: cliente reactivo para URI={0} ({1} hilos de E/S, {2} conexiones)",
+                    new Object[]{uri, hilos, maxConexiones});
+            return client;
+        } catch (IOException e) {
+            throw new MongoDBConfigurationException("MongoReactivoProducer: no se pudo crear el grupo de hilos de E/S -> " + e.getMessage());
+        }
+    }
+
+    // Con scope (proxy): el cliente se crea recién con la primera operación, no al inyectarlo
+    @Produces
+    @ApplicationScoped
+    public MongoDatabase createMongoDatabaseReactiva(MongoClient client) {
+        return client.getDatabase(MongoDBProducer.databaseName());
+    }
+
+    public void close(@Disposes MongoClient client) {
+        cerrar(client);
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (grupo != null) {
+            try {
+                grupo.shutdownNow();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "MongoReactivoProducer: error cerrando el grupo de hilos -> {0}", e.getMessage());
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation") // streamFactoryFactory es la única forma de fijar el grupo de hilos sin Netty en 4.11
+    private MongoClientSettings configuracion(String uri) throws IOException {
+        return MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(uri))
+                .applyToSocketSettings(builder -> builder.connectTimeout(5, TimeUnit.SECONDS))
+                .applyToConnectionPoolSettings(builder -> builder.maxSize(Math.max(1, maxConexiones)))
+                .streamFactoryFactory(AsynchronousSocketChannelStreamFactoryFactory.builder().group(grupo()).build())
+                .build();
+    }
+
+    private synchronized AsynchronousChannelGroup grupo() throws IOException {
+        if (grupo == null) {
+            grupo = AsynchronousChannelGroup.withFixedThreadPool(Math.max(1, hilos), runnable -> {
+                Thread hilo = threadFactory.newThread(runnable);
+                hilo.setName("hcen-mongo-reactivo-" + hilo.getId());
+                return hilo;
+            });
+        }
+        return grupo;
+    }
+
+    private static void cerrar(MongoClient client) {
+        if (client != null) {
+            try {
+                client.close();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "MongoReactivoProducer: error cerrando MongoClient -> {0}", e.getMessage());
+            }
+        }
+    }
+}
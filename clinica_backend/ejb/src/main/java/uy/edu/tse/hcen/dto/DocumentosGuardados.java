@@ -0,0 +1,45 @@
+package uy.edu.tse.hcen.dto;
+
+import org.bson.Document;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Evento CDI que dispara DocumentoClinicoRepository después de que Mongo confirmó documentos
+ * nuevos (no se incluyen los duplicados ni los fallidos). Los documentos están tal como se
+ * guardaron: el contenido puede venir comprimido (ver CompresionUtils).
+ *
+ * Se dispara también desde el hilo de escritura diferida, sin TenantContext: por eso trae el tenant.
+ *
+ * Los documentos insertados en BSON crudo se decodifican recién cuando un observador los pide
+ * (y una sola vez): si ningún observador está habilitado no se decodifican.
+ */
+public class DocumentosGuardados {
+
+    private final String tenantId;
+    private Supplier<List<Document>> decodificar;
+    private List<Document> documentos;
+
+    public DocumentosGuardados(String tenantId, List<Document> documentos) {
+        this.tenantId = tenantId;
+        this.documentos = documentos;
+    }
+
+    public DocumentosGuardados(String tenantId, Supplier<List<Document>> decodificar) {
+        this.tenantId = tenantId;
+        this.decodificar = decodificar;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public synchronized List<Document> getDocumentos() {
+        if (documentos == null) {
+            documentos = decodificar.get();
+            decodificar = null;
+        }
+        return documentos;
+    }
+}
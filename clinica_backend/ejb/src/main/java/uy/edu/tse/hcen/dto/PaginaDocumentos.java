@@ -0,0 +1,36 @@
+package uy.edu.tse.hcen.dto;
+
+import org.bson.Document;
+import java.util.List;
+
+/**
+ * Página de documentos clínicos de un paciente, del más nuevo al más viejo.
+ * {@code siguienteCursor} es null cuando no hay más páginas.
+ */
+public class PaginaDocumentos {
+
+    private final List<Document> documentos;
+    private final String siguienteCursor;
+
+    public PaginaDocumentos(List<Document> documentos, String siguienteCursor) {
+        this.documentos = documentos;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<Document> getDocumentos() {
+        return documentos;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    /**
+     * Representación JSON de la página, usando la misma serialización que el resto de los endpoints Mongo.
+     */
+    public String toJson() {
+        return new Document("documentos", documentos)
+                .append("siguienteCursor", siguienteCursor)
+                .toJson();
+    }
+}
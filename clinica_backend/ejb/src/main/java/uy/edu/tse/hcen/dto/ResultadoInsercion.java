@@ -0,0 +1,49 @@
+package uy.edu.tse.hcen.dto;
+
+/**
+ * Resultado de insertar un documento clínico: el _id asignado o el motivo del fallo.
+ * Si el documento ya existía para el paciente (mismo hash de contenido), el _id es el del
+ * documento existente y {@link #isDuplicado()} es true.
+ */
+public class ResultadoInsercion {
+
+    private final boolean exitoso;
+    private final Object id;
+    private final String error;
+    private final boolean duplicado;
+
+    private ResultadoInsercion(boolean exitoso, Object id, String error, boolean duplicado) {
+        this.exitoso = exitoso;
+        this.id = id;
+        this.error = error;
+        this.duplicado = duplicado;
+    }
+
+    public static ResultadoInsercion exito(Object id) {
+        return new ResultadoInsercion(true, id, null, false);
+    }
+
+    public static ResultadoInsercion duplicado(Object idExistente) {
+        return new ResultadoInsercion(true, idExistente, null, true);
+    }
+
+    public static ResultadoInsercion error(String mensaje) {
+        return new ResultadoInsercion(false, null, mensaje, false);
+    }
+
+    public boolean isExitoso() {
+        return exitoso;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isDuplicado() {
+        return duplicado;
+    }
+}
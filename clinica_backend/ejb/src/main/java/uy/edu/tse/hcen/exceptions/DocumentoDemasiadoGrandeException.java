@@ -0,0 +1,17 @@
+package uy.edu.tse.hcen.exceptions;
+
+/**
+ * Excepción en tiempo de ejecución lanzada cuando un documento clínico recibido supera el tamaño máximo permitido.
+ */
+public class DocumentoDemasiadoGrandeException extends RuntimeException {
+
+    private static final String DEFAULT_MESSAGE = "El documento supera el tamaño máximo permitido";
+
+    public DocumentoDemasiadoGrandeException(String mensaje) {
+        super(mensaje == null || mensaje.isBlank() ? DEFAULT_MESSAGE : mensaje.trim());
+    }
+
+    public DocumentoDemasiadoGrandeException(long maxBytes) {
+        this(DEFAULT_MESSAGE + " (" + maxBytes + " bytes)");
+    }
+}
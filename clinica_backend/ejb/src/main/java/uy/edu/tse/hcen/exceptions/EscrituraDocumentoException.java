@@ -0,0 +1,17 @@
+package uy.edu.tse.hcen.exceptions;
+
+/**
+ * Excepción en tiempo de ejecución lanzada cuando un documento clínico no pudo persistirse en MongoDB.
+ */
+public class EscrituraDocumentoException extends RuntimeException {
+
+    private static final String DEFAULT_MESSAGE = "Error al guardar el documento clínico";
+
+    public EscrituraDocumentoException(String mensaje) {
+        super(mensaje == null || mensaje.isBlank() ? DEFAULT_MESSAGE : mensaje.trim());
+    }
+
+    public EscrituraDocumentoException(String mensaje, Throwable causa) {
+        super(mensaje == null || mensaje.isBlank() ? DEFAULT_MESSAGE : mensaje.trim(), causa);
+    }
+}
@@ -0,0 +1,145 @@
+package uy.edu.tse.hcen.metricas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Envoltorio de una conexión JDBC que mide cada ejecución de sus sentencias preparadas y la
+ * registra en {@link EstadisticasTenant}. Solo se usa con {@code HCEN_HIBERNATE_ESTADISTICAS=true};
+ * si no, el proveedor multi-tenant entrega la conexión del pool tal cual.
+ *
+ * De los parámetros se guarda solo la forma (posición y tipo según el setter usado, p. ej.
+ * {@code [1:string, 2:long]}), nunca los valores: son datos clínicos. El tiempo medido es el de
+ * {@code execute*}; en una consulta no incluye recorrer el ResultSet.
+ */
+public final class ConexionInstrumentada {
+
+    private ConexionInstrumentada() {
+    }
+
+    public static Connection envolver(Connection conexion) {
+        return (Connection) Proxy.newProxyInstance(ConexionInstrumentada.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ManejadorConexion(conexion));
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ManejadorConexion implements InvocationHandler {
+        private final Connection conexion;
+
+        ManejadorConexion(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "prepareStatement":
+                case "prepareCall":
+                    Object sentencia = invocar(conexion, metodo, args);
+                    Class<?> tipo = sentencia instanceof CallableStatement ? CallableStatement.class : PreparedStatement.class;
+                    return Proxy.newProxyInstance(ConexionInstrumentada.class.getClassLoader(), new Class<?>[]{tipo},
+                            new ManejadorSentencia(sentencia, EstadisticasTenant.normalizar((String) args[0])));
+                default:
+                    return invocar(conexion, metodo, args);
+            }
+        }
+    }
+
+    private static final class ManejadorSentencia implements InvocationHandler {
+        private final Object sentencia;
+        private final String sql;
+        private final Supplier<String> forma = this::describirForma;
+        private String[] tipos = new String[8];
+        private int parametros;
+        private int lote;
+
+        ManejadorSentencia(Object sentencia, String sql) {
+            this.sentencia = sentencia;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (nombre.startsWith("execute")) {
+                long inicio = System.nanoTime();
+                try {
+                    return invocar(sentencia, metodo, args);
+                } finally {
+                    // execute(String) y similares traen su propia sentencia
+                    String texto = args != null && args.length > 0 && args[0] instanceof String otra
+                            ? EstadisticasTenant.normalizar(otra) : sql;
+                    EstadisticasTenant.sentencia(texto, forma, System.nanoTime() - inicio);
+                    if (nombre.endsWith("Batch")) {
+                        lote = 0;
+                    }
+                }
+            }
+            if (nombre.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice) {
+                registrarParametro(indice, nombre, args[1]);
+            } else if ("clearParameters".equals(nombre)) {
+                Arrays.fill(tipos, null);
+                parametros = 0;
+            } else if ("addBatch".equals(nombre)) {
+                lote++;
+            } else if ("equals".equals(nombre)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(nombre)) {
+                return System.identityHashCode(proxy);
+            }
+            return invocar(sentencia, metodo, args);
+        }
+
+        private void registrarParametro(int indice, String setter, Object valor) {
+            if (indice < 1) {
+                return;
+            }
+            if (indice > tipos.length) {
+                tipos = Arrays.copyOf(tipos, Math.max(indice, tipos.length * 2));
+            }
+            String tipo;
+            if ("setNull".equals(setter) || ("setObject".equals(setter) && valor == null)) {
+                tipo = "null";
+            } else if ("setObject".equals(setter)) {
+                tipo = valor.getClass().getSimpleName();
+            } else {
+                tipo = Character.toLowerCase(setter.charAt(3)) + setter.substring(4);
+            }
+            tipos[indice - 1] = tipo;
+            parametros = Math.max(parametros, indice);
+        }
+
+        private String describirForma() {
+            StringBuilder texto = new StringBuilder("[");
+            for (int i = 0; i < parametros; i++) {
+                if (i > 0) {
+                    texto.append(", ");
+                }
+                texto.append(i + 1).append(':').append(tipos[i] == null ? "?" : tipos[i]);
+            }
+            texto.append(']');
+            if (lote > 0) {
+                texto.append(" x").append(lote);
+            }
+            return texto.toString();
+        }
+    }
+}
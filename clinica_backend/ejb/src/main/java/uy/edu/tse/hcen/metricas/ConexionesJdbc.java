@@ -0,0 +1,225 @@
+package uy.edu.tse.hcen.metricas;
+
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Uso del pool JDBC por tenant: espera para obtener cada conexión, tiempo que se retiene y quién
+ * la tiene en este momento. Lo alimenta el proveedor multi-tenant de Hibernate en cada
+ * obtención y liberación; como Hibernate lo instancia por reflexión, el estado es estático.
+ *
+ * El punto de llamada (primer método de la aplicación en la pila) cuesta recorrer la pila, así
+ * que se captura en una de cada {@code HCEN_CONEXIONES_MUESTREO} obtenciones; los tiempos y las
+ * conexiones en uso por tenant son exactos. Una conexión retenida más de
+ * {@code HCEN_CONEXIONES_FUGA_MS} se informa una vez en el log con la pila de su obtención, si
+ * fue muestreada, o con la pila actual del hilo que la obtuvo. La revisión corre al pedir o
+ * liberar conexiones y al exponer métricas, a lo sumo una vez por segundo: justo cuando el pool
+ * se agota es cuando más se piden.
+ */
+public final class ConexionesJdbc {
+
+    private static final Logger LOGGER = Logger.getLogger(ConexionesJdbc.class.getName());
+
+    static final String SIN_MUESTRA = "sin_muestra";
+    static final String OTROS = "otros";
+
+    private static final String PREFIJO_SCHEMA = "schema_clinica_";
+    private static final String PAQUETE_APLICACION = "uy.edu.tse.hcen.";
+    private static final String PAQUETE_MULTITENANCY = "uy.edu.tse.hcen.multitenancy.";
+
+    private static final int MUESTREO = ConfigUtils.getInt("HCEN_CONEXIONES_MUESTREO", 16);
+    private static final long FUGA_NANOS = TimeUnit.MILLISECONDS.toNanos(ConfigUtils.getLong("HCEN_CONEXIONES_FUGA_MS", 60000));
+    private static final int MAX_SITIOS = ConfigUtils.getInt("HCEN_CONEXIONES_MAX_SITIOS", 200);
+    private static final long REVISION_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Map<String, PorTenant> POR_TENANT = new ConcurrentHashMap<>();
+    private static final Map<String, HistogramaLatencia> USO_POR_SITIO = new ConcurrentHashMap<>();
+    private static final Map<Identidad, Prestamo> EN_USO = new ConcurrentHashMap<>();
+    private static final AtomicLong PROXIMA_REVISION = new AtomicLong(System.nanoTime());
+
+    private ConexionesJdbc() {
+    }
+
+    /**
+     * Tenant a partir del identificador que resuelve Hibernate ({@code schema_clinica_<id>}).
+     */
+    public static String tenant(Object identificador) {
+        String schema = identificador == null ? "" : identificador.toString();
+        return schema.startsWith(PREFIJO_SCHEMA) ? schema.substring(PREFIJO_SCHEMA.length()) : MetricasHttp.SIN_TENANT;
+    }
+
+    /**
+     * Marca de tiempo previa a pedir una conexión al pool.
+     */
+    public static long pidiendo() {
+        revisarSiCorresponde();
+        return System.nanoTime();
+    }
+
+    public static void obtenida(Object conexion, String tenant, long inicioNanos) {
+        long ahora = System.nanoTime();
+        PorTenant porTenant = porTenant(tenant);
+        porTenant.espera.registrar(ahora - inicioNanos);
+        porTenant.enUso.increment();
+        Throwable pila = null;
+        String sitio = SIN_MUESTRA;
+        if (MUESTREO > 0 && ThreadLocalRandom.current().nextInt(MUESTREO) == 0) {
+            pila = new Throwable("Conexión obtenida por el tenant " + tenant);
+            sitio = sitio(pila.getStackTrace());
+        }
+        EN_USO.put(new Identidad(conexion), new Prestamo(tenant, sitio, ahora, Thread.currentThread(), pila));
+    }
+
+    public static void fallida(String tenant, long inicioNanos) {
+        PorTenant porTenant = porTenant(tenant);
+        porTenant.espera.registrar(System.nanoTime() - inicioNanos);
+        porTenant.errores.increment();
+    }
+
+    public static void liberada(Object conexion) {
+        Prestamo prestamo = EN_USO.remove(new Identidad(conexion));
+        if (prestamo == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - prestamo.desdeNanos;
+        PorTenant porTenant = porTenant(prestamo.tenant);
+        porTenant.enUso.decrement();
+        porTenant.uso.registrar(nanos);
+        if (!SIN_MUESTRA.equals(prestamo.sitio)) {
+            HistogramaLatencia histograma = USO_POR_SITIO.get(prestamo.sitio);
+            if (histograma == null) {
+                String clave = USO_POR_SITIO.size() >= MAX_SITIOS ? OTROS : prestamo.sitio;
+                histograma = USO_POR_SITIO.computeIfAbsent(clave, s -> new HistogramaLatencia());
+            }
+            histograma.registrar(nanos);
+        }
+        if (prestamo.informada) {
+            LOGGER.log(Level.INFO, "ConexionesJdbc: se liberó la conexión retenida del tenant {0} ({1}) después de {2} ms",
+                    new Object[]{prestamo.tenant, prestamo.sitio, TimeUnit.NANOSECONDS.toMillis(nanos)});
+        }
+        revisarSiCorresponde();
+    }
+
+    static Map<String, PorTenant> porTenant() {
+        return POR_TENANT;
+    }
+
+    static Map<String, HistogramaLatencia> usoPorSitio() {
+        return USO_POR_SITIO;
+    }
+
+    /**
+     * Conexiones en uso ahora por tenant y punto de llamada (solo las muestreadas tienen punto).
+     */
+    static Map<String, Map<String, Integer>> enUsoPorSitio() {
+        Map<String, Map<String, Integer>> resultado = new TreeMap<>();
+        for (Prestamo prestamo : EN_USO.values()) {
+            resultado.computeIfAbsent(prestamo.tenant, t -> new TreeMap<>()).merge(prestamo.sitio, 1, Integer::sum);
+        }
+        return resultado;
+    }
+
+    static void revisarSiCorresponde() {
+        long ahora = System.nanoTime();
+        long proxima = PROXIMA_REVISION.get();
+        if (FUGA_NANOS > 0 && ahora - proxima >= 0 && PROXIMA_REVISION.compareAndSet(proxima, ahora + REVISION_NANOS)) {
+            revisar(ahora);
+        }
+    }
+
+    private static void revisar(long ahora) {
+        for (Prestamo prestamo : EN_USO.values()) {
+            long nanos = ahora - prestamo.desdeNanos;
+            if (nanos < FUGA_NANOS || prestamo.informada) {
+                continue;
+            }
+            prestamo.informada = true;
+            porTenant(prestamo.tenant).fugas.increment();
+            Throwable pila = prestamo.pila;
+            if (pila == null) {
+                pila = new Throwable("Pila actual del hilo " + prestamo.hilo.getName() + " (obtención no muestreada)");
+                pila.setStackTrace(prestamo.hilo.getStackTrace());
+            }
+            LOGGER.log(Level.WARNING, "ConexionesJdbc: posible fuga, el tenant " + prestamo.tenant + " retiene una conexión hace "
+                    + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms (hilo " + prestamo.hilo.getName() + ", " + prestamo.sitio + ")", pila);
+        }
+    }
+
+    /**
+     * Primer método de la aplicación en la pila, sin contar el proveedor multi-tenant; si la
+     * conexión se pidió desde fuera de la aplicación, el primer método fuera de este paquete.
+     */
+    private static String sitio(StackTraceElement[] pila) {
+        String externo = null;
+        for (StackTraceElement marco : pila) {
+            String clase = marco.getClassName();
+            if (clase.equals(ConexionesJdbc.class.getName()) || clase.startsWith(PAQUETE_MULTITENANCY)) {
+                continue;
+            }
+            if (clase.startsWith(PAQUETE_APLICACION) && !clase.contains("$$")) {
+                return clase.substring(clase.lastIndexOf('.') + 1) + "." + marco.getMethodName();
+            }
+            if (externo == null) {
+                externo = clase.substring(clase.lastIndexOf('.') + 1) + "." + marco.getMethodName();
+            }
+        }
+        return externo == null ? SIN_MUESTRA : externo;
+    }
+
+    private static PorTenant porTenant(String tenant) {
+        return POR_TENANT.computeIfAbsent(tenant, t -> new PorTenant());
+    }
+
+    static final class PorTenant {
+        final HistogramaLatencia espera = new HistogramaLatencia();
+        final HistogramaLatencia uso = new HistogramaLatencia();
+        final LongAdder enUso = new LongAdder();
+        final LongAdder errores = new LongAdder();
+        final LongAdder fugas = new LongAdder();
+    }
+
+    private static final class Prestamo {
+        private final String tenant;
+        private final String sitio;
+        private final long desdeNanos;
+        private final Thread hilo;
+        private final Throwable pila;
+        private volatile boolean informada;
+
+        Prestamo(String tenant, String sitio, long desdeNanos, Thread hilo, Throwable pila) {
+            this.tenant = tenant;
+            this.sitio = sitio;
+            this.desdeNanos = desdeNanos;
+            this.hilo = hilo;
+            this.pila = pila;
+        }
+    }
+
+    // Clave por identidad: equals/hashCode de las conexiones del pool pueden delegar en la física
+    private static final class Identidad {
+        private final Object objeto;
+
+        Identidad(Object objeto) {
+            this.objeto = objeto;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Identidad otra && otra.objeto == objeto;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(objeto);
+        }
+    }
+}
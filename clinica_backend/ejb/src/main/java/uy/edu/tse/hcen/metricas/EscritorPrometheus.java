@@ -0,0 +1,97 @@
+package uy.edu.tse.hcen.metricas;
+
+/**
+ * Arma la exposición en formato de texto de Prometheus (versión 0.0.4).
+ */
+public final class EscritorPrometheus {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder texto = new StringBuilder(16 * 1024);
+
+    /**
+     * Encabezado de una familia: {@code tipo} es counter, gauge, histogram, summary o untyped.
+     */
+    public EscritorPrometheus familia(String nombre, String tipo, String ayuda) {
+        texto.append("# HELP ").append(nombre).append(' ')
+                .append(ayuda.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        texto.append("# TYPE ").append(nombre).append(' ').append(tipo).append('\n');
+        return this;
+    }
+
+    /**
+     * Una muestra; {@code etiquetas} alterna nombres y valores.
+     */
+    public EscritorPrometheus muestra(String nombre, double valor, String... etiquetas) {
+        texto.append(nombre);
+        if (etiquetas.length > 0) {
+            texto.append('{');
+            for (int i = 0; i + 1 < etiquetas.length; i += 2) {
+                if (i > 0) {
+                    texto.append(',');
+                }
+                texto.append(etiquetas[i]).append("=\"");
+                escaparValor(etiquetas[i + 1]);
+                texto.append('"');
+            }
+            texto.append('}');
+        }
+        texto.append(' ').append(formatear(valor)).append('\n');
+        return this;
+    }
+
+    /**
+     * Las muestras {@code _bucket}, {@code _sum} y {@code _count} de un histograma.
+     */
+    public EscritorPrometheus histograma(String nombre, HistogramaLatencia histograma, double[] limitesSegundos,
+                                         String... etiquetas) {
+        long[] acumulados = histograma.acumulados(limitesSegundos);
+        String[] conLimite = new String[etiquetas.length + 2];
+        System.arraycopy(etiquetas, 0, conLimite, 0, etiquetas.length);
+        conLimite[etiquetas.length] = "le";
+        for (int i = 0; i < limitesSegundos.length; i++) {
+            conLimite[etiquetas.length + 1] = formatear(limitesSegundos[i]);
+            muestra(nombre + "_bucket", acumulados[i], conLimite);
+        }
+        conLimite[etiquetas.length + 1] = "+Inf";
+        long total = acumulados[limitesSegundos.length];
+        muestra(nombre + "_bucket", total, conLimite);
+        muestra(nombre + "_sum", histograma.sumaSegundos(), etiquetas);
+        muestra(nombre + "_count", total, etiquetas);
+        return this;
+    }
+
+    private void escaparValor(String valor) {
+        String v = valor == null ? "" : valor;
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '\\' || c == '"') {
+                texto.append('\\').append(c);
+            } else if (c == '\n') {
+                texto.append("\\n");
+            } else {
+                texto.append(c);
+            }
+        }
+    }
+
+    private static String formatear(double valor) {
+        if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) {
+            return Long.toString((long) valor);
+        }
+        return Double.toString(valor);
+    }
+
+    /**
+     * Agrega lo escrito en otro escritor (p. ej. el de una fuente que terminó sin errores).
+     */
+    public EscritorPrometheus agregar(EscritorPrometheus otro) {
+        texto.append(otro.texto);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return texto.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package uy.edu.tse.hcen.metricas;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+/**
+ * Estadísticas de Hibernate que además atribuyen consultas, cargas y flushes al tenant en
+ * contexto (ver {@link EstadisticasTenant}). Las instala {@link FabricaEstadisticasHibernate}.
+ *
+ * Con {@code HCEN_HIBERNATE_ESTADISTICAS=true} quedan habilitadas aunque
+ * {@code hibernate.generate_statistics} no lo esté; sin la variable Hibernate no las invoca y
+ * se comportan como las predeterminadas.
+ */
+public class EstadisticasHibernate extends StatisticsImpl {
+
+    public EstadisticasHibernate(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @Override
+    public boolean isStatisticsEnabled() {
+        return EstadisticasTenant.activas() || super.isStatisticsEnabled();
+    }
+
+    @Override
+    public void queryExecuted(String hql, int rows, long time) {
+        super.queryExecuted(hql, rows, time);
+        EstadisticasTenant.consulta(time);
+    }
+
+    @Override
+    public void loadEntity(String entityName) {
+        super.loadEntity(entityName);
+        EstadisticasTenant.entidadCargada();
+    }
+
+    @Override
+    public void fetchEntity(String entityName) {
+        super.fetchEntity(entityName);
+        EstadisticasTenant.entidadCargada();
+    }
+
+    @Override
+    public void fetchCollection(String role) {
+        super.fetchCollection(role);
+        EstadisticasTenant.coleccionCargada();
+    }
+
+    @Override
+    public void flush() {
+        super.flush();
+        EstadisticasTenant.flush();
+    }
+}
@@ -0,0 +1,224 @@
+package uy.edu.tse.hcen.metricas;
+
+import uy.edu.tse.hcen.multitenancy.TenantContext;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Estadísticas de JPA/JDBC por tenant: consultas, entidades y colecciones cargadas, flushes y
+ * sentencias SQL con su tiempo, más el acumulado de cada sentencia para armar el top-N.
+ *
+ * Se activan con {@code HCEN_HIBERNATE_ESTADISTICAS=true}. Las alimentan
+ * {@link EstadisticasHibernate} (que Hibernate instancia por reflexión, por eso el estado es
+ * estático, igual que {@link TenantContext}) y {@link ConexionInstrumentada}. Todo se atribuye al
+ * tenant en contexto del hilo que ejecuta. Las sentencias que tardan más de
+ * {@code HCEN_HIBERNATE_LENTA_MS} se registran en el log con la forma de sus parámetros, nunca
+ * con los valores.
+ */
+public final class EstadisticasTenant {
+
+    private static final Logger LOGGER = Logger.getLogger(EstadisticasTenant.class.getName());
+
+    public static final String SIN_TENANT = MetricasHttp.SIN_TENANT;
+    static final String OTRAS = "(otras)";
+
+    private static final boolean ACTIVAS = ConfigUtils.getBoolean("HCEN_HIBERNATE_ESTADISTICAS", false);
+    private static final long LENTA_NANOS = TimeUnit.MILLISECONDS.toNanos(ConfigUtils.getLong("HCEN_HIBERNATE_LENTA_MS", 500));
+    private static final int MAX_SENTENCIAS = ConfigUtils.getInt("HCEN_HIBERNATE_MAX_SENTENCIAS", 500);
+    private static final int LARGO_MAXIMO_SQL = 4000;
+
+    // Listas de IN con distinta cantidad de parámetros son la misma sentencia
+    private static final Pattern LISTA_PARAMETROS = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private static final Map<String, Acumulado> POR_TENANT = new ConcurrentHashMap<>();
+
+    private EstadisticasTenant() {
+    }
+
+    public static boolean activas() {
+        return ACTIVAS;
+    }
+
+    static void consulta(long milisegundos) {
+        Acumulado acumulado = actual();
+        acumulado.consultas.increment();
+        acumulado.consultasMs.add(milisegundos);
+    }
+
+    static void entidadCargada() {
+        actual().entidades.increment();
+    }
+
+    static void coleccionCargada() {
+        actual().colecciones.increment();
+    }
+
+    static void flush() {
+        actual().flushes.increment();
+    }
+
+    /**
+     * Una ejecución de sentencia; {@code forma} describe los parámetros y solo se evalúa para
+     * sentencias nuevas o lentas.
+     */
+    static void sentencia(String sql, Supplier<String> forma, long nanos) {
+        String tenant = tenantActual();
+        Acumulado acumulado = POR_TENANT.computeIfAbsent(tenant, t -> new Acumulado());
+        acumulado.sentencias.increment();
+        acumulado.sentenciasNanos.add(nanos);
+
+        Sentencia sentencia = acumulado.porSql.get(sql);
+        if (sentencia == null) {
+            String clave = acumulado.porSql.size() >= MAX_SENTENCIAS ? OTRAS : sql;
+            sentencia = acumulado.porSql.computeIfAbsent(clave, s -> new Sentencia(OTRAS.equals(s) ? null : forma.get()));
+        }
+        sentencia.ejecuciones.increment();
+        sentencia.nanos.add(nanos);
+        sentencia.maximoNanos.accumulate(nanos);
+
+        if (nanos >= LENTA_NANOS) {
+            String parametros = forma.get();
+            acumulado.lentas.increment();
+            sentencia.lentas.increment();
+            sentencia.forma = parametros;
+            LOGGER.log(Level.WARNING, "EstadisticasTenant: sentencia lenta del tenant {0} ({1} ms) -> {2} parámetros {3}",
+                    new Object[]{tenant, TimeUnit.NANOSECONDS.toMillis(nanos), sql, parametros});
+        }
+    }
+
+    /**
+     * Texto con el que se agrupan las ejecuciones de una sentencia: espacios colapsados, listas de
+     * parámetros reducidas a {@code ?, ...} y largo acotado.
+     */
+    static String normalizar(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String texto = LISTA_PARAMETROS.matcher(ESPACIOS.matcher(sql.trim()).replaceAll(" ")).replaceAll("?, ...");
+        return texto.length() > LARGO_MAXIMO_SQL ? texto.substring(0, LARGO_MAXIMO_SQL) : texto;
+    }
+
+    /**
+     * Totales del tenant y sus {@code top} sentencias, ordenadas por tiempo total
+     * ({@code tiempo}), cantidad de ejecuciones ({@code ejecuciones}) o peor ejecución
+     * ({@code maximo}).
+     *
+     * @throws IllegalArgumentException si el orden no es uno de los anteriores.
+     */
+    public static Map<String, Object> resumen(String tenantId, int top, String orden) {
+        int criterio = criterio(orden);
+        Acumulado acumulado = POR_TENANT.getOrDefault(tenantId, new Acumulado());
+
+        // Se copian los valores antes de ordenar: siguen cambiando mientras se ejecutan sentencias
+        List<long[]> valores = new ArrayList<>();
+        List<Map<String, Object>> filas = new ArrayList<>();
+        for (Map.Entry<String, Sentencia> entrada : acumulado.porSql.entrySet()) {
+            Sentencia sentencia = entrada.getValue();
+            long ejecuciones = sentencia.ejecuciones.sum();
+            long nanos = sentencia.nanos.sum();
+            long maximo = sentencia.maximoNanos.get();
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("sql", entrada.getKey());
+            fila.put("parametros", sentencia.forma);
+            fila.put("ejecuciones", ejecuciones);
+            fila.put("totalMs", milisegundos(nanos));
+            fila.put("promedioMs", ejecuciones == 0 ? 0.0 : milisegundos(nanos / ejecuciones));
+            fila.put("maximoMs", milisegundos(maximo));
+            fila.put("lentas", sentencia.lentas.sum());
+            valores.add(new long[]{nanos, ejecuciones, maximo, filas.size()});
+            filas.add(fila);
+        }
+        valores.sort(Comparator.comparingLong((long[] v) -> v[criterio]).reversed());
+        List<Map<String, Object>> primeras = new ArrayList<>();
+        for (long[] v : valores.subList(0, Math.min(Math.max(top, 0), valores.size()))) {
+            primeras.add(filas.get((int) v[3]));
+        }
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("tenant", tenantId);
+        resumen.put("activas", ACTIVAS);
+        resumen.put("consultas", acumulado.consultas.sum());
+        resumen.put("consultasMs", acumulado.consultasMs.sum());
+        resumen.put("entidadesCargadas", acumulado.entidades.sum());
+        resumen.put("coleccionesCargadas", acumulado.colecciones.sum());
+        resumen.put("flushes", acumulado.flushes.sum());
+        resumen.put("sentencias", acumulado.sentencias.sum());
+        resumen.put("sentenciasMs", milisegundos(acumulado.sentenciasNanos.sum()));
+        resumen.put("sentenciasLentas", acumulado.lentas.sum());
+        resumen.put("sentenciasDistintas", acumulado.porSql.size());
+        resumen.put("top", primeras);
+        return resumen;
+    }
+
+    static Map<String, Acumulado> porTenant() {
+        return POR_TENANT;
+    }
+
+    // Posición del valor por el que se ordena en cada fila copiada de resumen()
+    private static int criterio(String orden) {
+        String criterio = orden == null || orden.isBlank() ? "tiempo" : orden.trim().toLowerCase(Locale.ROOT);
+        switch (criterio) {
+            case "tiempo":
+                return 0;
+            case "ejecuciones":
+                return 1;
+            case "maximo":
+                return 2;
+            default:
+                throw new IllegalArgumentException("orden debe ser tiempo, ejecuciones o maximo");
+        }
+    }
+
+    private static Acumulado actual() {
+        return POR_TENANT.computeIfAbsent(tenantActual(), t -> new Acumulado());
+    }
+
+    private static String tenantActual() {
+        String tenant = TenantContext.getCurrentTenant();
+        return tenant == null ? SIN_TENANT : tenant;
+    }
+
+    private static double milisegundos(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    static final class Acumulado {
+        final LongAdder consultas = new LongAdder();
+        final LongAdder consultasMs = new LongAdder();
+        final LongAdder entidades = new LongAdder();
+        final LongAdder colecciones = new LongAdder();
+        final LongAdder flushes = new LongAdder();
+        final LongAdder sentencias = new LongAdder();
+        final LongAdder sentenciasNanos = new LongAdder();
+        final LongAdder lentas = new LongAdder();
+        final Map<String, Sentencia> porSql = new ConcurrentHashMap<>();
+    }
+
+    private static final class Sentencia {
+        private final LongAdder ejecuciones = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder lentas = new LongAdder();
+        private final LongAccumulator maximoNanos = new LongAccumulator(Math::max, 0);
+        // Forma de los parámetros de la primera ejecución o de la última lenta
+        private volatile String forma;
+
+        Sentencia(String forma) {
+            this.forma = forma;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package uy.edu.tse.hcen.metricas;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+/**
+ * Configurada en {@code hibernate.stats.factory} (persistence.xml); Hibernate la instancia por
+ * reflexión al crear la SessionFactory.
+ */
+public class FabricaEstadisticasHibernate implements StatisticsFactory {
+
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new EstadisticasHibernate(sessionFactory);
+    }
+}
@@ -0,0 +1,11 @@
+package uy.edu.tse.hcen.metricas;
+
+/**
+ * Componente que publica métricas en {@code /api/metrics}. Los beans CDI que la implementan se
+ * descubren solos: el endpoint le pide a cada uno que escriba sus familias en formato de texto de
+ * Prometheus.
+ */
+public interface FuenteMetricas {
+
+    void escribir(EscritorPrometheus salida);
+}
@@ -0,0 +1,78 @@
+package uy.edu.tse.hcen.metricas;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias sin locks, con cubetas log-lineales al estilo HdrHistogram: cada
+ * potencia de dos de microsegundos se divide en {@value #SUBCUBETAS} cubetas iguales, así que el
+ * error relativo de cualquier valor es menor a 1/{@value #SUBCUBETAS} (6,25 %) desde 1 µs hasta
+ * unas 9 horas. Registrar un valor es un cálculo de bits y un incremento atómico; los lectores
+ * (exposición de métricas) leen las cubetas sin detener a nadie.
+ */
+public final class HistogramaLatencia {
+
+    private static final int BITS_SUBCUBETA = 4;
+    static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    // 2^35 µs ≈ 9,5 horas; los valores mayores van a la última cubeta
+    private static final int MAX_EXPONENTE = 35;
+    private static final int CUBETAS = (MAX_EXPONENTE - BITS_SUBCUBETA + 2) * SUBCUBETAS;
+    private static final long MAX_MICROS = (1L << (MAX_EXPONENTE + 1)) - 1;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder sumaNanos = new LongAdder();
+
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        sumaNanos.add(valor);
+        cubetas.incrementAndGet(indice(Math.min(valor / 1000, MAX_MICROS)));
+    }
+
+    static int indice(long micros) {
+        if (micros < SUBCUBETAS) {
+            return (int) micros;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(micros);
+        int desplazamiento = exponente - BITS_SUBCUBETA;
+        return (desplazamiento + 1) * SUBCUBETAS + (int) (micros >>> desplazamiento) - SUBCUBETAS;
+    }
+
+    /**
+     * Punto medio de la cubeta, en microsegundos: el valor representativo para compararla con un
+     * límite de la exposición.
+     */
+    static double medioMicros(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice + 0.5;
+        }
+        int desplazamiento = indice / SUBCUBETAS - 1;
+        long base = (long) (indice % SUBCUBETAS + SUBCUBETAS) << desplazamiento;
+        return base + (1L << desplazamiento) / 2.0;
+    }
+
+    /**
+     * Cantidades acumuladas para cada límite (en segundos, en orden creciente); la última posición
+     * es el total. Una cubeta cuenta para un límite si su punto medio no lo supera.
+     */
+    public long[] acumulados(double[] limitesSegundos) {
+        long[] resultado = new long[limitesSegundos.length + 1];
+        int limite = 0;
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            double medioSegundos = medioMicros(i) / 1_000_000.0;
+            while (limite < limitesSegundos.length && medioSegundos > limitesSegundos[limite]) {
+                resultado[limite++] = acumulado;
+            }
+            acumulado += cubetas.get(i);
+        }
+        while (limite < limitesSegundos.length) {
+            resultado[limite++] = acumulado;
+        }
+        resultado[limitesSegundos.length] = acumulado;
+        return resultado;
+    }
+
+    public double sumaSegundos() {
+        return sumaNanos.sum() / 1_000_000_000.0;
+    }
+}
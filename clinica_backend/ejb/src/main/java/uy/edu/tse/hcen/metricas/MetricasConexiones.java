@@ -0,0 +1,66 @@
+package uy.edu.tse.hcen.metricas;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Map;
+
+/**
+ * Publica en {@code /api/metrics} el uso del pool JDBC que registra {@link ConexionesJdbc}: espera
+ * para obtener conexiones, tiempo de retención por tenant y por punto de llamada (muestreado),
+ * conexiones en uso, errores al obtenerlas y posibles fugas.
+ */
+@ApplicationScoped
+public class MetricasConexiones implements FuenteMetricas {
+
+    private static final String ESPERA = "hcen_jdbc_conexion_espera_segundos";
+    private static final String USO = "hcen_jdbc_conexion_uso_segundos";
+    private static final String USO_SITIO = "hcen_jdbc_conexion_uso_muestreado_segundos";
+    private static final String EN_USO = "hcen_jdbc_conexiones_en_uso";
+    private static final String EN_USO_SITIO = "hcen_jdbc_conexiones_en_uso_muestreadas";
+    private static final String ERRORES = "hcen_jdbc_conexion_errores_total";
+    private static final String FUGAS = "hcen_jdbc_conexion_fugas_total";
+
+    private final double[] limites = MetricasHttp.limitesConfigurados();
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public MetricasConexiones() {
+    }
+
+    @Override
+    public void escribir(EscritorPrometheus salida) {
+        // Sin solicitudes nuevas, una fuga también se detecta cuando se leen las métricas
+        ConexionesJdbc.revisarSiCorresponde();
+        Map<String, ConexionesJdbc.PorTenant> porTenant = ConexionesJdbc.porTenant();
+
+        salida.familia(ESPERA, "histogram", "Espera para obtener una conexión del pool JDBC, por tenant");
+        for (Map.Entry<String, ConexionesJdbc.PorTenant> entrada : porTenant.entrySet()) {
+            salida.histograma(ESPERA, entrada.getValue().espera, limites, "tenant", entrada.getKey());
+        }
+        salida.familia(USO, "histogram", "Tiempo que se retiene cada conexión JDBC hasta liberarla, por tenant");
+        for (Map.Entry<String, ConexionesJdbc.PorTenant> entrada : porTenant.entrySet()) {
+            salida.histograma(USO, entrada.getValue().uso, limites, "tenant", entrada.getKey());
+        }
+        salida.familia(USO_SITIO, "histogram", "Tiempo de retención de las conexiones muestreadas, por punto de llamada");
+        for (Map.Entry<String, HistogramaLatencia> entrada : ConexionesJdbc.usoPorSitio().entrySet()) {
+            salida.histograma(USO_SITIO, entrada.getValue(), limites, "sitio", entrada.getKey());
+        }
+        salida.familia(EN_USO, "gauge", "Conexiones JDBC retenidas ahora, por tenant");
+        for (Map.Entry<String, ConexionesJdbc.PorTenant> entrada : porTenant.entrySet()) {
+            salida.muestra(EN_USO, entrada.getValue().enUso.sum(), "tenant", entrada.getKey());
+        }
+        salida.familia(EN_USO_SITIO, "gauge", "Conexiones JDBC retenidas ahora, por tenant y punto de llamada (sin_muestra si no se muestreó)");
+        for (Map.Entry<String, Map<String, Integer>> tenant : ConexionesJdbc.enUsoPorSitio().entrySet()) {
+            for (Map.Entry<String, Integer> sitio : tenant.getValue().entrySet()) {
+                salida.muestra(EN_USO_SITIO, sitio.getValue(), "tenant", tenant.getKey(), "sitio", sitio.getKey());
+            }
+        }
+        salida.familia(ERRORES, "counter", "Errores al obtener una conexión JDBC (p. ej. pool agotado), por tenant");
+        for (Map.Entry<String, ConexionesJdbc.PorTenant> entrada : porTenant.entrySet()) {
+            salida.muestra(ERRORES, entrada.getValue().errores.sum(), "tenant", entrada.getKey());
+        }
+        salida.familia(FUGAS, "counter", "Conexiones retenidas más de HCEN_CONEXIONES_FUGA_MS, por tenant");
+        for (Map.Entry<String, ConexionesJdbc.PorTenant> entrada : porTenant.entrySet()) {
+            salida.muestra(FUGAS, entrada.getValue().fugas.sum(), "tenant", entrada.getKey());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package uy.edu.tse.hcen.metricas;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Publica en {@code /api/metrics} los contadores por tenant de {@link EstadisticasTenant}; no
+ * escribe nada si las estadísticas no están activas. El detalle por sentencia queda en el
+ * endpoint de administración, no en métricas, para no multiplicar las series.
+ */
+@ApplicationScoped
+public class MetricasHibernate implements FuenteMetricas {
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public MetricasHibernate() {
+    }
+
+    @Override
+    public void escribir(EscritorPrometheus salida) {
+        if (!EstadisticasTenant.activas()) {
+            return;
+        }
+        Map<String, EstadisticasTenant.Acumulado> porTenant = EstadisticasTenant.porTenant();
+        contador(salida, porTenant, "hcen_jpa_consultas_total", "Consultas JPQL/criteria ejecutadas por tenant", a -> a.consultas, 1);
+        contador(salida, porTenant, "hcen_jpa_consultas_segundos_total", "Tiempo de las consultas JPQL/criteria según Hibernate", a -> a.consultasMs, 1e-3);
+        contador(salida, porTenant, "hcen_jpa_entidades_cargadas_total", "Entidades cargadas (find, asociaciones y proxies)", a -> a.entidades, 1);
+        contador(salida, porTenant, "hcen_jpa_colecciones_cargadas_total", "Colecciones cargadas de forma diferida", a -> a.colecciones, 1);
+        contador(salida, porTenant, "hcen_jpa_flushes_total", "Flushes del contexto de persistencia", a -> a.flushes, 1);
+        contador(salida, porTenant, "hcen_jdbc_sentencias_total", "Sentencias SQL ejecutadas por tenant", a -> a.sentencias, 1);
+        contador(salida, porTenant, "hcen_jdbc_sentencias_segundos_total", "Tiempo de ejecución de las sentencias SQL", a -> a.sentenciasNanos, 1e-9);
+        contador(salida, porTenant, "hcen_jdbc_sentencias_lentas_total", "Sentencias SQL que superaron HCEN_HIBERNATE_LENTA_MS", a -> a.lentas, 1);
+    }
+
+    private static void contador(EscritorPrometheus salida, Map<String, EstadisticasTenant.Acumulado> porTenant,
+                                 String nombre, String ayuda, Function<EstadisticasTenant.Acumulado, LongAdder> valor,
+                                 double escala) {
+        salida.familia(nombre, "counter", ayuda);
+        for (Map.Entry<String, EstadisticasTenant.Acumulado> entrada : porTenant.entrySet()) {
+            salida.muestra(nombre, valor.apply(entrada.getValue()).sum() * escala, "tenant", entrada.getKey());
+        }
+    }
+}
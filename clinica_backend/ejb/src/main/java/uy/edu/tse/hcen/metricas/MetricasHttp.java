@@ -0,0 +1,133 @@
+package uy.edu.tse.hcen.metricas;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Latencia de las solicitudes REST por tenant, método de recurso y clase de estado (2xx, 4xx...),
+ * y solicitudes en curso por método. Lo alimenta el filtro de métricas de la API.
+ *
+ * Cada serie es un {@link HistogramaLatencia}; buscarla es una lectura de un ConcurrentHashMap y
+ * registrar, un incremento atómico. Para acotar la memoria, pasadas {@code HCEN_METRICAS_MAX_SERIES}
+ * series las nuevas combinaciones se acumulan con tenant {@value #OTROS}.
+ */
+@ApplicationScoped
+public class MetricasHttp implements FuenteMetricas {
+
+    private static final Logger LOGGER = Logger.getLogger(MetricasHttp.class.getName());
+
+    public static final String SIN_TENANT = "ninguno";
+    static final String OTROS = "otros";
+
+    private static final String LATENCIA = "hcen_http_solicitudes_segundos";
+    private static final String EN_CURSO = "hcen_http_solicitudes_en_curso";
+
+    private static final String LIMITES_PREDETERMINADOS = "1,2.5,5,10,25,50,100,250,500,1000,2500,5000,10000,30000";
+
+    private final int maxSeries = ConfigUtils.getInt("HCEN_METRICAS_MAX_SERIES", 5000);
+    private final double[] limites = limitesConfigurados();
+
+    private final Map<Serie, HistogramaLatencia> series = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> enCurso = new ConcurrentHashMap<>();
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public MetricasHttp() {
+    }
+
+    public void iniciada(String metodo) {
+        enCurso.computeIfAbsent(metodo, m -> new LongAdder()).increment();
+    }
+
+    public void terminada(String tenant, String metodo, int estado, long nanos) {
+        LongAdder contador = enCurso.get(metodo);
+        if (contador != null) {
+            contador.decrement();
+        }
+        Serie serie = new Serie(tenant == null ? SIN_TENANT : tenant, metodo, estado / 100 + "xx");
+        HistogramaLatencia histograma = series.get(serie);
+        if (histograma == null) {
+            if (series.size() >= maxSeries) {
+                serie = new Serie(OTROS, serie.metodo, serie.estado);
+            }
+            histograma = series.computeIfAbsent(serie, s -> new HistogramaLatencia());
+        }
+        histograma.registrar(nanos);
+    }
+
+    @Override
+    public void escribir(EscritorPrometheus salida) {
+        salida.familia(LATENCIA, "histogram", "Latencia de las solicitudes REST hasta armar la respuesta, por tenant, método y clase de estado");
+        for (Map.Entry<Serie, HistogramaLatencia> entrada : series.entrySet()) {
+            Serie serie = entrada.getKey();
+            salida.histograma(LATENCIA, entrada.getValue(), limites,
+                    "tenant", serie.tenant, "metodo", serie.metodo, "estado", serie.estado);
+        }
+        salida.familia(EN_CURSO, "gauge", "Solicitudes REST en curso por método");
+        for (Map.Entry<String, LongAdder> entrada : enCurso.entrySet()) {
+            salida.muestra(EN_CURSO, entrada.getValue().sum(), "metodo", entrada.getKey());
+        }
+    }
+
+    /**
+     * Límites de {@code HCEN_METRICAS_LIMITES_MS}, en segundos; los usan todos los histogramas expuestos.
+     */
+    static double[] limitesConfigurados() {
+        return limites(ConfigUtils.getString("HCEN_METRICAS_LIMITES_MS", LIMITES_PREDETERMINADOS));
+    }
+
+    /**
+     * Límites de las cubetas expuestas, en segundos, a partir de una lista en milisegundos.
+     */
+    static double[] limites(String valorMs) {
+        try {
+            return Arrays.stream(valorMs.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .mapToDouble(ms -> Double.parseDouble(ms) / 1000.0)
+                    .filter(segundos -> segundos > 0)
+                    .sorted()
+                    .distinct()
+                    .toArray();
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "MetricasHttp: HCEN_METRICAS_LIMITES_MS inválido ({0}); se usan los predeterminados", valorMs);
+            return limites(LIMITES_PREDETERMINADOS);
+        }
+    }
+
+    private static final class Serie {
+        private final String tenant;
+        private final String metodo;
+        private final String estado;
+        private final int hash;
+
+        Serie(String tenant, String metodo, String estado) {
+            this.tenant = tenant;
+            this.metodo = metodo;
+            this.estado = estado;
+            this.hash = (tenant.hashCode() * 31 + metodo.hashCode()) * 31 + estado.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Serie otra)) {
+                return false;
+            }
+            return hash == otra.hash && tenant.equals(otra.tenant) && metodo.equals(otra.metodo) && estado.equals(otra.estado);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -5,6 +5,9 @@ import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
 
 import jakarta.annotation.Resource;
 import org.jboss.logging.Logger;
+import uy.edu.tse.hcen.metricas.ConexionInstrumentada;
+import uy.edu.tse.hcen.metricas.ConexionesJdbc;
+import uy.edu.tse.hcen.metricas.EstadisticasTenant;
 import java.sql.Connection;
 import java.sql.SQLException;
 import javax.sql.DataSource;
@@ -27,11 +30,29 @@ public class SchemaMultiTenantProvider implements MultiTenantConnectionProvider<
 
     @Override
     public Connection getAnyConnection() throws SQLException {
+        return acquire(ConexionesJdbc.tenant(null), false);
+    }
+
+    /**
+     * Takes a connection from the pool, recording the wait and the holder in ConexionesJdbc
+     * (released in releaseAnyConnection).
+     */
+    private Connection acquire(String tenant, boolean instrumented) throws SQLException {
         // If resource injection did not occur yet (Hibernate instantiates this class),
         // perform a one-time JNDI lookup and cache the DataSource reference.
         initializeDataSourceIfNeeded();
-        Connection c = dataSource.getConnection();
-        
+        long start = ConexionesJdbc.pidiendo();
+        Connection c;
+        try {
+            c = dataSource.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            ConexionesJdbc.fallida(tenant, start);
+            throw e;
+        }
+        if (instrumented) {
+            c = ConexionInstrumentada.envolver(c);
+        }
+        ConexionesJdbc.obtenida(c, tenant, start);
         return c;
     }
 
@@ -48,6 +69,7 @@ public class SchemaMultiTenantProvider implements MultiTenantConnectionProvider<
 
     @Override
     public void releaseAnyConnection(Connection connection) throws SQLException {
+        ConexionesJdbc.liberada(connection);
         connection.close();
     }
 
@@ -59,7 +81,8 @@ public class SchemaMultiTenantProvider implements MultiTenantConnectionProvider<
         try {
             // Return the physical connection from the shared DataSource. Schema switching
             // is handled at a higher level (service layer / integrator) in current deployments.
-            return getAnyConnection();
+            // With HCEN_HIBERNATE_ESTADISTICAS the connection is wrapped to time its statements.
+            return acquire(ConexionesJdbc.tenant(tenantIdentifierObj), EstadisticasTenant.activas());
         } catch (final SQLException e) {
             throw new HibernateException("Error trying to obtain connection", e);
         }
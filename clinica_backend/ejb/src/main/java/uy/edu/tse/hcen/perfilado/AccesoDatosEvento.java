@@ -0,0 +1,28 @@
+package uy.edu.tse.hcen.perfilado;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Una llamada a un repositorio marcado con {@link Perfilado}; la operación es Clase.metodo.
+ */
+@Name("uy.edu.tse.hcen.AccesoDatos")
+@Label("Acceso a datos")
+@Threshold("5 ms")
+public class AccesoDatosEvento extends EventoHcen {
+
+    @Label("Almacén")
+    String almacen;
+
+    @Label("Error")
+    boolean error;
+
+    public void setAlmacen(String almacen) {
+        this.almacen = almacen;
+    }
+
+    public void setError(boolean error) {
+        this.error = error;
+    }
+}
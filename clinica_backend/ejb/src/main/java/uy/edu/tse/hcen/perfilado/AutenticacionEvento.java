@@ -0,0 +1,21 @@
+package uy.edu.tse.hcen.perfilado;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Validación del token de una solicitud en los filtros de autenticación.
+ */
+@Name("uy.edu.tse.hcen.Autenticacion")
+@Label("Autenticación")
+@Threshold("5 ms")
+public class AutenticacionEvento extends EventoHcen {
+
+    @Label("Token válido")
+    boolean valido;
+
+    public void setValido(boolean valido) {
+        this.valido = valido;
+    }
+}
@@ -0,0 +1,26 @@
+package uy.edu.tse.hcen.perfilado;
+
+/**
+ * Endpoint de la solicitud que atiende el hilo, para los eventos JFR que se emiten lejos del
+ * filtro (repositorios, login). Lo establece y lo limpia el filtro de autenticación, igual que
+ * {@link uy.edu.tse.hcen.multitenancy.TenantContext}.
+ */
+public final class ContextoSolicitud {
+
+    private static final ThreadLocal<String> ENDPOINT = new ThreadLocal<>();
+
+    private ContextoSolicitud() {
+    }
+
+    public static void setEndpoint(String endpoint) {
+        ENDPOINT.set(endpoint);
+    }
+
+    public static String getEndpoint() {
+        return ENDPOINT.get();
+    }
+
+    public static void clear() {
+        ENDPOINT.remove();
+    }
+}
@@ -0,0 +1,59 @@
+package uy.edu.tse.hcen.perfilado;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import uy.edu.tse.hcen.multitenancy.TenantContext;
+
+/**
+ * Base de los eventos de JDK Flight Recorder de la aplicación: tenant, endpoint y operación,
+ * más la duración, el hilo y el momento que registra JFR. Así una grabación (o un perfil de
+ * async-profiler convertido a JFR) puede atribuir los marcos calientes a un tenant y un endpoint.
+ *
+ * Uso: crear el evento, {@code begin()} y al final {@link #terminar(String)}. Los campos se
+ * completan solo si el evento se va a registrar, así que con JFR apagado o bajo el umbral el
+ * costo es el de crear un objeto que el JIT suele eliminar.
+ */
+@Category("HCEN")
+@StackTrace(false)
+public abstract class EventoHcen extends Event {
+
+    @Label("Tenant")
+    @Description("Tenant en contexto; vacío si la operación no tenía tenant")
+    String tenant;
+
+    @Label("Endpoint")
+    @Description("Método de recurso REST (Clase.metodo) que originó la operación")
+    String endpoint;
+
+    @Label("Operación")
+    String operacion;
+
+    /**
+     * Cierra el evento y, si corresponde registrarlo, completa tenant y endpoint desde el
+     * contexto del hilo y lo registra.
+     */
+    public void terminar(String operacion) {
+        end();
+        if (shouldCommit()) {
+            if (tenant == null) {
+                tenant = TenantContext.getCurrentTenant();
+            }
+            if (endpoint == null) {
+                endpoint = ContextoSolicitud.getEndpoint();
+            }
+            this.operacion = operacion;
+            commit();
+        }
+    }
+
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+}
@@ -0,0 +1,20 @@
+package uy.edu.tse.hcen.perfilado;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Un inicio de sesión: búsqueda del usuario, verificación de la contraseña y emisión del token.
+ * El tenant es el del usuario si el inicio fue exitoso.
+ */
+@Name("uy.edu.tse.hcen.Login")
+@Label("Login")
+public class LoginEvento extends EventoHcen {
+
+    @Label("Exitoso")
+    boolean exitoso;
+
+    public void setExitoso(boolean exitoso) {
+        this.exitoso = exitoso;
+    }
+}
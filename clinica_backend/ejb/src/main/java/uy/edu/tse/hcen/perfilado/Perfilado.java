@@ -0,0 +1,25 @@
+package uy.edu.tse.hcen.perfilado;
+
+import jakarta.enterprise.util.Nonbinding;
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Emite un {@link AccesoDatosEvento} por cada llamada a los métodos públicos del bean (ver
+ * {@link PerfiladoInterceptor}).
+ */
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Perfilado {
+
+    /**
+     * Almacén al que accede el bean (postgres, mongo...).
+     */
+    @Nonbinding
+    String almacen() default "";
+}
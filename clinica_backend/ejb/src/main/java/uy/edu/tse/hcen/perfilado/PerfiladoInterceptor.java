@@ -0,0 +1,70 @@
+package uy.edu.tse.hcen.perfilado;
+
+import jakarta.annotation.Priority;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import uy.edu.tse.hcen.multitenancy.TenantContext;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mide las llamadas a los beans {@link Perfilado} con un {@link AccesoDatosEvento}. En los métodos
+ * que devuelven un CompletionStage (las variantes {@code *Async}) el evento termina cuando se
+ * completa la etapa, con {@code error} si falló; lo registra el hilo que la completa, así que el
+ * tenant y el endpoint se toman antes, en el hilo que llamó. En los que devuelven un Publisher la
+ * duración es la de armarlo, no la de la consulta.
+ */
+@Perfilado
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class PerfiladoInterceptor {
+
+    // Operación y almacén por método, para no armar el nombre en cada llamada
+    private static final Map<Method, String[]> OPERACIONES = new ConcurrentHashMap<>();
+
+    @AroundInvoke
+    public Object medir(InvocationContext contexto) throws Exception {
+        AccesoDatosEvento evento = new AccesoDatosEvento();
+        if (!evento.isEnabled()) {
+            return contexto.proceed();
+        }
+        String[] operacion = OPERACIONES.computeIfAbsent(contexto.getMethod(), PerfiladoInterceptor::operacion);
+        evento.setAlmacen(operacion[1]);
+        evento.begin();
+        boolean error = true;
+        boolean diferido = false;
+        try {
+            Object resultado = contexto.proceed();
+            if (resultado instanceof CompletionStage<?> etapa) {
+                evento.setTenant(Objects.toString(TenantContext.getCurrentTenant(), ""));
+                evento.setEndpoint(Objects.toString(ContextoSolicitud.getEndpoint(), ""));
+                diferido = true;
+                etapa.whenComplete((valor, falla) -> {
+                    evento.setError(falla != null);
+                    evento.terminar(operacion[0]);
+                });
+            }
+            error = false;
+            return resultado;
+        } finally {
+            if (!diferido) {
+                evento.setError(error);
+                evento.terminar(operacion[0]);
+            }
+        }
+    }
+
+    private static String[] operacion(Method metodo) {
+        Class<?> clase = metodo.getDeclaringClass();
+        Perfilado perfilado = metodo.getAnnotation(Perfilado.class);
+        if (perfilado == null) {
+            perfilado = clase.getAnnotation(Perfilado.class);
+        }
+        return new String[]{clase.getSimpleName() + "." + metodo.getName(), perfilado == null ? "" : perfilado.almacen()};
+    }
+}
@@ -0,0 +1,22 @@
+package uy.edu.tse.hcen.perfilado;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Una solicitud REST, desde el filtro de autenticación hasta la respuesta; la operación es el
+ * método HTTP.
+ */
+@Name("uy.edu.tse.hcen.Solicitud")
+@Label("Solicitud REST")
+@Threshold("10 ms")
+public class SolicitudEvento extends EventoHcen {
+
+    @Label("Estado HTTP")
+    int estado;
+
+    public void setEstado(int estado) {
+        this.estado = estado;
+    }
+}
@@ -0,0 +1,313 @@
+package uy.edu.tse.hcen.repository;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+import uy.edu.tse.hcen.utils.ReactivoUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resúmenes diarios de actividad clínica por tenant: un documento por día en
+ * {@value #PREFIJO_COLECCION}&lt;tenantId&gt; con {@code _id} = día (yyyy-MM-dd), la cantidad de
+ * documentos creados ese día ({@code total}) y la cantidad por tipo ({@code tipos}).
+ *
+ * {@link DocumentoClinicoRepository} los actualiza con cada inserción confirmada mediante upserts
+ * con {@code $inc}, que son atómicos por día aunque inserten varios nodos a la vez. Las consultas
+ * de un rango leen un documento por día, sin recorrer los documentos clínicos. La historia previa
+ * (o un resumen desviado) se reconstruye con {@link #reconstruir(String, Iterator)}.
+ */
+@ApplicationScoped
+public class ActividadDiaria {
+
+    private static final Logger LOGGER = Logger.getLogger(ActividadDiaria.class.getName());
+
+    public static final String PREFIJO_COLECCION = "actividad_diaria_";
+    public static final String CAMPO_TOTAL = "total";
+    public static final String CAMPO_TIPOS = "tipos";
+    private static final String CAMPO_DIA = "dia";
+    private static final String CAMPO_RECONSTRUIDO = "reconstruido";
+    private static final String SIN_TIPO = "sin_tipo";
+    private static final int LOTE_ESCRITURA = 1000;
+    private static final int LARGO_MAXIMO_TIPO = 100;
+
+    /**
+     * Campo de los documentos clínicos con el tipo que se cuenta. Se conserva en los stubs de
+     * los documentos archivados (ver {@link ArchivoDocumentos#CAMPOS_STUB}).
+     */
+    public static final String CAMPO_TIPO_DOCUMENTO = ConfigUtils.getString("HCEN_ACTIVIDAD_CAMPO_TIPO", "tipo");
+
+    private final ZoneId zona = ZoneId.of(ConfigUtils.getString("HCEN_ACTIVIDAD_ZONA", "America/Montevideo"));
+    private final int maxDias = ConfigUtils.getInt("HCEN_ACTIVIDAD_MAX_DIAS", 3660);
+
+    @Inject
+    private MongoDatabase database;
+
+    // Para las inserciones del camino asíncrono (ver DocumentoClinicoRepository)
+    @Inject
+    private com.mongodb.reactivestreams.client.MongoDatabase databaseReactiva;
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public ActividadDiaria() {
+    }
+
+    public String getCampoTipo() {
+        return CAMPO_TIPO_DOCUMENTO;
+    }
+
+    private MongoCollection<Document> coleccion(String tenantId) {
+        return database.getCollection(PREFIJO_COLECCION + DocumentoClinicoRepository.validarTenant(tenantId));
+    }
+
+    /**
+     * Suma los documentos recién insertados a los resúmenes de sus días: un upsert por día, todos
+     * en un único bulkWrite. Un error (incluso al contar) se registra pero no afecta la inserción,
+     * que ya fue confirmada; el resumen se corrige reconstruyéndolo.
+     */
+    void registrar(String tenantId, List<Document> nuevos) {
+        try {
+            List<WriteModel<Document>> cambios = sumas(nuevos);
+            if (!cambios.isEmpty()) {
+                coleccion(tenantId).bulkWrite(cambios, new BulkWriteOptions().ordered(false));
+            }
+        } catch (RuntimeException e) {
+            registrarFallo(tenantId, e);
+        }
+    }
+
+    /**
+     * Variante no bloqueante de {@link #registrar(String, List)} sobre el cliente reactivo. El
+     * futuro nunca falla: un error se registra igual que en la variante sincrónica.
+     */
+    CompletableFuture<Void> registrarAsync(String tenantId, List<Document> nuevos) {
+        try {
+            List<WriteModel<Document>> cambios = sumas(nuevos);
+            if (cambios.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return ReactivoUtils.primero(databaseReactiva
+                            .getCollection(PREFIJO_COLECCION + DocumentoClinicoRepository.validarTenant(tenantId))
+                            .bulkWrite(cambios, new BulkWriteOptions().ordered(false)))
+                    .<Void>handle((resultado, error) -> {
+                        if (error != null) {
+                            registrarFallo(tenantId, error);
+                        }
+                        return null;
+                    });
+        } catch (RuntimeException e) {
+            registrarFallo(tenantId, e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Un upsert con {@code $inc} por cada día de los documentos nuevos.
+     */
+    private List<WriteModel<Document>> sumas(List<Document> nuevos) {
+        Map<String, Map<String, Long>> porDia = new TreeMap<>();
+        for (Document documento : nuevos) {
+            contar(porDia, documento);
+        }
+        List<WriteModel<Document>> cambios = new ArrayList<>(porDia.size());
+        for (Map.Entry<String, Map<String, Long>> dia : porDia.entrySet()) {
+            long total = 0;
+            List<Bson> actualizacion = new ArrayList<>();
+            for (Map.Entry<String, Long> tipo : dia.getValue().entrySet()) {
+                actualizacion.add(Updates.inc(CAMPO_TIPOS + "." + tipo.getKey(), tipo.getValue()));
+                total += tipo.getValue();
+            }
+            actualizacion.add(Updates.inc(CAMPO_TOTAL, total));
+            actualizacion.add(Updates.setOnInsert(CAMPO_DIA, inicioDelDia(LocalDate.parse(dia.getKey()))));
+            cambios.add(new UpdateOneModel<>(Filters.eq("_id", dia.getKey()), Updates.combine(actualizacion),
+                    new UpdateOptions().upsert(true)));
+        }
+        return cambios;
+    }
+
+    private static void registrarFallo(String tenantId, Throwable error) {
+        LOGGER.log(Level.WARNING, "ActividadDiaria: no se pudo actualizar el resumen del tenant {0} -> {1}",
+                new Object[]{tenantId, error.getMessage()});
+    }
+
+    /**
+     * Resúmenes de los días entre {@code desde} y {@code hasta} (inclusive), en orden y con los días
+     * sin documentos en cero, más los totales del rango. Lee un documento por día con actividad.
+     *
+     * @throws IllegalArgumentException si las fechas no son yyyy-MM-dd, el rango está invertido
+     *                                  o supera {@code HCEN_ACTIVIDAD_MAX_DIAS}.
+     */
+    public Document consultar(String tenantId, String desde, String hasta) {
+        LocalDate fin = hasta == null || hasta.isBlank() ? LocalDate.now(zona) : fecha(hasta);
+        LocalDate inicio = desde == null || desde.isBlank() ? fin.minusDays(29) : fecha(desde);
+        if (inicio.isAfter(fin)) {
+            throw new IllegalArgumentException("desde debe ser anterior o igual a hasta");
+        }
+        if (ChronoUnit.DAYS.between(inicio, fin) >= maxDias) {
+            throw new IllegalArgumentException("El rango no puede superar " + maxDias + " días");
+        }
+
+        Map<String, Document> encontrados = new LinkedHashMap<>();
+        for (Document dia : coleccion(tenantId).find(Filters.and(
+                        Filters.gte("_id", inicio.toString()), Filters.lte("_id", fin.toString())))
+                .sort(Sorts.ascending("_id"))) {
+            encontrados.put(dia.getString("_id"), dia);
+        }
+
+        List<Document> dias = new ArrayList<>();
+        long total = 0;
+        Map<String, Long> tipos = new TreeMap<>();
+        for (LocalDate dia = inicio; !dia.isAfter(fin); dia = dia.plusDays(1)) {
+            Document resumen = encontrados.get(dia.toString());
+            long totalDia = 0;
+            Document tiposDia = new Document();
+            if (resumen != null) {
+                totalDia = resumen.get(CAMPO_TOTAL, Number.class).longValue();
+                Document guardados = resumen.get(CAMPO_TIPOS, Document.class);
+                if (guardados != null) {
+                    for (Map.Entry<String, Object> tipo : guardados.entrySet()) {
+                        long cantidad = ((Number) tipo.getValue()).longValue();
+                        tiposDia.append(tipo.getKey(), cantidad);
+                        tipos.merge(tipo.getKey(), cantidad, Long::sum);
+                    }
+                }
+            }
+            total += totalDia;
+            dias.add(new Document(CAMPO_DIA, dia.toString()).append(CAMPO_TOTAL, totalDia).append(CAMPO_TIPOS, tiposDia));
+        }
+        return new Document("desde", inicio.toString())
+                .append("hasta", fin.toString())
+                .append(CAMPO_TOTAL, total)
+                .append(CAMPO_TIPOS, new Document(new LinkedHashMap<>(tipos)))
+                .append("dias", dias);
+    }
+
+    /**
+     * Reconstruye los resúmenes a partir de todos los documentos del tenant ({@code fechaCreacion}
+     * y el campo de tipo). Solo reemplaza los días anteriores al actual: esos ya no reciben
+     * inserciones, mientras que el día en curso sigue acumulando con {@code $inc} y no se puede
+     * reemplazar sin perder las inserciones concurrentes. Los días anteriores que ya no tienen
+     * documentos se eliminan.
+     *
+     * @return cantidades de documentos leídos y de días escritos y eliminados.
+     */
+    public Map<String, Long> reconstruir(String tenantId, Iterator<Document> documentos) {
+        LocalDate hoy = LocalDate.now(zona);
+        Date marca = new Date();
+        Map<String, Map<String, Long>> porDia = new TreeMap<>();
+        long leidos = 0;
+        while (documentos.hasNext()) {
+            Document documento = documentos.next();
+            leidos++;
+            LocalDate dia = diaDe(documento);
+            if (dia != null && dia.isBefore(hoy)) {
+                contar(porDia, documento);
+            }
+        }
+
+        MongoCollection<Document> coleccion = coleccion(tenantId);
+        List<WriteModel<Document>> cambios = new ArrayList<>(Math.min(porDia.size(), LOTE_ESCRITURA));
+        for (Map.Entry<String, Map<String, Long>> dia : porDia.entrySet()) {
+            long total = 0;
+            Document tipos = new Document();
+            for (Map.Entry<String, Long> tipo : dia.getValue().entrySet()) {
+                tipos.append(tipo.getKey(), tipo.getValue());
+                total += tipo.getValue();
+            }
+            Document resumen = new Document("_id", dia.getKey())
+                    .append(CAMPO_DIA, inicioDelDia(LocalDate.parse(dia.getKey())))
+                    .append(CAMPO_TOTAL, total)
+                    .append(CAMPO_TIPOS, tipos)
+                    .append(CAMPO_RECONSTRUIDO, marca);
+            cambios.add(new ReplaceOneModel<>(Filters.eq("_id", dia.getKey()), resumen, new ReplaceOptions().upsert(true)));
+            if (cambios.size() == LOTE_ESCRITURA) {
+                coleccion.bulkWrite(cambios, new BulkWriteOptions().ordered(false));
+                cambios.clear();
+            }
+        }
+        if (!cambios.isEmpty()) {
+            coleccion.bulkWrite(cambios, new BulkWriteOptions().ordered(false));
+        }
+        // Días anteriores que no aparecieron en esta reconstrucción
+        long eliminados = coleccion.deleteMany(Filters.and(
+                Filters.lt("_id", hoy.toString()), Filters.ne(CAMPO_RECONSTRUIDO, marca))).getDeletedCount();
+
+        Map<String, Long> resumen = new LinkedHashMap<>();
+        resumen.put("documentos", leidos);
+        resumen.put("dias", (long) porDia.size());
+        resumen.put("eliminados", eliminados);
+        return resumen;
+    }
+
+    private void contar(Map<String, Map<String, Long>> porDia, Document documento) {
+        LocalDate dia = diaDe(documento);
+        if (dia == null) {
+            return;
+        }
+        porDia.computeIfAbsent(dia.toString(), d -> new TreeMap<>())
+                .merge(claveTipo(documento.get(CAMPO_TIPO_DOCUMENTO)), 1L, Long::sum);
+    }
+
+    /**
+     * Día de creación del documento, hoy si no tiene fecha, o null si la fecha no es un Date
+     * (documentos previos a la validación de fechaCreacion): esos no se cuentan.
+     */
+    private LocalDate diaDe(Document documento) {
+        Object fecha = documento.get(DocumentoClinicoRepository.CAMPO_FECHA);
+        if (fecha == null) {
+            return LocalDate.now(zona);
+        }
+        return fecha instanceof Date date ? date.toInstant().atZone(zona).toLocalDate() : null;
+    }
+
+    private Date inicioDelDia(LocalDate dia) {
+        return Date.from(dia.atStartOfDay(zona).toInstant());
+    }
+
+    /**
+     * El tipo se usa como nombre de campo: sin puntos ni {@code $} inicial y de largo acotado.
+     */
+    private static String claveTipo(Object tipo) {
+        String clave = tipo == null ? "" : String.valueOf(tipo).trim().replace('.', '_');
+        if (clave.length() > LARGO_MAXIMO_TIPO) {
+            clave = clave.substring(0, LARGO_MAXIMO_TIPO);
+        }
+        if (clave.startsWith("$")) {
+            clave = "_" + clave.substring(1);
+        }
+        return clave.isEmpty() ? SIN_TIPO : clave;
+    }
+
+    private static LocalDate fecha(String valor) {
+        try {
+            return LocalDate.parse(valor.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha inválida (se espera yyyy-MM-dd): " + valor);
+        }
+    }
+}
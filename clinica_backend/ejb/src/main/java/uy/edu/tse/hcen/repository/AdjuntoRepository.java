@@ -0,0 +1,251 @@
+package uy.edu.tse.hcen.repository;
+
+import com.mongodb.MongoGridFSException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import uy.edu.tse.hcen.exceptions.DocumentoDemasiadoGrandeException;
+import uy.edu.tse.hcen.exceptions.EscrituraDocumentoException;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Adjuntos de los documentos clínicos (informes de imagenología, PDFs, estudios escaneados)
+ * guardados en GridFS, fuera del documento y de su límite de 16 MB.
+ *
+ * Cada tenant tiene su bucket ({@value #PREFIJO_BUCKET}&lt;tenantId&gt;). El contenido se parte en
+ * chunks de {@code HCEN_ADJUNTO_CHUNK_BYTES} a medida que se lee, así que ni la subida ni la
+ * descarga cargan el archivo en el heap. En la metadata se guarda el SHA-256 calculado durante la
+ * subida, para validar el contenido al descargarlo.
+ */
+@ApplicationScoped
+public class AdjuntoRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(AdjuntoRepository.class.getName());
+
+    public static final String PREFIJO_BUCKET = "adjuntos_";
+    public static final String META_DOCUMENTO = "documentoId";
+    public static final String META_TIPO = "tipoMime";
+    public static final String META_SHA256 = "sha256";
+    public static final String META_REFERENCIAS = "referencias";
+    private static final String INDICE_PACIENTE_SHA = "paciente_sha256";
+
+    private final long maxBytes = ConfigUtils.getLong("HCEN_ADJUNTO_MAX_BYTES", 512L * 1024 * 1024);
+    private final int chunkBytes = ConfigUtils.getInt("HCEN_ADJUNTO_CHUNK_BYTES", 255 * 1024);
+
+    @Inject // Inyecta la instancia producida por MongoDBProducer
+    private MongoDatabase database;
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    @Inject
+    private EstadisticasDeduplicacion estadisticas;
+
+    // Buckets cuyo índice por documento ya se verificó en esta instancia
+    private final Set<String> bucketsPreparados = ConcurrentHashMap.newKeySet();
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public AdjuntoRepository() {
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private GridFSBucket bucket() {
+        String nombre = PREFIJO_BUCKET + DocumentoClinicoRepository.tenantRequerido();
+        if (!bucketsPreparados.contains(nombre)) {
+            MongoCollection<Document> archivos = database.getCollection(nombre + ".files");
+            archivos.createIndex(Indexes.ascending("metadata." + META_DOCUMENTO));
+            archivos.createIndex(Indexes.ascending("metadata." + META_REFERENCIAS));
+            // Un mismo contenido se guarda una sola vez por paciente
+            archivos.createIndex(
+                    Indexes.ascending("metadata." + DocumentoClinicoRepository.CAMPO_PACIENTE, "metadata." + META_SHA256),
+                    new IndexOptions().name(INDICE_PACIENTE_SHA).unique(true)
+                            .partialFilterExpression(Filters.exists("metadata." + META_SHA256)));
+            bucketsPreparados.add(nombre);
+        }
+        return GridFSBuckets.create(database, nombre);
+    }
+
+    /**
+     * Guarda el contenido como adjunto del documento clínico y agrega la referencia en el arreglo
+     * {@code adjuntos} del documento. Si el paciente ya tenía un adjunto con el mismo SHA-256, la
+     * copia recién subida se descarta y la referencia apunta al existente.
+     *
+     * @return la referencia agregada, o null si el documento clínico no existe.
+     * @throws DocumentoDemasiadoGrandeException si el contenido supera {@code HCEN_ADJUNTO_MAX_BYTES};
+     *                                           lo ya escrito se descarta.
+     */
+    public Document guardar(Object documentoId, String nombre, String tipoMime, InputStream contenido) throws IOException {
+        Document documento = documentoClinicoRepository.buscarPorId(documentoId);
+        if (documento == null) {
+            return null;
+        }
+
+        GridFSBucket bucket = bucket();
+        Document metadata = new Document(META_DOCUMENTO, documentoId)
+                .append(DocumentoClinicoRepository.CAMPO_PACIENTE, documento.get(DocumentoClinicoRepository.CAMPO_PACIENTE))
+                .append(META_TIPO, tipoMime);
+        GridFSUploadOptions opciones = new GridFSUploadOptions().chunkSizeBytes(chunkBytes).metadata(metadata);
+
+        MessageDigest digest = sha256();
+        long total = 0;
+        GridFSUploadStream subida = bucket.openUploadStream(nombre, opciones);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int leidos;
+            while ((leidos = contenido.read(buffer)) != -1) {
+                total += leidos;
+                if (total > maxBytes) {
+                    throw new DocumentoDemasiadoGrandeException("El adjunto supera el tamaño máximo de " + maxBytes + " bytes");
+                }
+                digest.update(buffer, 0, leidos);
+                subida.write(buffer, 0, leidos);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Borra los chunks ya escritos
+            subida.abort();
+            throw e;
+        }
+        subida.close();
+
+        ObjectId id = subida.getObjectId();
+        String sha = HexFormat.of().formatHex(digest.digest());
+        MongoCollection<Document> archivos = database.getCollection(bucket.getBucketName() + ".files");
+        boolean duplicado = false;
+        try {
+            archivos.updateOne(Filters.eq("_id", id), Updates.set("metadata." + META_SHA256, sha));
+        } catch (MongoWriteException e) {
+            if (e.getError().getCode() != 11000) {
+                throw e;
+            }
+            // El índice único detectó el mismo contenido para el paciente
+            bucket.delete(id);
+            Document existente = archivos.findOneAndUpdate(
+                    Filters.and(
+                            Filters.eq("metadata." + DocumentoClinicoRepository.CAMPO_PACIENTE, metadata.get(DocumentoClinicoRepository.CAMPO_PACIENTE)),
+                            Filters.eq("metadata." + META_SHA256, sha)),
+                    Updates.addToSet("metadata." + META_REFERENCIAS, documentoId),
+                    new FindOneAndUpdateOptions().projection(Projections.include("_id")));
+            if (existente == null) {
+                throw new EscrituraDocumentoException("El adjunto duplicado ya no existe; reintentar");
+            }
+            id = existente.getObjectId("_id");
+            duplicado = true;
+        }
+        estadisticas.adjuntoRecibido(duplicado, total);
+
+        Document referencia = new Document("id", id)
+                .append("nombre", nombre)
+                .append(META_TIPO, tipoMime)
+                .append("tamano", total)
+                .append(META_SHA256, sha);
+        if (!documentoClinicoRepository.agregarAdjunto(documentoId, referencia)) {
+            // El documento se borró mientras se subía el archivo
+            if (!duplicado) {
+                bucket.delete(id);
+            }
+            return null;
+        }
+        return referencia;
+    }
+
+    /**
+     * Abre el adjunto para leerlo en streaming; quien llama debe cerrar el stream.
+     *
+     * @return null si no existe en el bucket del tenant.
+     */
+    public GridFSDownloadStream abrir(ObjectId id) {
+        try {
+            return bucket().openDownloadStream(id);
+        } catch (MongoGridFSException e) {
+            LOGGER.log(Level.FINE, "Adjunto no encontrado: {0}", id);
+            return null;
+        }
+    }
+
+    /**
+     * Adjuntos subidos para el documento o que el documento referencia por deduplicación.
+     */
+    public List<GridFSFile> listarPorDocumento(Object documentoId) {
+        return bucket().find(Filters.or(
+                        Filters.eq("metadata." + META_DOCUMENTO, documentoId),
+                        Filters.eq("metadata." + META_REFERENCIAS, documentoId)))
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Relee todo el adjunto desde Mongo y compara su SHA-256 con el registrado al subirlo.
+     *
+     * @return null si el adjunto no existe.
+     */
+    public Document verificar(ObjectId id) throws IOException {
+        GridFSDownloadStream lectura = abrir(id);
+        if (lectura == null) {
+            return null;
+        }
+        MessageDigest digest = sha256();
+        long total = 0;
+        try (lectura) {
+            byte[] buffer = new byte[64 * 1024];
+            int leidos;
+            while ((leidos = lectura.read(buffer)) != -1) {
+                digest.update(buffer, 0, leidos);
+                total += leidos;
+            }
+        }
+        GridFSFile archivo = lectura.getGridFSFile();
+        String esperado = sha256Registrado(archivo);
+        String calculado = HexFormat.of().formatHex(digest.digest());
+        return new Document("id", id)
+                .append("tamano", total)
+                .append("tamanoRegistrado", archivo.getLength())
+                .append("sha256Registrado", esperado)
+                .append("sha256Calculado", calculado)
+                .append("ok", calculado.equals(esperado) && total == archivo.getLength());
+    }
+
+    /**
+     * @return el SHA-256 (hex) guardado al subir el archivo, o null si no se registró.
+     */
+    public static String sha256Registrado(GridFSFile archivo) {
+        return archivo.getMetadata() == null ? null : archivo.getMetadata().getString(META_SHA256);
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
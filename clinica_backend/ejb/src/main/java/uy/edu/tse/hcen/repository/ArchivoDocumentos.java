@@ -0,0 +1,401 @@
+package uy.edu.tse.hcen.repository;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+import uy.edu.tse.hcen.utils.HashContenidoUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archivo frío de documentos clínicos: segmentos append-only en disco
+ * ({@code <HCEN_ARCHIVO_DIR>/<tenantId>/segmento-<nodo>-NNNNNN.dat}, por defecto bajo
+ * {@code <HCEN_DATA_DIR>/archivo}). Cada instancia escribe solo sus propios segmentos, así que con
+ * varias instancias el directorio debe ser un volumen compartido por todas: cualquiera tiene que
+ * poder leer lo que archivó otra.
+ *
+ * Cada registro es el BSON completo del documento comprimido con deflate, precedido por su
+ * longitud comprimida, su longitud original y un CRC32. Junto a cada segmento se escribe un
+ * índice de offsets ({@code .idx}, una línea {@code _id offset bytes} por registro) para poder
+ * verificar o reconstruir las referencias sin recorrer el segmento. En Mongo el documento queda
+ * reducido a un stub con los campos de {@link #CAMPOS_STUB} y la ubicación en {@value #CAMPO_ARCHIVO}.
+ *
+ * Las lecturas mapean el segmento en memoria ({@link MappedByteBuffer}) y copian solo el
+ * registro pedido: el sistema operativo mantiene en caché las páginas que se leen, sin ocupar
+ * heap ni la caché de Mongo. Se conservan mapeados a lo sumo {@code HCEN_ARCHIVO_MAX_MAPEOS}
+ * segmentos; los demás se sueltan y el GC los desmapea.
+ */
+@ApplicationScoped
+public class ArchivoDocumentos {
+
+    private static final Logger LOGGER = Logger.getLogger(ArchivoDocumentos.class.getName());
+
+    public static final String CAMPO_ARCHIVO = "archivo";
+
+    /**
+     * Campos que quedan en Mongo al archivar: los que usan los índices y la deduplicación, el tipo
+     * que cuentan los resúmenes diarios (así reconstruirlos no lee el archivo) y los que pueden
+     * cambiar después (contadores de recepción y adjuntos). Al leer, sus valores en el stub tienen
+     * prioridad sobre los del archivo.
+     */
+    // Sin Set.of: el campo de tipo es configurable y podría coincidir con otro
+    public static final Set<String> CAMPOS_STUB = Stream.of("_id", DocumentoClinicoRepository.CAMPO_PACIENTE,
+            DocumentoClinicoRepository.CAMPO_FECHA, ActividadDiaria.CAMPO_TIPO_DOCUMENTO, HashContenidoUtils.CAMPO_HASH,
+            HashContenidoUtils.CAMPO_RECEPCIONES, HashContenidoUtils.CAMPO_ULTIMA_RECEPCION,
+            DocumentoClinicoRepository.CAMPO_ADJUNTOS, CAMPO_ARCHIVO).collect(Collectors.toUnmodifiableSet());
+
+    private static final int CABECERA = 12;
+    private static final DocumentCodec CODEC = new DocumentCodec();
+
+    private final long maxSegmento = Math.min(Integer.MAX_VALUE,
+            ConfigUtils.getLong("HCEN_ARCHIVO_SEGMENTO_BYTES", 256L * 1024 * 1024));
+    private final int nivel = ConfigUtils.getInt("HCEN_ARCHIVO_NIVEL", Deflater.BEST_COMPRESSION);
+    private final Path directorioBase = Paths.get(ConfigUtils.getString("HCEN_ARCHIVO_DIR",
+            Paths.get(ConfigUtils.getDataDir(), "archivo").toString()));
+    private final String nodo = nombreNodo(ConfigUtils.getString("HCEN_ARCHIVO_NODO",
+            System.getProperty("jboss.node.name", "")));
+    private final int maxMapeos = Math.max(1, ConfigUtils.getInt("HCEN_ARCHIVO_MAX_MAPEOS", 64));
+
+    // Segmento abierto para escribir por tenant
+    private final Map<String, Escritor> escritores = new ConcurrentHashMap<>();
+    // Segmentos mapeados para leer, por ruta
+    private final Map<Path, Mapeo> mapeos = new ConcurrentHashMap<>();
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public ArchivoDocumentos() {
+    }
+
+    @PreDestroy
+    void destroy() {
+        for (Escritor escritor : escritores.values()) {
+            try {
+                escritor.cerrar();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "ArchivoDocumentos: error cerrando un segmento", e);
+            }
+        }
+        escritores.clear();
+        mapeos.clear();
+    }
+
+    /**
+     * Agrega el documento al segmento actual del tenant. El registro no es durable hasta
+     * {@link #sincronizar(String)}.
+     *
+     * @return la ubicación a guardar en el stub.
+     */
+    public Document escribir(String tenantId, RawBsonDocument documento) throws IOException {
+        Escritor escritor = escritores.computeIfAbsent(DocumentoClinicoRepository.validarTenant(tenantId), id -> {
+            try {
+                return new Escritor(directorioBase.resolve(id));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo abrir el archivo del tenant " + id, e);
+            }
+        });
+        ByteBuffer bson = documento.getByteBuffer().asNIO();
+        byte[] original = new byte[bson.remaining()];
+        bson.get(original);
+        return escritor.agregar(documento.get("_id").isObjectId()
+                ? documento.getObjectId("_id").getValue().toHexString()
+                : String.valueOf(documento.get("_id")), original, comprimir(original));
+    }
+
+    /**
+     * Fuerza a disco lo escrito en el segmento del tenant (registros e índice). Hay que llamarlo
+     * antes de quitar los documentos de Mongo.
+     */
+    public void sincronizar(String tenantId) throws IOException {
+        Escritor escritor = escritores.get(tenantId);
+        if (escritor != null) {
+            escritor.sincronizar();
+        }
+    }
+
+    /**
+     * Lee el documento archivado en la ubicación indicada.
+     *
+     * @throws IllegalStateException si el registro no existe o está dañado.
+     */
+    public RawBsonDocument leer(String tenantId, Document ubicacion) {
+        int segmento = ubicacion.getInteger("segmento");
+        long offset = ubicacion.get("offset", Number.class).longValue();
+        int bytes = ubicacion.getInteger("bytes");
+        String nodoSegmento = ubicacion.getString("nodo");
+        Path ruta = rutaSegmento(directorioBase.resolve(DocumentoClinicoRepository.validarTenant(tenantId)),
+                nodoSegmento == null ? null : nombreNodo(nodoSegmento), segmento);
+        MappedByteBuffer mapeo = mapeo(ruta, offset + bytes);
+        byte[] registro = new byte[bytes];
+        mapeo.get((int) offset, registro);
+
+        ByteBuffer cabecera = ByteBuffer.wrap(registro, 0, CABECERA);
+        int comprimidos = cabecera.getInt();
+        int originales = cabecera.getInt();
+        int crc = cabecera.getInt();
+        if (comprimidos != bytes - CABECERA) {
+            throw new IllegalStateException("Registro archivado inconsistente en " + ruta + " offset " + offset);
+        }
+        byte[] original = descomprimir(registro, CABECERA, comprimidos, originales);
+        if (crc(original) != crc) {
+            throw new IllegalStateException("CRC inválido en el registro archivado de " + ruta + " offset " + offset);
+        }
+        return new RawBsonDocument(original);
+    }
+
+    /**
+     * Si el documento es un stub, lo reemplaza por el documento archivado con los campos del
+     * stub superpuestos; si no, lo devuelve tal cual.
+     */
+    public Document hidratar(String tenantId, Document documento) {
+        if (documento == null || !(documento.get(CAMPO_ARCHIVO) instanceof Document ubicacion)) {
+            return documento;
+        }
+        RawBsonDocument archivado = leer(tenantId, ubicacion);
+        Document completo = CODEC.decode(new BsonBinaryReader(archivado.getByteBuffer().asNIO()), DecoderContext.builder().build());
+        for (Map.Entry<String, Object> campo : documento.entrySet()) {
+            if (!CAMPO_ARCHIVO.equals(campo.getKey())) {
+                completo.put(campo.getKey(), campo.getValue());
+            }
+        }
+        return completo;
+    }
+
+    /**
+     * Igual que {@link #hidratar(String, Document)} para BSON crudo. Los documentos que no son
+     * stubs no se decodifican.
+     */
+    public RawBsonDocument hidratar(String tenantId, RawBsonDocument documento) {
+        if (documento == null || !documento.containsKey(CAMPO_ARCHIVO)) {
+            return documento;
+        }
+        Document stub = CODEC.decode(new BsonBinaryReader(documento.getByteBuffer().asNIO()), DecoderContext.builder().build());
+        return new RawBsonDocument(hidratar(tenantId, stub), CODEC);
+    }
+
+    private MappedByteBuffer mapeo(Path ruta, long fin) {
+        Mapeo actual = mapeos.get(ruta);
+        if (actual != null && actual.buffer.capacity() >= fin) {
+            actual.usado = System.nanoTime();
+            return actual.buffer;
+        }
+        // El segmento en escritura crece: se vuelve a mapear con el tamaño actual
+        Mapeo nuevo = mapeos.compute(ruta, (r, previo) -> {
+            if (previo != null && previo.buffer.capacity() >= fin) {
+                return previo;
+            }
+            if (!Files.exists(r)) {
+                throw new IllegalStateException("El segmento " + r + " no existe en esta instancia;"
+                        + " con varias instancias HCEN_ARCHIVO_DIR debe ser un volumen compartido");
+            }
+            try (FileChannel canal = FileChannel.open(r, StandardOpenOption.READ)) {
+                long tamano = canal.size();
+                if (tamano < fin) {
+                    throw new IllegalStateException("El segmento " + r + " no contiene el registro pedido");
+                }
+                return new Mapeo(canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo mapear el segmento " + r, e);
+            }
+        });
+        nuevo.usado = System.nanoTime();
+        if (mapeos.size() > maxMapeos) {
+            soltarMenosUsados(ruta);
+        }
+        return nuevo.buffer;
+    }
+
+    /**
+     * Saca del caché los mapeos usados hace más tiempo hasta volver al máximo. No hay forma
+     * pública de desmapear un {@link MappedByteBuffer}: el GC lo hace cuando el buffer deja de
+     * estar referenciado, así que una lectura en curso nunca pierde el suyo.
+     */
+    private void soltarMenosUsados(Path enUso) {
+        while (mapeos.size() > maxMapeos) {
+            Map.Entry<Path, Mapeo> masViejo = null;
+            for (Map.Entry<Path, Mapeo> entrada : mapeos.entrySet()) {
+                if (!entrada.getKey().equals(enUso)
+                        && (masViejo == null || entrada.getValue().usado < masViejo.getValue().usado)) {
+                    masViejo = entrada;
+                }
+            }
+            if (masViejo == null) {
+                return;
+            }
+            mapeos.remove(masViejo.getKey(), masViejo.getValue());
+        }
+    }
+
+    private static final class Mapeo {
+        private final MappedByteBuffer buffer;
+        private volatile long usado;
+
+        Mapeo(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private byte[] comprimir(byte[] original) {
+        Deflater deflater = new Deflater(nivel);
+        try {
+            deflater.setInput(original);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, original.length / 2)];
+            int total = 0;
+            while (!deflater.finished()) {
+                if (total == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                total += deflater.deflate(buffer, total, buffer.length - total);
+            }
+            return Arrays.copyOf(buffer, total);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] descomprimir(byte[] datos, int inicio, int longitud, int originales) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(datos, inicio, longitud);
+            byte[] original = new byte[originales];
+            int total = 0;
+            while (total < originales && !inflater.finished()) {
+                int n = inflater.inflate(original, total, originales - total);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                total += n;
+            }
+            if (total != originales) {
+                throw new IllegalStateException("Registro archivado truncado");
+            }
+            return original;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Registro archivado dañado", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int crc(byte[] datos) {
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @param nodo instancia que escribió el segmento; null para los anteriores a los segmentos por instancia.
+     */
+    private static Path rutaSegmento(Path directorio, String nodo, int numero) {
+        return directorio.resolve(nombreSegmento(nodo, numero) + ".dat");
+    }
+
+    private static Path rutaIndice(Path directorio, String nodo, int numero) {
+        return directorio.resolve(nombreSegmento(nodo, numero) + ".idx");
+    }
+
+    private static String nombreSegmento(String nodo, int numero) {
+        return nodo == null ? String.format("segmento-%06d", numero) : String.format("segmento-%s-%06d", nodo, numero);
+    }
+
+    /**
+     * El nombre de la instancia va en los nombres de archivo: solo letras, dígitos, guion y guion bajo.
+     */
+    private static String nombreNodo(String nombre) {
+        String limpio = nombre == null ? "" : nombre.trim().replaceAll("[^A-Za-z0-9_-]", "_");
+        return limpio.isEmpty() ? "nodo" : limpio;
+    }
+
+    /**
+     * Segmento abierto para agregar registros de un tenant. Cuando supera el tamaño máximo se
+     * cierra y se sigue en uno nuevo; los segmentos cerrados no se vuelven a modificar.
+     */
+    private final class Escritor {
+        private final Path directorio;
+        private int numero;
+        private FileChannel datos;
+        private FileChannel indice;
+
+        Escritor(Path directorio) throws IOException {
+            this.directorio = directorio;
+            Files.createDirectories(directorio);
+            String prefijo = "segmento-" + nodo + "-";
+            int ultimo = 0;
+            try (Stream<Path> archivos = Files.list(directorio)) {
+                for (Path archivo : (Iterable<Path>) archivos::iterator) {
+                    String nombre = archivo.getFileName().toString();
+                    if (nombre.startsWith(prefijo) && nombre.endsWith(".dat")) {
+                        ultimo = Math.max(ultimo, Integer.parseInt(nombre.substring(prefijo.length(), nombre.length() - 4)));
+                    }
+                }
+            }
+            abrir(Math.max(1, ultimo));
+        }
+
+        private void abrir(int numero) throws IOException {
+            this.numero = numero;
+            this.datos = FileChannel.open(rutaSegmento(directorio, nodo, numero),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.indice = FileChannel.open(rutaIndice(directorio, nodo, numero),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        synchronized Document agregar(String id, byte[] original, byte[] comprimido) throws IOException {
+            int bytes = CABECERA + comprimido.length;
+            if (datos.size() > 0 && datos.size() + bytes > maxSegmento) {
+                sincronizar();
+                cerrar();
+                abrir(numero + 1);
+            }
+            long offset = datos.size();
+            ByteBuffer registro = ByteBuffer.allocate(bytes);
+            registro.putInt(comprimido.length).putInt(original.length).putInt(crc(original)).put(comprimido).flip();
+            while (registro.hasRemaining()) {
+                datos.write(registro);
+            }
+            ByteBuffer linea = ByteBuffer.wrap((id + " " + offset + " " + bytes + "\n").getBytes(StandardCharsets.UTF_8));
+            while (linea.hasRemaining()) {
+                indice.write(linea);
+            }
+            return new Document("nodo", nodo).append("segmento", numero).append("offset", offset).append("bytes", bytes);
+        }
+
+        synchronized void sincronizar() throws IOException {
+            datos.force(false);
+            indice.force(false);
+        }
+
+        synchronized void cerrar() throws IOException {
+            try {
+                datos.close();
+            } finally {
+                indice.close();
+            }
+        }
+    }
+}
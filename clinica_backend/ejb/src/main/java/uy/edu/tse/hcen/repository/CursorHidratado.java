@@ -0,0 +1,59 @@
+package uy.edu.tse.hcen.repository;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.MongoCursor;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Cursor de Mongo que reemplaza los stubs de documentos archivados por el documento completo a
+ * medida que se recorren (ver {@link ArchivoDocumentos}). Los documentos que no son stubs pasan
+ * sin cambios.
+ */
+class CursorHidratado<T> implements MongoCursor<T> {
+
+    private final MongoCursor<T> cursor;
+    private final UnaryOperator<T> hidratar;
+
+    CursorHidratado(MongoCursor<T> cursor, UnaryOperator<T> hidratar) {
+        this.cursor = cursor;
+        this.hidratar = hidratar;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor.hasNext();
+    }
+
+    @Override
+    public T next() {
+        return hidratar.apply(cursor.next());
+    }
+
+    @Override
+    public int available() {
+        return cursor.available();
+    }
+
+    @Override
+    public T tryNext() {
+        T siguiente = cursor.tryNext();
+        return siguiente == null ? null : hidratar.apply(siguiente);
+    }
+
+    @Override
+    public ServerCursor getServerCursor() {
+        return cursor.getServerCursor();
+    }
+
+    @Override
+    public ServerAddress getServerAddress() {
+        return cursor.getServerAddress();
+    }
+}
@@ -1,24 +1,493 @@
 package uy.edu.tse.hcen.repository;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.enterprise.context.ApplicationScoped;
+import uy.edu.tse.hcen.dto.DocumentosGuardados;
+import uy.edu.tse.hcen.dto.PaginaDocumentos;
+import uy.edu.tse.hcen.dto.ResultadoInsercion;
+import uy.edu.tse.hcen.exceptions.EscrituraDocumentoException;
+import uy.edu.tse.hcen.multitenancy.TenantContext;
+import uy.edu.tse.hcen.perfilado.Perfilado;
+import uy.edu.tse.hcen.utils.CompresionUtils;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+import uy.edu.tse.hcen.utils.HashContenidoUtils;
+import uy.edu.tse.hcen.utils.ReactivoUtils;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @ApplicationScoped
+@Perfilado(almacen = "mongo")
 public class DocumentoClinicoRepository {
 
+    private static final Logger LOGGER = Logger.getLogger(DocumentoClinicoRepository.class.getName());
+
+    public static final String CAMPO_PACIENTE = "pacienteDoc";
+    public static final String CAMPO_FECHA = "fechaCreacion";
+    public static final String CAMPO_ADJUNTOS = "adjuntos";
+
+    private static final String INDICE_PACIENTE_FECHA = "pacienteDoc_fechaCreacion";
+    private static final String INDICE_PACIENTE_HASH = "pacienteDoc_hashContenido";
+
+    // Índices de cada colección de tenant: lecturas por paciente y deduplicación
+    private static final List<IndexModel> INDICES = List.of(
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending(CAMPO_PACIENTE), Indexes.descending(CAMPO_FECHA),
+                    Indexes.descending("_id")), new IndexOptions().name(INDICE_PACIENTE_FECHA)),
+            // Parcial: los documentos anteriores a la deduplicación no tienen hash y no participan
+            new IndexModel(Indexes.ascending(CAMPO_PACIENTE, HashContenidoUtils.CAMPO_HASH),
+                    new IndexOptions().name(INDICE_PACIENTE_HASH).unique(true)
+                            .partialFilterExpression(Filters.exists(HashContenidoUtils.CAMPO_HASH))));
+
+    // Colección global previa a la partición por tenant; solo la lee la migración
+    private static final String COLECCION_LEGADA = "documentos_clinicos";
+    public static final String PREFIJO_COLECCION = "documentos_clinicos_";
+    private static final Pattern TENANT_VALIDO = Pattern.compile("^[A-Za-z0-9_]{1,64}$");
+    private static final int LOTE_MIGRACION = 1000;
+    private static final DocumentCodec CODEC_DOCUMENTO = new DocumentCodec();
+    public static final int LIMITE_MAXIMO = 100;
+
     @Inject // Inyecta la instancia producida por MongoDBProducer
     private MongoDatabase database;
 
+    // Cliente reactivo de MongoReactivoProducer para las variantes *Async; se crea con el primer uso
+    @Inject
+    private com.mongodb.reactivestreams.client.MongoDatabase databaseReactiva;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    // Trabajo posterior a una escritura asíncrona (observadores), fuera de los hilos de E/S del driver
+    @Resource
+    private ManagedExecutorService ejecutor;
+
+    @Inject
+    private EstadisticasDeduplicacion estadisticas;
+
+    @Inject
+    private Event<DocumentosGuardados> documentosGuardados;
+
+    @Inject
+    private FiltroPacientes filtroPacientes;
+
+    @Inject
+    private ArchivoDocumentos archivoDocumentos;
+
+    @Inject
+    private ActividadDiaria actividadDiaria;
+
+    // Último documento por paciente: lecturas concurrentes comparten la consulta, con caché corta opcional
+    private final LecturaCompartida<String, RawBsonDocument> ultimoPorPaciente = new LecturaCompartida<>(
+            ConfigUtils.getLong("HCEN_LECTURA_CACHE_MS", 0), ConfigUtils.getInt("HCEN_LECTURA_CACHE_MAX", 10000));
+
+    // Modo write-behind opcional para inserciones individuales; null si está deshabilitado
+    private EscrituraAgrupada escrituraAgrupada;
+
+    // Colecciones de tenant cuyos índices ya se verificaron en esta instancia
+    private final Set<String> coleccionesPreparadas = ConcurrentHashMap.newKeySet();
+
     // Public no-arg constructor required so CDI can create proxies for application-scoped beans
     public DocumentoClinicoRepository() {
     }
 
+    @PostConstruct
+    void init() {
+        if (ConfigUtils.getBoolean("HCEN_MONGO_WRITE_BEHIND", false)) {
+            int capacidad = ConfigUtils.getInt("HCEN_MONGO_WRITE_BEHIND_CAPACIDAD", 10000);
+            int maxLote = ConfigUtils.getInt("HCEN_MONGO_WRITE_BEHIND_LOTE", 500);
+            long maxEsperaMs = ConfigUtils.getLong("HCEN_MONGO_WRITE_BEHIND_ESPERA_MS", 2);
+            escrituraAgrupada = new EscrituraAgrupada(capacidad, maxLote, maxEsperaMs, threadFactory,
+                    this::insertarNoOrdenado);
+            LOGGER.log(Level.INFO, "DocumentoClinicoRepository: write-behind activo (lote={0}, espera={1} ms, capacidad={2})",
+                    new Object[]{maxLote, maxEsperaMs, capacidad});
+        }
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (escrituraAgrupada != null) {
+            escrituraAgrupada.cerrar();
+        }
+    }
+
+    /**
+     * Colección de documentos clínicos del tenant del contexto actual. Cada clínica tiene su
+     * propia colección ({@value #PREFIJO_COLECCION}&lt;tenantId&gt;), igual que en PostgreSQL cada una
+     * tiene su schema: índices y recorridos escalan con los datos de la clínica y no con los del nodo.
+     *
+     * @throws IllegalStateException si no hay tenant en el contexto; ninguna consulta puede
+     *                               ejecutarse sin él.
+     */
     public MongoCollection<Document> getCollection() {
-        // 'documentos_clinicos' es el nombre de la colección
-        return database.getCollection("documentos_clinicos");
+        return coleccionDeTenant(tenantRequerido());
+    }
+
+    /**
+     * Tenant del contexto actual, validado para usarse en nombres de colección.
+     *
+     * @throws IllegalStateException si no hay tenant en el contexto.
+     */
+    public static String tenantRequerido() {
+        String tenantId = TenantContext.getCurrentTenant();
+        if (tenantId == null || tenantId.isBlank()) {
+            throw new IllegalStateException("Acceso a documentos clínicos sin tenant en el contexto");
+        }
+        return validarTenant(tenantId);
+    }
+
+    /**
+     * Valida que el identificador de tenant se pueda usar en nombres de colección y de directorio.
+     *
+     * @throws IllegalArgumentException si no es válido.
+     */
+    public static String validarTenant(String tenantId) {
+        if (tenantId == null || !TENANT_VALIDO.matcher(tenantId).matches()) {
+            throw new IllegalArgumentException("Identificador de tenant inválido: " + tenantId);
+        }
+        return tenantId;
+    }
+
+    /**
+     * Colección de un tenant explícito (tareas administrativas sin contexto de solicitud).
+     * La primera vez que se usa en esta instancia se crean sus índices.
+     */
+    public MongoCollection<Document> coleccionDeTenant(String tenantId) {
+        validarTenant(tenantId);
+        String nombre = PREFIJO_COLECCION + tenantId;
+        MongoCollection<Document> coleccion = database.getCollection(nombre);
+        if (!coleccionesPreparadas.contains(nombre)) {
+            asegurarIndices(coleccion);
+            coleccionesPreparadas.add(nombre);
+        }
+        return coleccion;
+    }
+
+    /**
+     * Colección del tenant en el cliente reactivo, sin llamadas al cliente sincrónico. Los índices
+     * de los tenants existentes se crean al desplegar (ver MongoIndicesStartup); las escrituras
+     * pasan antes por {@link #prepararReactiva(String)} para los tenants nuevos.
+     */
+    private <T> com.mongodb.reactivestreams.client.MongoCollection<T> coleccionReactiva(String tenantId, Class<T> clase) {
+        return databaseReactiva.getCollection(PREFIJO_COLECCION + validarTenant(tenantId), clase);
+    }
+
+    /**
+     * Crea con el cliente reactivo los índices de una colección que esta instancia todavía no
+     * verificó, sin bloquear: la escritura se encadena al futuro, porque el índice único de hash
+     * tiene que existir antes del primer documento.
+     */
+    private CompletableFuture<Void> prepararReactiva(String tenantId) {
+        String nombre = PREFIJO_COLECCION + validarTenant(tenantId);
+        if (coleccionesPreparadas.contains(nombre)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return ReactivoUtils.primero(databaseReactiva.getCollection(nombre).createIndexes(INDICES))
+                .thenRun(() -> coleccionesPreparadas.add(nombre));
+    }
+
+    /**
+     * Tenants que ya tienen colección de documentos clínicos.
+     */
+    public List<String> listarTenantsConDocumentos() {
+        List<String> tenants = new ArrayList<>();
+        for (String nombre : database.listCollectionNames()) {
+            if (nombre.startsWith(PREFIJO_COLECCION)) {
+                tenants.add(nombre.substring(PREFIJO_COLECCION.length()));
+            }
+        }
+        return tenants;
+    }
+
+    /**
+     * Verifica al desplegar los índices de todas las colecciones de tenant existentes.
+     */
+    public void asegurarIndices() {
+        for (String tenantId : listarTenantsConDocumentos()) {
+            if (TENANT_VALIDO.matcher(tenantId).matches()) {
+                coleccionDeTenant(tenantId);
+            }
+        }
+    }
+
+    /**
+     * Crea los índices que usan las lecturas por paciente y la deduplicación. Es idempotente:
+     * createIndex no hace nada si el índice ya existe.
+     */
+    private void asegurarIndices(MongoCollection<Document> coleccion) {
+        coleccion.createIndexes(INDICES);
+    }
+
+    /**
+     * Migración única para los documentos previos a la introducción de {@code fechaCreacion}: la
+     * reciben a partir del timestamp de su ObjectId. Recorre la colección completa (ningún índice
+     * cubre la ausencia del campo), así que no corre al desplegar sino a pedido; se puede repetir.
+     *
+     * @return cantidad de documentos actualizados.
+     */
+    public Map<String, Long> completarFechaCreacion(String tenantId) {
+        MongoCollection<Document> coleccion = coleccionDeTenant(tenantId);
+        UpdateResult result = coleccion.updateMany(
+                Filters.and(Filters.exists(CAMPO_FECHA, false), Filters.type("_id", "objectId")),
+                List.of(new Document("$set", new Document(CAMPO_FECHA, new Document("$toDate", "$_id")))));
+        if (result.getModifiedCount() > 0) {
+            LOGGER.log(Level.INFO, "DocumentoClinicoRepository: {0} documentos de {1} recibieron fechaCreacion",
+                    new Object[]{result.getModifiedCount(), coleccion.getNamespace().getCollectionName()});
+        }
+        Map<String, Long> resumen = new LinkedHashMap<>();
+        resumen.put("actualizados", result.getModifiedCount());
+        return resumen;
+    }
+
+    /**
+     * Mueve documentos de la colección global previa a la partición ({@value #COLECCION_LEGADA})
+     * a la colección del tenant. Se migran los documentos con {@code tenantId} igual al destino
+     * y, si {@code incluirSinTenant}, también los que no tienen ese campo.
+     *
+     * Trabaja por lotes de _id: inserta sin orden en el destino (un _id ya presente cuenta como
+     * migrado, así que se puede reintentar) y recién entonces borra el lote del origen. Los
+     * documentos copiados se notifican como cualquier inserción, así que entran al índice de texto
+     * y al filtro de pacientes; los ya presentes se vuelven a avisar a esos observadores.
+     *
+     * @return cantidades de documentos migrados y fallidos.
+     */
+    public Map<String, Long> migrarDesdeColeccionGlobal(String tenantId, boolean incluirSinTenant) {
+        MongoCollection<Document> origen = database.getCollection(COLECCION_LEGADA);
+        MongoCollection<Document> destino = coleccionDeTenant(tenantId);
+
+        Bson delTenant = incluirSinTenant
+                ? Filters.or(Filters.eq("tenantId", tenantId), Filters.exists("tenantId", false))
+                : Filters.eq("tenantId", tenantId);
+
+        long migrados = 0;
+        long fallidos = 0;
+        Object ultimoId = null;
+        while (true) {
+            Bson filtro = ultimoId == null ? delTenant : Filters.and(delTenant, Filters.gt("_id", ultimoId));
+            List<Document> lote = origen.find(filtro).sort(Sorts.ascending("_id")).limit(LOTE_MIGRACION)
+                    .into(new ArrayList<>(LOTE_MIGRACION));
+            if (lote.isEmpty()) {
+                break;
+            }
+            ultimoId = lote.get(lote.size() - 1).get("_id");
+
+            for (Document documento : lote) {
+                documento.remove("tenantId");
+                prepararDocumento(documento);
+            }
+            List<ResultadoInsercion> resultados = insertarNoOrdenado(destino, lote);
+
+            List<Object> aBorrar = new ArrayList<>(lote.size());
+            List<Document> reintentados = new ArrayList<>();
+            for (int i = 0; i < lote.size(); i++) {
+                ResultadoInsercion r = resultados.get(i);
+                if (r.isExitoso()) {
+                    aBorrar.add(lote.get(i).get("_id"));
+                } else if (esClaveDuplicada(r.getError())) {
+                    aBorrar.add(lote.get(i).get("_id"));
+                    reintentados.add(lote.get(i));
+                } else {
+                    fallidos++;
+                    LOGGER.log(Level.WARNING, "Migración: no se pudo copiar el documento {0} -> {1}",
+                            new Object[]{lote.get(i).get("_id"), r.getError()});
+                }
+            }
+            if (!reintentados.isEmpty()) {
+                // Copiados por un intento anterior que pudo cortarse antes de que se indexaran: se
+                // vuelve a avisar a los observadores (reindexar es idempotente). La actividad diaria
+                // no se toca porque ya los contó.
+                avisarObservadores(new DocumentosGuardados(tenantId, reintentados));
+            }
+            if (!aBorrar.isEmpty()) {
+                origen.deleteMany(Filters.in("_id", aBorrar));
+                migrados += aBorrar.size();
+            }
+        }
+
+        LOGGER.log(Level.INFO, "Migración a {0}: {1} documentos migrados, {2} fallidos",
+                new Object[]{destino.getNamespace().getCollectionName(), migrados, fallidos});
+        Map<String, Long> resumen = new LinkedHashMap<>();
+        resumen.put("migrados", migrados);
+        resumen.put("fallidos", fallidos);
+        return resumen;
+    }
+
+    /**
+     * Comprime el contenido de los documentos existentes del tenant que todavía lo tienen en texto
+     * plano y superan el umbral. Recorre la colección por lotes de _id, leyendo solo _id y contenido,
+     * y aplica los cambios con un bulkWrite no ordenado por lote. Se puede interrumpir y repetir.
+     *
+     * @return cantidades de documentos revisados y comprimidos, y bytes de contenido antes y después.
+     */
+    public Map<String, Long> comprimirExistentes(String tenantId) {
+        MongoCollection<Document> coleccion = coleccionDeTenant(tenantId);
+        Bson pendientes = Filters.and(
+                Filters.type(CompresionUtils.CAMPO_CONTENIDO, BsonType.STRING),
+                Filters.exists(CompresionUtils.CAMPO_CODEC, false));
+
+        long revisados = 0;
+        long comprimidos = 0;
+        long bytesAntes = 0;
+        long bytesDespues = 0;
+        Object ultimoId = null;
+        while (true) {
+            Bson filtro = ultimoId == null ? pendientes : Filters.and(pendientes, Filters.gt("_id", ultimoId));
+            List<Document> lote = coleccion.find(filtro)
+                    .projection(Projections.include(CompresionUtils.CAMPO_CONTENIDO))
+                    .sort(Sorts.ascending("_id"))
+                    .limit(LOTE_MIGRACION)
+                    .into(new ArrayList<>(LOTE_MIGRACION));
+            if (lote.isEmpty()) {
+                break;
+            }
+            ultimoId = lote.get(lote.size() - 1).get("_id");
+            revisados += lote.size();
+
+            List<UpdateOneModel<Document>> cambios = new ArrayList<>();
+            for (Document documento : lote) {
+                CompresionUtils.Comprimido comprimido = CompresionUtils.comprimir(documento.getString(CompresionUtils.CAMPO_CONTENIDO));
+                if (comprimido == null) {
+                    continue;
+                }
+                bytesAntes += comprimido.getBytesOriginales();
+                bytesDespues += comprimido.getDatos().length;
+                // Solo si nadie lo comprimió mientras tanto
+                cambios.add(new UpdateOneModel<>(
+                        Filters.and(Filters.eq("_id", documento.get("_id")), Filters.exists(CompresionUtils.CAMPO_CODEC, false)),
+                        Updates.combine(
+                                Updates.set(CompresionUtils.CAMPO_CONTENIDO, new Binary(comprimido.getDatos())),
+                                Updates.set(CompresionUtils.CAMPO_CODEC, comprimido.getMetadata()))));
+            }
+            if (!cambios.isEmpty()) {
+                comprimidos += coleccion.bulkWrite(cambios, new BulkWriteOptions().ordered(false)).getModifiedCount();
+            }
+        }
+
+        LOGGER.log(Level.INFO, "Recompresión de {0}: {1} revisados, {2} comprimidos, {3} -> {4} bytes",
+                new Object[]{coleccion.getNamespace().getCollectionName(), revisados, comprimidos, bytesAntes, bytesDespues});
+        Map<String, Long> resumen = new LinkedHashMap<>();
+        resumen.put("revisados", revisados);
+        resumen.put("comprimidos", comprimidos);
+        resumen.put("bytesAntes", bytesAntes);
+        resumen.put("bytesDespues", bytesDespues);
+        return resumen;
+    }
+
+    /**
+     * Pasa al archivo frío (ver {@link ArchivoDocumentos}) los documentos del tenant creados antes
+     * de {@code limite}. Por lotes de _id: escribe los documentos completos en el segmento, lo
+     * fuerza a disco y recién entonces los reduce a stubs en Mongo. Solo se quitan campos que no
+     * cambian después de insertar, así que una escritura concurrente (adjunto, recepción) no se
+     * pierde. Si se interrumpe entre el archivo y Mongo quedan registros sin referenciar en el
+     * segmento, que no afectan las lecturas; se puede volver a ejecutar.
+     *
+     * @return cantidades de documentos revisados y archivados y bytes BSON sacados de Mongo.
+     */
+    public Map<String, Long> archivarAnteriores(String tenantId, Date limite) throws IOException {
+        MongoCollection<Document> coleccion = coleccionDeTenant(tenantId);
+        Bson pendientes = Filters.and(
+                Filters.lt(CAMPO_FECHA, limite),
+                Filters.exists(ArchivoDocumentos.CAMPO_ARCHIVO, false));
+
+        long revisados = 0;
+        long archivados = 0;
+        long bytes = 0;
+        BsonValue ultimoId = null;
+        while (true) {
+            Bson filtro = ultimoId == null ? pendientes : Filters.and(pendientes, Filters.gt("_id", ultimoId));
+            List<RawBsonDocument> lote = coleccion.withDocumentClass(RawBsonDocument.class).find(filtro)
+                    .sort(Sorts.ascending("_id"))
+                    .limit(LOTE_MIGRACION)
+                    .into(new ArrayList<>(LOTE_MIGRACION));
+            if (lote.isEmpty()) {
+                break;
+            }
+            ultimoId = lote.get(lote.size() - 1).get("_id");
+            revisados += lote.size();
+
+            List<UpdateOneModel<Document>> cambios = new ArrayList<>(lote.size());
+            for (RawBsonDocument documento : lote) {
+                Document ubicacion = archivoDocumentos.escribir(tenantId, documento);
+                List<Bson> actualizacion = new ArrayList<>();
+                for (String campo : documento.keySet()) {
+                    if (!ArchivoDocumentos.CAMPOS_STUB.contains(campo)) {
+                        actualizacion.add(Updates.unset(campo));
+                    }
+                }
+                actualizacion.add(Updates.unset(CompresionUtils.CAMPO_CODEC));
+                actualizacion.add(Updates.set(ArchivoDocumentos.CAMPO_ARCHIVO, ubicacion));
+                cambios.add(new UpdateOneModel<>(
+                        Filters.and(Filters.eq("_id", documento.get("_id")), Filters.exists(ArchivoDocumentos.CAMPO_ARCHIVO, false)),
+                        Updates.combine(actualizacion)));
+                bytes += documento.getByteBuffer().remaining();
+            }
+            // Durable en disco antes de quitar nada de Mongo
+            archivoDocumentos.sincronizar(tenantId);
+            archivados += coleccion.bulkWrite(cambios, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        }
+
+        LOGGER.log(Level.INFO, "Archivo de {0}: {1} revisados, {2} archivados, {3} bytes fuera de Mongo",
+                new Object[]{coleccion.getNamespace().getCollectionName(), revisados, archivados, bytes});
+        Map<String, Long> resumen = new LinkedHashMap<>();
+        resumen.put("revisados", revisados);
+        resumen.put("archivados", archivados);
+        resumen.put("bytes", bytes);
+        return resumen;
+    }
+
+    private static boolean esClaveDuplicada(String error) {
+        return error != null && error.contains("E11000");
     }
 
     public Document crearDocumentoClinico(String pacienteDoc, String contenido) {
@@ -26,18 +495,675 @@ public class DocumentoClinicoRepository {
         documento.append("pacienteDoc", pacienteDoc);
         documento.append("contenido", contenido);
         guardarDocumento(documento);
-        //crear metadata y almacenarla 
+        //crear metadata y almacenarla
 
         return documento;
 
     }
 
+    /**
+     * Inserta el documento y vuelve cuando Mongo lo confirmó. Con write-behind activo la
+     * inserción se agrupa con las de otros hilos, pero la espera por la confirmación se mantiene.
+     * Si el paciente ya tenía un documento con el mismo contenido no se crea otra copia: el
+     * _id del documento pasa a ser el del existente.
+     */
     public void guardarDocumento(Document documento) {
-        getCollection().insertOne(documento);
+        if (escrituraAgrupada == null) {
+            prepararDocumento(documento);
+            documento.put("_id", insertarUno(getCollection(), documento));
+            return;
+        }
+        documento.put("_id", esperar(guardarDocumentoAsync(documento)));
+    }
+
+    private static <T> T esperar(CompletableFuture<T> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new EscrituraDocumentoException(e.getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Variante no bloqueante de {@link #guardarDocumento}: el futuro se completa con el _id
+     * (el del documento existente si era un duplicado) cuando el lote que contiene al documento
+     * fue confirmado por Mongo.
+     */
+    public CompletableFuture<Object> guardarDocumentoAsync(Document documento) {
+        prepararDocumento(documento);
+        if (escrituraAgrupada == null) {
+            try {
+                return CompletableFuture.completedFuture(insertarUno(getCollection(), documento));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return escrituraAgrupada.encolar(getCollection(), documento).thenApply(ResultadoInsercion::getId);
+    }
+
+    /**
+     * Inserta un documento ya serializado en BSON (ver IngestaDocumentoService) sin decodificarlo.
+     * Debe traer _id, fechaCreacion y hashContenido. Con write-behind activo el documento se
+     * decodifica y se agrupa con las demás inserciones, igual que {@link #guardarDocumento}: el
+     * buffer escribe lotes de {@link Document}.
+     */
+    public ResultadoInsercion guardarDocumentoCrudo(RawBsonDocument documento) {
+        if (!documento.containsKey("_id") || !documento.containsKey(CAMPO_FECHA)
+                || !documento.containsKey(HashContenidoUtils.CAMPO_HASH)) {
+            throw new IllegalArgumentException("El documento debe incluir _id, " + CAMPO_FECHA + " y " + HashContenidoUtils.CAMPO_HASH);
+        }
+        if (escrituraAgrupada != null) {
+            return esperar(escrituraAgrupada.encolar(getCollection(), decodificar(documento)));
+        }
+        MongoCollection<Document> coleccion = getCollection();
+        String tenantId = tenantDe(coleccion);
+        try {
+            coleccion.withDocumentClass(RawBsonDocument.class).insertOne(documento);
+        } catch (MongoWriteException e) {
+            if (!esDuplicadoDeContenido(e.getError().getCode(), e.getError().getMessage())) {
+                throw e;
+            }
+            estadisticas.documentoRecibido(true);
+            return resolverDuplicado(coleccion, documento.get(CAMPO_PACIENTE),
+                    documento.getString(HashContenidoUtils.CAMPO_HASH).getValue());
+        }
+        estadisticas.documentoRecibido(false);
+        notificarGuardados(tenantId, List.of(resumen(documento)),
+                new DocumentosGuardados(tenantId, () -> List.of(decodificar(documento))));
+        return ResultadoInsercion.exito(documento.get("_id"));
+    }
+
+    /**
+     * Variante no bloqueante de {@link #guardarDocumentoCrudo(RawBsonDocument)} sobre el cliente
+     * reactivo: el futuro se completa cuando Mongo confirmó la inserción (o resolvió el duplicado).
+     * Con write-behind activo se encola como la variante sincrónica.
+     */
+    public CompletableFuture<ResultadoInsercion> guardarDocumentoCrudoAsync(RawBsonDocument documento) {
+        if (!documento.containsKey("_id") || !documento.containsKey(CAMPO_FECHA)
+                || !documento.containsKey(HashContenidoUtils.CAMPO_HASH)) {
+            throw new IllegalArgumentException("El documento debe incluir _id, " + CAMPO_FECHA + " y " + HashContenidoUtils.CAMPO_HASH);
+        }
+        if (escrituraAgrupada != null) {
+            return escrituraAgrupada.encolar(getCollection(), decodificar(documento));
+        }
+        String tenantId = tenantRequerido();
+        CompletableFuture<ResultadoInsercion> resultado = new CompletableFuture<>();
+        prepararReactiva(tenantId)
+                .thenCompose(preparada -> ReactivoUtils.primero(coleccionReactiva(tenantId, RawBsonDocument.class).insertOne(documento)))
+                .whenComplete((insertado, falla) -> {
+                    Throwable error = falla instanceof CompletionException ? falla.getCause() : falla;
+                    if (error == null) {
+                        estadisticas.documentoRecibido(false);
+                        // Se responde después de notificar, igual que la variante sincrónica
+                        notificarGuardadosAsync(tenantId, List.of(resumen(documento)),
+                                new DocumentosGuardados(tenantId, () -> List.of(decodificar(documento))))
+                                .thenRun(() -> resultado.complete(ResultadoInsercion.exito(documento.get("_id"))));
+                    } else if (error instanceof MongoWriteException e
+                            && esDuplicadoDeContenido(e.getError().getCode(), e.getError().getMessage())) {
+                        estadisticas.documentoRecibido(true);
+                        ReactivoUtils.primero(coleccionReactiva(tenantId, Document.class).findOneAndUpdate(
+                                        filtroDuplicado(documento.get(CAMPO_PACIENTE), documento.getString(HashContenidoUtils.CAMPO_HASH).getValue()),
+                                        registroRecepcion(), new FindOneAndUpdateOptions().projection(Projections.include("_id"))))
+                                .whenComplete((existente, errorDuplicado) -> {
+                                    if (errorDuplicado != null) {
+                                        resultado.completeExceptionally(errorDuplicado);
+                                    } else {
+                                        resultado.complete(resultadoDuplicado(existente));
+                                    }
+                                });
+                    } else {
+                        resultado.completeExceptionally(error);
+                    }
+                });
+        return resultado;
+    }
+
+    /**
+     * Inserta un lote con un único bulkWrite no ordenado: un documento que falla no impide
+     * la inserción del resto. Devuelve un resultado por documento, en el mismo orden.
+     */
+    public List<ResultadoInsercion> insertarLote(List<Document> documentos) {
+        for (Document documento : documentos) {
+            prepararDocumento(documento);
+        }
+        return insertarNoOrdenado(getCollection(), documentos);
+    }
+
+    private Object insertarUno(MongoCollection<Document> coleccion, Document documento) {
+        ResultadoInsercion resultado = insertarNoOrdenado(coleccion, List.of(documento)).get(0);
+        if (!resultado.isExitoso()) {
+            throw new EscrituraDocumentoException(resultado.getError());
+        }
+        return resultado.getId();
+    }
+
+    /**
+     * Los documentos cuyo contenido ya existía para el paciente (violan el índice único de hash)
+     * no cuentan como error: se resuelven al _id del documento existente.
+     */
+    private List<ResultadoInsercion> insertarNoOrdenado(MongoCollection<Document> coleccion, List<Document> documentos) {
+        if (documentos.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String tenantId = tenantDe(coleccion);
+        List<ResultadoInsercion> resultados = new ArrayList<>(documentos.size());
+        List<InsertOneModel<Document>> modelos = new ArrayList<>(documentos.size());
+        for (Document documento : documentos) {
+            modelos.add(new InsertOneModel<>(documento));
+        }
+
+        String[] errores = new String[documentos.size()];
+        boolean[] duplicados = new boolean[documentos.size()];
+        try {
+            coleccion.bulkWrite(modelos, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (esDuplicadoDeContenido(error.getCode(), error.getMessage())) {
+                    duplicados[error.getIndex()] = true;
+                } else {
+                    errores[error.getIndex()] = error.getMessage();
+                }
+            }
+            if (e.getWriteConcernError() != null) {
+                String mensaje = e.getWriteConcernError().getMessage();
+                for (int i = 0; i < errores.length; i++) {
+                    if (errores[i] == null) {
+                        errores[i] = mensaje;
+                    }
+                }
+            }
+        }
+
+        List<Document> nuevos = new ArrayList<>(documentos.size());
+        for (int i = 0; i < documentos.size(); i++) {
+            Document documento = documentos.get(i);
+            if (errores[i] != null) {
+                resultados.add(ResultadoInsercion.error(errores[i]));
+            } else if (duplicados[i]) {
+                resultados.add(resolverDuplicado(coleccion, documento.get(CAMPO_PACIENTE), documento.getString(HashContenidoUtils.CAMPO_HASH)));
+                estadisticas.documentoRecibido(true);
+            } else {
+                resultados.add(ResultadoInsercion.exito(documento.get("_id")));
+                estadisticas.documentoRecibido(false);
+                nuevos.add(documento);
+            }
+        }
+        notificarGuardados(tenantId, nuevos);
+        return resultados;
+    }
+
+    /**
+     * Actualiza los resúmenes diarios (ver {@link ActividadDiaria}) y avisa a los observadores
+     * (índice de texto, etc.) de los documentos nuevos. Un error en un observador no afecta la
+     * escritura, que ya fue confirmada.
+     */
+    private void notificarGuardados(String tenantId, List<Document> nuevos) {
+        notificarGuardados(tenantId, nuevos, new DocumentosGuardados(tenantId, nuevos));
+    }
+
+    /**
+     * Igual que {@link #notificarGuardados(String, List)}, pero {@code resumenes} solo necesita los
+     * campos del stub (ver {@link #resumen(RawBsonDocument)}): el evento puede decodificar el
+     * documento completo recién cuando un observador lo pide.
+     */
+    private void notificarGuardados(String tenantId, List<Document> resumenes, DocumentosGuardados evento) {
+        if (resumenes.isEmpty()) {
+            return;
+        }
+        invalidarLecturas(tenantId, resumenes);
+        avisarObservadores(evento);
+        try {
+            actividadDiaria.registrar(tenantId, resumenes);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "DocumentoClinicoRepository: error actualizando la actividad diaria", e);
+        }
+    }
+
+    private void avisarObservadores(DocumentosGuardados evento) {
+        try {
+            documentosGuardados.fire(evento);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "DocumentoClinicoRepository: error notificando documentos guardados", e);
+        }
+    }
+
+    /**
+     * {@link #notificarGuardados} desde un callback del driver reactivo: los observadores (p. ej.
+     * el índice de texto con la cola llena) pueden bloquear, así que corren en el ejecutor
+     * administrado y no en los hilos de E/S de Mongo. Los resúmenes diarios se actualizan con el
+     * cliente reactivo.
+     */
+    private CompletableFuture<Void> notificarGuardadosAsync(String tenantId, List<Document> resumenes,
+                                                            DocumentosGuardados evento) {
+        CompletableFuture<Void> avisados;
+        try {
+            avisados = CompletableFuture.runAsync(() -> {
+                invalidarLecturas(tenantId, resumenes);
+                avisarObservadores(evento);
+            }, ejecutor);
+        } catch (RejectedExecutionException e) {
+            invalidarLecturas(tenantId, resumenes);
+            avisarObservadores(evento);
+            avisados = CompletableFuture.completedFuture(null);
+        }
+        return avisados.thenCompose(avisado -> actividadDiaria.registrarAsync(tenantId, resumenes));
+    }
+
+    private static String tenantDe(MongoCollection<Document> coleccion) {
+        return coleccion.getNamespace().getCollectionName().substring(PREFIJO_COLECCION.length());
+    }
+
+    /**
+     * Solo los campos del stub (paciente, fecha, tipo, etc.; ver ArchivoDocumentos) de un documento
+     * crudo. Cada campo se lee salteando el resto de los bytes, sin decodificar el contenido.
+     */
+    private static Document resumen(RawBsonDocument documento) {
+        BsonDocument campos = new BsonDocument();
+        for (String campo : ArchivoDocumentos.CAMPOS_STUB) {
+            BsonValue valor = documento.get(campo);
+            if (valor != null) {
+                campos.put(campo, valor);
+            }
+        }
+        return CODEC_DOCUMENTO.decode(new BsonDocumentReader(campos), DecoderContext.builder().build());
+    }
+
+    private static Document decodificar(RawBsonDocument documento) {
+        return CODEC_DOCUMENTO.decode(new BsonBinaryReader(documento.getByteBuffer().asNIO()), DecoderContext.builder().build());
+    }
+
+    private static boolean esDuplicadoDeContenido(int codigo, String mensaje) {
+        return codigo == 11000 && mensaje != null && mensaje.contains(INDICE_PACIENTE_HASH);
+    }
+
+    /**
+     * Un reenvío del mismo contenido se registra en el documento existente (cantidad de
+     * recepciones y la última) y se devuelve su _id. Es una sola búsqueda por el índice único.
+     */
+    private static ResultadoInsercion resolverDuplicado(MongoCollection<Document> coleccion, Object paciente, String hash) {
+        return resultadoDuplicado(coleccion.findOneAndUpdate(filtroDuplicado(paciente, hash), registroRecepcion(),
+                new FindOneAndUpdateOptions().projection(Projections.include("_id"))));
+    }
+
+    private static Bson filtroDuplicado(Object paciente, String hash) {
+        return Filters.and(Filters.eq(CAMPO_PACIENTE, paciente), Filters.eq(HashContenidoUtils.CAMPO_HASH, hash));
     }
 
+    private static Bson registroRecepcion() {
+        return Updates.combine(
+                Updates.inc(HashContenidoUtils.CAMPO_RECEPCIONES, 1),
+                Updates.set(HashContenidoUtils.CAMPO_ULTIMA_RECEPCION, new Date()));
+    }
+
+    private static ResultadoInsercion resultadoDuplicado(Document existente) {
+        if (existente == null) {
+            // El original se borró entre el insert y la búsqueda
+            return ResultadoInsercion.error("Documento duplicado no encontrado; reintentar");
+        }
+        return ResultadoInsercion.duplicado(existente.get("_id"));
+    }
+
+    private static void prepararDocumento(Document documento) {
+        // El hash se calcula sobre el contenido en texto plano, antes de comprimir, y antes de
+        // asignar la fecha: solo la fecha enviada por el cliente distingue un documento de otro
+        String hash = HashContenidoUtils.calcular(documento);
+        if (!documento.containsKey(CAMPO_FECHA)) {
+            documento.append(CAMPO_FECHA, new Date());
+        }
+        documento.put(HashContenidoUtils.CAMPO_HASH, hash);
+        CompresionUtils.comprimirContenido(documento);
+    }
+
+    /**
+     * @return el documento con ese _id en la colección del tenant, o null si no existe.
+     */
+    public Document buscarPorId(Object id) {
+        return CompresionUtils.descomprimirContenido(archivoDocumentos.hidratar(tenantRequerido(),
+                getCollection().find(Filters.eq("_id", id)).first()));
+    }
+
+    /**
+     * Agrega la referencia a un adjunto en el arreglo {@code adjuntos} del documento clínico,
+     * salvo que ya la tenga (reenvío del mismo adjunto).
+     *
+     * @return false si el documento ya no existe.
+     */
+    public boolean agregarAdjunto(Object documentoId, Document referencia) {
+        MongoCollection<Document> coleccion = getCollection();
+        Document previo = coleccion.findOneAndUpdate(
+                Filters.and(Filters.eq("_id", documentoId), Filters.ne(CAMPO_ADJUNTOS + ".id", referencia.get("id"))),
+                Updates.push(CAMPO_ADJUNTOS, referencia),
+                new FindOneAndUpdateOptions().projection(Projections.include(CAMPO_PACIENTE)));
+        if (previo != null) {
+            invalidarLecturas(tenantRequerido(), List.of(previo));
+            return true;
+        }
+        return coleccion.countDocuments(Filters.eq("_id", documentoId)) > 0;
+    }
+
+    /**
+     * @return el documento más reciente del paciente, o null si no tiene.
+     */
     public Document buscarPorDocumentoPaciente(String documento) {
-        return getCollection().find(new Document("pacienteDoc", documento)).first();
+        RawBsonDocument encontrado = buscarCrudoPorDocumentoPaciente(documento);
+        if (encontrado == null) {
+            return null;
+        }
+        // Cada llamador recibe su propio Document: el crudo puede estar compartido
+        return CompresionUtils.descomprimirContenido(decodificar(encontrado));
+    }
+
+    /**
+     * Igual que {@link #buscarPorDocumentoPaciente(String)} pero sin decodificar: devuelve los
+     * bytes BSON tal como llegan del servidor, para transcodificarlos directo a la respuesta.
+     *
+     * Las llamadas concurrentes para el mismo paciente comparten una sola consulta a Mongo (varias
+     * estaciones abriendo al mismo paciente en emergencia) y, con {@code HCEN_LECTURA_CACHE_MS}, el
+     * resultado se reutiliza ese tiempo. Las inserciones y adjuntos del paciente lo invalidan.
+     */
+    public RawBsonDocument buscarCrudoPorDocumentoPaciente(String documento) {
+        String tenantId = tenantRequerido();
+        // Los pacientes sin historia en este nodo se descartan sin ir a Mongo (ver FiltroPacientes)
+        if (!filtroPacientes.puedeExistir(tenantId, documento)) {
+            return null;
+        }
+        return ultimoPorPaciente.obtener(claveLectura(tenantId, documento), () -> {
+            RawBsonDocument encontrado = coleccionDeTenant(tenantId).withDocumentClass(RawBsonDocument.class)
+                    .find(Filters.eq(CAMPO_PACIENTE, documento))
+                    .sort(ordenRecientes())
+                    .first();
+            if (encontrado == null) {
+                filtroPacientes.registrarAusente(tenantId);
+            }
+            return archivoDocumentos.hidratar(tenantId, encontrado);
+        });
+    }
+
+    /**
+     * Variante no bloqueante de {@link #buscarCrudoPorDocumentoPaciente(String)} sobre el cliente
+     * reactivo. Comparte con ella el filtro de pacientes, las consultas en curso y la caché.
+     * La hidratación desde el archivo corre en el ejecutor, no en los hilos de I/O del driver.
+     */
+    public CompletableFuture<RawBsonDocument> buscarCrudoPorDocumentoPacienteAsync(String documento) {
+        String tenantId = tenantRequerido();
+        if (!filtroPacientes.puedeExistir(tenantId, documento)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        var coleccion = coleccionReactiva(tenantId, RawBsonDocument.class);
+        return ultimoPorPaciente.obtenerAsync(claveLectura(tenantId, documento), () ->
+                ReactivoUtils.primero(coleccion.find(Filters.eq(CAMPO_PACIENTE, documento)).sort(ordenRecientes()).first())
+                        .thenApplyAsync(encontrado -> {
+                            if (encontrado == null) {
+                                filtroPacientes.registrarAusente(tenantId);
+                            }
+                            return archivoDocumentos.hidratar(tenantId, encontrado);
+                        }, ejecutor));
+    }
+
+    /**
+     * Contadores de las lecturas del último documento por paciente (consultas, las que fueron a
+     * Mongo, las que esperaron una consulta en curso y los aciertos de caché).
+     */
+    public Map<String, Object> resumenLecturas() {
+        return ultimoPorPaciente.resumen();
+    }
+
+    private void invalidarLecturas(String tenantId, List<Document> documentos) {
+        for (Document documento : documentos) {
+            Object paciente = documento.get(CAMPO_PACIENTE);
+            if (paciente != null) {
+                ultimoPorPaciente.invalidar(claveLectura(tenantId, String.valueOf(paciente)));
+            }
+        }
+    }
+
+    private static String claveLectura(String tenantId, String pacienteDoc) {
+        return tenantId + '\u0000' + pacienteDoc;
+    }
+
+    /**
+     * Abre un cursor sobre toda la historia del paciente en orden cronológico. Los documentos
+     * se traen de a {@code batchSize} por round trip y sin decodificar; quien llama debe cerrar el cursor.
+     */
+    public MongoCursor<RawBsonDocument> abrirCursorPorPaciente(String pacienteDoc, int batchSize) {
+        String tenantId = tenantRequerido();
+        return new CursorHidratado<>(coleccionDeTenant(tenantId).withDocumentClass(RawBsonDocument.class)
+                .find(Filters.eq(CAMPO_PACIENTE, pacienteDoc))
+                .sort(Sorts.ascending(CAMPO_FECHA, "_id"))
+                .batchSize(Math.max(1, batchSize))
+                .cursor(), documento -> archivoDocumentos.hidratar(tenantId, documento));
+    }
+
+    /**
+     * Equivalente reactivo de {@link #abrirCursorPorPaciente(String, int)}: publica la historia del
+     * paciente en orden cronológico según la demanda del suscriptor. El driver pide el siguiente
+     * lote de {@code batchSize} documentos recién cuando se consumió el anterior, así que un
+     * suscriptor lento frena la lectura en vez de acumular documentos en memoria. Cada documento
+     * se hidrata desde el archivo en el ejecutor, no en los hilos de I/O del driver.
+     */
+    public Publisher<RawBsonDocument> publicarPorPaciente(String pacienteDoc, int batchSize) {
+        String tenantId = tenantRequerido();
+        FindPublisher<RawBsonDocument> find = coleccionReactiva(tenantId, RawBsonDocument.class)
+                .find(Filters.eq(CAMPO_PACIENTE, pacienteDoc))
+                .sort(Sorts.ascending(CAMPO_FECHA, "_id"))
+                .batchSize(Math.max(1, batchSize));
+        return ReactivoUtils.mapear(find, documento -> archivoDocumentos.hidratar(tenantId, documento), ejecutor);
+    }
+
+    /**
+     * Cantidad aproximada de documentos del tenant, tomada de la metadata de la colección.
+     */
+    public long contarEstimado(String tenantId) {
+        return coleccionDeTenant(tenantId).estimatedDocumentCount();
+    }
+
+    /**
+     * Cursor con el {@code pacienteDoc} de cada documento del tenant. Se fuerza el índice
+     * {@value #INDICE_PACIENTE_FECHA} y se excluye _id para que la consulta quede cubierta por
+     * el índice: se recorren sus claves sin leer los documentos. Quien llama debe cerrar el cursor.
+     */
+    public MongoCursor<Document> abrirCursorPacientes(String tenantId, int batchSize) {
+        return coleccionDeTenant(tenantId).find()
+                .projection(Projections.fields(Projections.include(CAMPO_PACIENTE), Projections.excludeId()))
+                .hintString(INDICE_PACIENTE_FECHA)
+                .batchSize(Math.max(1, batchSize))
+                .cursor();
+    }
+
+    /**
+     * Cursor con _id y los campos indicados de los documentos del tenant cuyo _id es un ObjectId
+     * generado desde {@code desde} (para poner al día estructuras derivadas con lo que insertaron
+     * otras instancias). Recorre el índice de _id; los documentos con _id de otro tipo no aparecen.
+     * Quien llama debe cerrar el cursor.
+     */
+    public MongoCursor<Document> abrirCursorCreadosDesde(String tenantId, Date desde, List<String> campos, int batchSize) {
+        // Menor ObjectId con ese timestamp: los 8 bytes siguientes en cero
+        ObjectId minimo = new ObjectId(String.format("%08x%016x", desde.getTime() / 1000, 0));
+        return coleccionDeTenant(tenantId).find(Filters.gte("_id", minimo))
+                .projection(Projections.include(campos))
+                .batchSize(Math.max(1, batchSize))
+                .cursor();
+    }
+
+    /**
+     * Cursor sobre los documentos del tenant con los _id indicados, con solo los campos pedidos e
+     * hidratados desde el archivo como en {@link #abrirCursorTenant(String, List, int)}. Quien
+     * llama debe cerrar el cursor.
+     */
+    public MongoCursor<Document> abrirCursorPorIds(String tenantId, List<Object> ids, List<String> campos) {
+        List<String> incluidos = new ArrayList<>(campos);
+        incluidos.add(ArchivoDocumentos.CAMPO_ARCHIVO);
+        return new CursorHidratado<>(coleccionDeTenant(tenantId).find(Filters.in("_id", ids))
+                .projection(Projections.include(incluidos))
+                .batchSize(Math.max(1, ids.size()))
+                .cursor(), documento -> documento.keySet().containsAll(campos)
+                        ? documento : archivoDocumentos.hidratar(tenantId, documento));
+    }
+
+    /**
+     * Cursor sobre todos los documentos de un tenant con solo los campos indicados (para
+     * reconstruir índices derivados). Quien llama debe cerrar el cursor. Los documentos
+     * archivados solo se leen del archivo si al stub le falta alguno de esos campos.
+     */
+    public MongoCursor<Document> abrirCursorTenant(String tenantId, List<String> campos, int batchSize) {
+        List<String> incluidos = new ArrayList<>(campos);
+        incluidos.add(ArchivoDocumentos.CAMPO_ARCHIVO);
+        return new CursorHidratado<>(coleccionDeTenant(tenantId).find()
+                .projection(Projections.include(incluidos))
+                .batchSize(Math.max(1, batchSize))
+                .cursor(), documento -> documento.keySet().containsAll(campos)
+                        ? documento : archivoDocumentos.hidratar(tenantId, documento));
+    }
+
+    /**
+     * Lista los documentos de un paciente del más nuevo al más viejo, paginando por cursor
+     * (fechaCreacion, _id) sobre el índice {@value #INDICE_PACIENTE_FECHA}, de modo que cada
+     * página cuesta lo mismo sin importar su posición.
+     *
+     * @param cursor valor opaco devuelto en {@link PaginaDocumentos#getSiguienteCursor()}, o null para la primera página.
+     * @param campos campos a devolver (proyección en Mongo); null o vacío devuelve el documento completo.
+     * @throws IllegalArgumentException si el cursor o algún campo no son válidos.
+     */
+    public PaginaDocumentos listarPorPaciente(String pacienteDoc, String cursor, int limite, List<String> campos) {
+        int tamanoPagina = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        String tenantId = tenantRequerido();
+        if (!filtroPacientes.puedeExistir(tenantId, pacienteDoc)) {
+            return new PaginaDocumentos(new ArrayList<>(), null);
+        }
+
+        Set<String> incluidos = campos != null && !campos.isEmpty() ? camposProyeccion(campos) : null;
+        var find = coleccionDeTenant(tenantId).find(filtroPagina(pacienteDoc, cursor))
+                .sort(ordenRecientes())
+                .limit(tamanoPagina + 1);
+        if (incluidos != null) {
+            find = find.projection(proyeccionPagina(incluidos));
+        }
+        return armarPagina(tenantId, find.into(new ArrayList<>(tamanoPagina + 1)), incluidos, tamanoPagina);
+    }
+
+    /**
+     * Variante no bloqueante de {@link #listarPorPaciente(String, String, int, List)} sobre el
+     * cliente reactivo, con la misma paginación y proyección.
+     *
+     * @throws IllegalArgumentException si el cursor o algún campo no son válidos (antes de consultar).
+     */
+    public CompletableFuture<PaginaDocumentos> listarPorPacienteAsync(String pacienteDoc, String cursor, int limite, List<String> campos) {
+        int tamanoPagina = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        String tenantId = tenantRequerido();
+        if (!filtroPacientes.puedeExistir(tenantId, pacienteDoc)) {
+            return CompletableFuture.completedFuture(new PaginaDocumentos(new ArrayList<>(), null));
+        }
+
+        Set<String> incluidos = campos != null && !campos.isEmpty() ? camposProyeccion(campos) : null;
+        FindPublisher<Document> find = coleccionReactiva(tenantId, Document.class).find(filtroPagina(pacienteDoc, cursor))
+                .sort(ordenRecientes())
+                .limit(tamanoPagina + 1);
+        if (incluidos != null) {
+            find = find.projection(proyeccionPagina(incluidos));
+        }
+        return ReactivoUtils.lista(find).thenApplyAsync(documentos -> armarPagina(tenantId, documentos, incluidos, tamanoPagina), ejecutor);
+    }
+
+    private static Bson filtroPagina(String pacienteDoc, String cursor) {
+        Bson filtro = Filters.eq(CAMPO_PACIENTE, pacienteDoc);
+        if (cursor != null && !cursor.isBlank()) {
+            Document posicion = decodificarCursor(cursor);
+            Date fecha = posicion.getDate("f");
+            Object id = posicion.get("i");
+            filtro = Filters.and(filtro, Filters.or(
+                    Filters.lt(CAMPO_FECHA, fecha),
+                    Filters.and(Filters.eq(CAMPO_FECHA, fecha), Filters.lt("_id", id))));
+        }
+        return filtro;
+    }
+
+    private static Bson proyeccionPagina(Set<String> incluidos) {
+        List<String> proyeccion = new ArrayList<>(incluidos);
+        proyeccion.add(ArchivoDocumentos.CAMPO_ARCHIVO);
+        return Projections.include(proyeccion);
+    }
+
+    private PaginaDocumentos armarPagina(String tenantId, List<Document> documentos, Set<String> incluidos, int tamanoPagina) {
+        for (int i = 0; i < documentos.size(); i++) {
+            Document documento = archivoDocumentos.hidratar(tenantId, documentos.get(i));
+            if (incluidos != null) {
+                // El documento archivado trae todos los campos: se aplica la misma proyección
+                documento.keySet().removeIf(campo -> !"_id".equals(campo) && !incluidos.contains(campo));
+            }
+            documentos.set(i, CompresionUtils.descomprimirContenido(documento));
+        }
+        String siguiente = null;
+        if (documentos.size() > tamanoPagina) {
+            documentos.remove(tamanoPagina);
+            siguiente = codificarCursor(documentos.get(tamanoPagina - 1));
+        }
+        return new PaginaDocumentos(documentos, siguiente);
+    }
+
+    private static Bson ordenRecientes() {
+        return Sorts.descending(CAMPO_FECHA, "_id");
+    }
+
+    /**
+     * La proyección siempre conserva _id y fechaCreacion porque forman el cursor.
+     */
+    private static Set<String> camposProyeccion(List<String> campos) {
+        Set<String> incluidos = new LinkedHashSet<>();
+        for (String campo : campos) {
+            String limpio = campo == null ? "" : campo.trim();
+            if (limpio.isEmpty()) {
+                continue;
+            }
+            if (limpio.startsWith("$") || limpio.contains("\0")) {
+                throw new IllegalArgumentException("Campo inválido en la proyección: " + limpio);
+            }
+            incluidos.add(limpio);
+        }
+        if (incluidos.contains(CompresionUtils.CAMPO_CONTENIDO)) {
+            incluidos.add(CompresionUtils.CAMPO_CODEC);
+        }
+        incluidos.add(CAMPO_FECHA);
+        return incluidos;
+    }
+
+    /**
+     * @return el cursor de la página siguiente, o null si el último documento no tiene una
+     *         {@code fechaCreacion} Date (documentos previos al campo, ver
+     *         {@link #completarFechaCreacion(String)}) o un _id escalar: la paginación termina ahí
+     *         en lugar de fallar con un 500.
+     */
+    private static String codificarCursor(Document ultimo) {
+        Object id = ultimo.get("_id");
+        if (!(ultimo.get(CAMPO_FECHA) instanceof Date fecha) || !esIdDeCursor(id)) {
+            return null;
+        }
+        Document posicion = new Document("f", fecha).append("i", id);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(posicion.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Los valores del cursor van directo a los filtros: solo se aceptan una fecha y un _id escalar,
+     * nunca un documento que Mongo interpretaría como operador.
+     */
+    private static Document decodificarCursor(String cursor) {
+        Document posicion;
+        try {
+            posicion = Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+        if (!(posicion.get("f") instanceof Date) || !esIdDeCursor(posicion.get("i"))) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        return posicion;
+    }
+
+    private static boolean esIdDeCursor(Object id) {
+        return id instanceof ObjectId || id instanceof String || id instanceof Number;
     }
 
 }
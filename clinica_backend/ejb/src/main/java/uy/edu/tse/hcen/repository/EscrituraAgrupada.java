@@ -0,0 +1,165 @@
+package uy.edu.tse.hcen.repository;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import uy.edu.tse.hcen.dto.ResultadoInsercion;
+import uy.edu.tse.hcen.exceptions.EscrituraDocumentoException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Buffer de escritura diferida (write-behind) para inserciones individuales.
+ *
+ * Los hilos que insertan encolan el documento en un buffer acotado y reciben un futuro. Un
+ * único hilo escritor toma lo encolado y lo confirma en Mongo como un solo insert por lote
+ * (group commit) cuando se llena el lote ({@code maxLote}) o vence la espera
+ * ({@code maxEsperaMs}) desde el primer documento. Cada futuro se completa recién cuando Mongo
+ * confirmó su lote, con el mismo write concern de la colección, así que la durabilidad que ve
+ * quien llama no cambia; solo se comparten los round trips.
+ *
+ * Con {@code maxEsperaMs = 0} no se agrega latencia: se agrupa solo lo que se acumuló mientras
+ * se escribía el lote anterior. Valores mayores agrupan más a costa de latencia por inserción.
+ */
+class EscrituraAgrupada {
+
+    private static final Logger LOGGER = Logger.getLogger(EscrituraAgrupada.class.getName());
+    private static final long ESPERA_ENCOLAR_SEGUNDOS = 30;
+
+    private final BlockingQueue<Pendiente> cola;
+    private final int maxLote;
+    private final long maxEsperaNanos;
+    private final BiFunction<MongoCollection<Document>, List<Document>, List<ResultadoInsercion>> escritor;
+    private final Thread hilo;
+    private volatile boolean cerrado;
+
+    EscrituraAgrupada(int capacidad, int maxLote, long maxEsperaMs, ThreadFactory threadFactory,
+                      BiFunction<MongoCollection<Document>, List<Document>, List<ResultadoInsercion>> escritor) {
+        this.cola = new ArrayBlockingQueue<>(Math.max(1, capacidad));
+        this.maxLote = Math.max(1, maxLote);
+        this.maxEsperaNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxEsperaMs));
+        this.escritor = escritor;
+        this.hilo = threadFactory.newThread(this::ciclo);
+        this.hilo.setName("hcen-documentos-write-behind");
+        this.hilo.start();
+    }
+
+    /**
+     * Encola el documento. Si el buffer está lleno, bloquea al llamador (backpressure) hasta
+     * que haya lugar o venza la espera máxima. El futuro se completa con el resultado exitoso
+     * (nuevo o duplicado) o falla con {@link EscrituraDocumentoException}.
+     */
+    CompletableFuture<ResultadoInsercion> encolar(MongoCollection<Document> coleccion, Document documento) {
+        if (cerrado) {
+            throw new IllegalStateException("La escritura agrupada está cerrada");
+        }
+        Pendiente pendiente = new Pendiente(coleccion, documento);
+        try {
+            if (!cola.offer(pendiente, ESPERA_ENCOLAR_SEGUNDOS, TimeUnit.SECONDS)) {
+                throw new EscrituraDocumentoException("Buffer de escritura lleno: Mongo no acepta escrituras al ritmo de llegada");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EscrituraDocumentoException("Interrumpido esperando lugar en el buffer de escritura", e);
+        }
+        return pendiente.futuro;
+    }
+
+    /**
+     * Deja de aceptar documentos y espera a que se escriba lo que quedó en el buffer.
+     */
+    void cerrar() {
+        cerrado = true;
+        try {
+            hilo.join(TimeUnit.SECONDS.toMillis(ESPERA_ENCOLAR_SEGUNDOS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Pendiente> restantes = new ArrayList<>();
+        cola.drainTo(restantes);
+        restantes.forEach(p -> p.futuro.completeExceptionally(
+                new EscrituraDocumentoException("La aplicación se detuvo antes de escribir el documento")));
+    }
+
+    private void ciclo() {
+        List<Pendiente> lote = new ArrayList<>(maxLote);
+        while (!cerrado || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                long limite = System.nanoTime() + maxEsperaNanos;
+                while (lote.size() < maxLote) {
+                    cola.drainTo(lote, maxLote - lote.size());
+                    long restante = limite - System.nanoTime();
+                    if (lote.size() >= maxLote || restante <= 0) {
+                        break;
+                    }
+                    Pendiente siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+                escribir(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cerrado = true;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "EscrituraAgrupada: error inesperado en el hilo escritor", e);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribir(List<Pendiente> lote) {
+        // Con colecciones por tenant un mismo lote puede tener varios destinos
+        Map<MongoNamespace, List<Pendiente>> porColeccion = new LinkedHashMap<>();
+        for (Pendiente p : lote) {
+            porColeccion.computeIfAbsent(p.coleccion.getNamespace(), k -> new ArrayList<>()).add(p);
+        }
+
+        for (List<Pendiente> grupo : porColeccion.values()) {
+            List<Document> documentos = new ArrayList<>(grupo.size());
+            grupo.forEach(p -> documentos.add(p.documento));
+            try {
+                List<ResultadoInsercion> resultados = escritor.apply(grupo.get(0).coleccion, documentos);
+                for (int i = 0; i < grupo.size(); i++) {
+                    ResultadoInsercion r = resultados.get(i);
+                    if (r.isExitoso()) {
+                        grupo.get(i).futuro.complete(r);
+                    } else {
+                        grupo.get(i).futuro.completeExceptionally(new EscrituraDocumentoException(r.getError()));
+                    }
+                }
+            } catch (RuntimeException e) {
+                grupo.forEach(p -> p.futuro.completeExceptionally(e));
+            }
+        }
+    }
+
+    private static final class Pendiente {
+        private final MongoCollection<Document> coleccion;
+        private final Document documento;
+        private final CompletableFuture<ResultadoInsercion> futuro = new CompletableFuture<>();
+
+        Pendiente(MongoCollection<Document> coleccion, Document documento) {
+            this.coleccion = coleccion;
+            this.documento = documento;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package uy.edu.tse.hcen.repository;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de deduplicación por contenido desde que arrancó la instancia.
+ */
+@ApplicationScoped
+public class EstadisticasDeduplicacion {
+
+    private final LongAdder documentosRecibidos = new LongAdder();
+    private final LongAdder documentosDuplicados = new LongAdder();
+    private final LongAdder adjuntosRecibidos = new LongAdder();
+    private final LongAdder adjuntosDuplicados = new LongAdder();
+    private final LongAdder bytesAdjuntosEvitados = new LongAdder();
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public EstadisticasDeduplicacion() {
+    }
+
+    void documentoRecibido(boolean duplicado) {
+        documentosRecibidos.increment();
+        if (duplicado) {
+            documentosDuplicados.increment();
+        }
+    }
+
+    void adjuntoRecibido(boolean duplicado, long bytes) {
+        adjuntosRecibidos.increment();
+        if (duplicado) {
+            adjuntosDuplicados.increment();
+            bytesAdjuntosEvitados.add(bytes);
+        }
+    }
+
+    public Map<String, Object> resumen() {
+        long docs = documentosRecibidos.sum();
+        long docsDup = documentosDuplicados.sum();
+        long adj = adjuntosRecibidos.sum();
+        long adjDup = adjuntosDuplicados.sum();
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("documentosRecibidos", docs);
+        resumen.put("documentosDuplicados", docsDup);
+        resumen.put("documentosRatioDeduplicacion", docs == 0 ? 0.0 : (double) docsDup / docs);
+        resumen.put("adjuntosRecibidos", adj);
+        resumen.put("adjuntosDuplicados", adjDup);
+        resumen.put("adjuntosRatioDeduplicacion", adj == 0 ? 0.0 : (double) adjDup / adj);
+        resumen.put("bytesAdjuntosEvitados", bytesAdjuntosEvitados.sum());
+        return resumen;
+    }
+}
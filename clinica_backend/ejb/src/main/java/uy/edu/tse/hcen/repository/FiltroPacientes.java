@@ -0,0 +1,302 @@
+package uy.edu.tse.hcen.repository;
+
+import com.mongodb.client.MongoCursor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import uy.edu.tse.hcen.config.MongoDBProducer;
+import uy.edu.tse.hcen.dto.DocumentosGuardados;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+import uy.edu.tse.hcen.utils.FiltroBloom;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Filtro de Bloom por tenant con los {@code pacienteDoc} que tienen documentos, para responder
+ * sin consultar Mongo las búsquedas de pacientes que no tienen historia.
+ *
+ * El filtro de cada tenant se arma recorriendo el índice {@code pacienteDoc_fechaCreacion}
+ * (consulta cubierta, sin leer documentos) al arrancar y cada {@code HCEN_BLOOM_RECONSTRUIR_MIN}
+ * minutos, dimensionado para la cantidad de documentos de la colección con la tasa de falsos
+ * positivos {@code HCEN_BLOOM_FPP}. Entre reconstrucciones se actualiza con cada inserción
+ * observando {@link DocumentosGuardados}; durante una reconstrucción las inserciones se agregan
+ * también al filtro nuevo, así que nunca hay falsos negativos por inserciones de esta instancia.
+ *
+ * Las inserciones de otras instancias contra la misma base se incorporan cada
+ * {@code HCEN_BLOOM_SINCRONIZAR_S} segundos leyendo los pacientes de los documentos con _id
+ * ObjectId generado desde la sincronización anterior (con {@value #MARGEN_SINCRONIZACION_MS} ms
+ * de margen por relojes desfasados y lotes lentos); los de _id elegido por el cliente recién se
+ * ven en la próxima reconstrucción. Con varias instancias, entonces, un "no" puede estar atrasado
+ * respecto de otro nodo a lo sumo ese intervalo. Las consultas nunca leen Mongo para decidir.
+ *
+ * Mientras el filtro de un tenant no está listo todas las consultas van a Mongo.
+ */
+@ApplicationScoped
+public class FiltroPacientes {
+
+    private static final Logger LOGGER = Logger.getLogger(FiltroPacientes.class.getName());
+    private static final int LOTE_LECTURA = 5000;
+    // Holgura sobre la cantidad de documentos para las inserciones hasta la próxima reconstrucción
+    private static final double MARGEN_CRECIMIENTO = 1.2;
+    static final long MARGEN_SINCRONIZACION_MS = 120_000;
+
+    private final boolean habilitado = ConfigUtils.getBoolean("HCEN_BLOOM_HABILITADO", true);
+    private final double tasaFalsosPositivos = ConfigUtils.getDouble("HCEN_BLOOM_FPP", 0.01);
+    private final long minimoEsperados = ConfigUtils.getLong("HCEN_BLOOM_MIN_ESPERADOS", 10000);
+    private final long reconstruirMin = ConfigUtils.getLong("HCEN_BLOOM_RECONSTRUIR_MIN", 60);
+    private final long sincronizarS = ConfigUtils.getLong("HCEN_BLOOM_SINCRONIZAR_S", 15);
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    @Inject
+    private MongoDBProducer mongoDBProducer;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private final Map<String, Estado> estados = new ConcurrentHashMap<>();
+    private final Set<String> programados = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService tareas;
+
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+    private final LongAdder falsosPositivos = new LongAdder();
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public FiltroPacientes() {
+    }
+
+    @PostConstruct
+    void init() {
+        if (!habilitado) {
+            return;
+        }
+        // Un solo hilo: reconstrucciones y sincronizaciones no compiten entre sí ni con las consultas a Mongo de las solicitudes
+        tareas = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread hilo = threadFactory.newThread(runnable);
+            hilo.setName("hcen-filtro-pacientes");
+            return hilo;
+        });
+        // La primera reconstrucción espera a que Mongo esté conectado (ver MongoDBProducer)
+        mongoDBProducer.iniciar().thenRun(() -> {
+            try {
+                tareas.scheduleWithFixedDelay(this::reconstruirTodos, 0, Math.max(1, reconstruirMin), TimeUnit.MINUTES);
+                long intervalo = Math.max(1, sincronizarS);
+                tareas.scheduleWithFixedDelay(this::sincronizarTodos, intervalo, intervalo, TimeUnit.SECONDS);
+            } catch (RejectedExecutionException e) {
+                // Detenido antes de que Mongo estuviera listo
+            }
+        });
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (tareas != null) {
+            tareas.shutdownNow();
+        }
+    }
+
+    /**
+     * Responde solo con el filtro en memoria, sin consultar Mongo.
+     *
+     * @return false solo si el paciente no tiene documentos en el tenant según lo que el filtro
+     *         vio (ver la clase); true si puede tenerlos o si el filtro del tenant todavía no está listo.
+     */
+    public boolean puedeExistir(String tenantId, String pacienteDoc) {
+        if (!habilitado || pacienteDoc == null) {
+            return true;
+        }
+        consultas.increment();
+        Estado estado = estados.get(tenantId);
+        FiltroBloom filtro = estado != null ? estado.actual : null;
+        if (filtro == null) {
+            programar(tenantId);
+            return true;
+        }
+        if (!filtro.puedeContener(pacienteDoc)) {
+            descartadas.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Registra que una consulta que el filtro dejó pasar no encontró documentos.
+     */
+    public void registrarAusente(String tenantId) {
+        Estado estado = estados.get(tenantId);
+        if (habilitado && estado != null && estado.actual != null) {
+            falsosPositivos.increment();
+        }
+    }
+
+    void alGuardar(@Observes DocumentosGuardados evento) {
+        if (!habilitado) {
+            return;
+        }
+        // Sin estado todavía: la primera reconstrucción empieza después y ve estos documentos
+        Estado estado = estados.get(evento.getTenantId());
+        if (estado == null) {
+            return;
+        }
+        for (Document documento : evento.getDocumentos()) {
+            String pacienteDoc = documento.getString(DocumentoClinicoRepository.CAMPO_PACIENTE);
+            if (pacienteDoc != null) {
+                estado.agregar(pacienteDoc);
+            }
+        }
+    }
+
+    private void programar(String tenantId) {
+        if (tareas == null || !programados.add(tenantId)) {
+            return;
+        }
+        try {
+            tareas.execute(() -> {
+                try {
+                    reconstruir(tenantId);
+                } finally {
+                    programados.remove(tenantId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            programados.remove(tenantId);
+        }
+    }
+
+    private void reconstruirTodos() {
+        try {
+            for (String tenantId : documentoClinicoRepository.listarTenantsConDocumentos()) {
+                reconstruir(tenantId);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "FiltroPacientes: no se pudieron listar los tenants -> {0}", e.getMessage());
+        }
+    }
+
+    /**
+     * Arma un filtro nuevo desde la colección del tenant y reemplaza al actual. Si falla, se
+     * mantiene el anterior (o ninguno, y las consultas siguen yendo a Mongo).
+     */
+    void reconstruir(String tenantId) {
+        Estado estado = estados.computeIfAbsent(tenantId, id -> new Estado());
+        try {
+            long inicio = System.currentTimeMillis();
+            long documentos = documentoClinicoRepository.contarEstimado(tenantId);
+            FiltroBloom nuevo = new FiltroBloom(
+                    Math.max(minimoEsperados, (long) (documentos * MARGEN_CRECIMIENTO)), tasaFalsosPositivos);
+            // Desde acá las inserciones se agregan también al filtro nuevo
+            estado.siguiente = nuevo;
+            try (MongoCursor<Document> cursor = documentoClinicoRepository.abrirCursorPacientes(tenantId, LOTE_LECTURA)) {
+                while (cursor.hasNext()) {
+                    String pacienteDoc = cursor.next().getString(DocumentoClinicoRepository.CAMPO_PACIENTE);
+                    if (pacienteDoc != null) {
+                        nuevo.agregar(pacienteDoc);
+                    }
+                }
+            }
+            estado.actual = nuevo;
+            estado.reconstruido = new Date();
+            // Lo insertado por otras instancias durante el recorrido puede haber quedado afuera
+            estado.sincronizadoHasta = inicio;
+            LOGGER.log(Level.FINE, "FiltroPacientes: filtro del tenant {0} reconstruido ({1} documentos, {2} bits)",
+                    new Object[]{tenantId, documentos, nuevo.getCantidadBits()});
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "FiltroPacientes: no se pudo reconstruir el filtro del tenant " + tenantId, e);
+        } finally {
+            estado.siguiente = null;
+        }
+    }
+
+    private void sincronizarTodos() {
+        for (Map.Entry<String, Estado> entrada : estados.entrySet()) {
+            if (entrada.getValue().actual != null) {
+                sincronizar(entrada.getKey(), entrada.getValue());
+            }
+        }
+    }
+
+    /**
+     * Agrega al filtro los pacientes de los documentos creados desde la última sincronización
+     * (o reconstrucción), incluidos los que insertaron otras instancias. Si falla, la ventana se
+     * conserva y se vuelve a leer en la próxima.
+     */
+    private void sincronizar(String tenantId, Estado estado) {
+        long inicio = System.currentTimeMillis();
+        Date desde = new Date(estado.sincronizadoHasta - MARGEN_SINCRONIZACION_MS);
+        try (MongoCursor<Document> cursor = documentoClinicoRepository.abrirCursorCreadosDesde(tenantId, desde,
+                List.of(DocumentoClinicoRepository.CAMPO_PACIENTE), LOTE_LECTURA)) {
+            while (cursor.hasNext()) {
+                String pacienteDoc = cursor.next().getString(DocumentoClinicoRepository.CAMPO_PACIENTE);
+                if (pacienteDoc != null) {
+                    estado.agregar(pacienteDoc);
+                }
+            }
+            estado.sincronizadoHasta = inicio;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "FiltroPacientes: no se pudo sincronizar el filtro del tenant {0} -> {1}",
+                    new Object[]{tenantId, e.getMessage()});
+        }
+    }
+
+    /**
+     * Contadores de la instancia y datos del filtro del tenant indicado (si ya está armado).
+     */
+    public Map<String, Object> resumen(String tenantId) {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("habilitado", habilitado);
+        resumen.put("consultas", consultas.sum());
+        resumen.put("descartadasSinMongo", descartadas.sum());
+        resumen.put("falsosPositivos", falsosPositivos.sum());
+        Estado estado = tenantId != null ? estados.get(tenantId) : null;
+        FiltroBloom filtro = estado != null ? estado.actual : null;
+        if (filtro != null) {
+            resumen.put("esperados", filtro.getEsperados());
+            resumen.put("agregados", filtro.getAgregados());
+            resumen.put("bytes", filtro.getCantidadBits() / 8);
+            resumen.put("hashes", filtro.getCantidadHashes());
+            resumen.put("tasaEstimada", filtro.tasaEstimada());
+            resumen.put("reconstruido", estado.reconstruido);
+            resumen.put("sincronizado", new Date(estado.sincronizadoHasta));
+        }
+        return resumen;
+    }
+
+    private static final class Estado {
+        private volatile FiltroBloom actual;
+        private volatile FiltroBloom siguiente;
+        private volatile Date reconstruido;
+        // Solo lo escribe el hilo de tareas
+        private volatile long sincronizadoHasta;
+
+        void agregar(String pacienteDoc) {
+            // Se lee primero el siguiente: si el reemplazo ocurre en el medio, el valor queda en el nuevo igual
+            FiltroBloom enConstruccion = siguiente;
+            FiltroBloom vigente = actual;
+            if (vigente != null) {
+                vigente.agregar(pacienteDoc);
+            }
+            if (enConstruccion != null && enConstruccion != vigente) {
+                enConstruccion.agregar(pacienteDoc);
+            }
+        }
+    }
+}
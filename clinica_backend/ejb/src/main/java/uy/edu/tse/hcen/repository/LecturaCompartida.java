@@ -0,0 +1,176 @@
+package uy.edu.tse.hcen.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lecturas compartidas (single-flight) con caché opcional de vida corta.
+ *
+ * Si varios hilos piden la misma clave al mismo tiempo, solo el primero ejecuta la carga; el
+ * resto espera ese mismo resultado (o excepción) en vez de repetir la consulta. Con
+ * {@code ttlMs > 0} el resultado se conserva además ese tiempo para las solicitudes siguientes.
+ *
+ * {@link #invalidar(Object)} descarta lo cacheado y desengancha la carga en curso: quien pida la
+ * clave después arranca una carga nueva, y el resultado de la anterior no se cachea. Así una
+ * escritura nunca queda tapada por una lectura que empezó antes.
+ *
+ * Los valores se comparten entre hilos, así que tienen que ser inmutables (p. ej. RawBsonDocument).
+ */
+class LecturaCompartida<K, V> {
+
+    private final long ttlNanos;
+    private final int maxEntradas;
+    private final Map<K, CompletableFuture<V>> enCurso = new ConcurrentHashMap<>();
+    private final Map<K, Entrada<V>> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder cargas = new LongAdder();
+    private final LongAdder coalescidas = new LongAdder();
+    private final LongAdder aciertosCache = new LongAdder();
+
+    LecturaCompartida(long ttlMs, int maxEntradas) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMs));
+        this.maxEntradas = Math.max(0, maxEntradas);
+    }
+
+    V obtener(K clave, Supplier<V> carga) {
+        consultas.increment();
+        if (ttlNanos > 0) {
+            Entrada<V> entrada = cache.get(clave);
+            if (entrada != null) {
+                if (entrada.vence - System.nanoTime() > 0) {
+                    aciertosCache.increment();
+                    return entrada.valor;
+                }
+                cache.remove(clave, entrada);
+            }
+        }
+
+        CompletableFuture<V> nuevo = new CompletableFuture<>();
+        CompletableFuture<V> existente = enCurso.putIfAbsent(clave, nuevo);
+        if (existente != null) {
+            coalescidas.increment();
+            return esperar(existente);
+        }
+
+        cargas.increment();
+        try {
+            V valor = carga.get();
+            // Solo se cachea si nadie invalidó la clave mientras se cargaba
+            if (enCurso.remove(clave, nuevo) && ttlNanos > 0) {
+                cachear(clave, valor);
+            }
+            nuevo.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            enCurso.remove(clave, nuevo);
+            nuevo.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Variante no bloqueante de {@link #obtener(Object, Supplier)}: la carga devuelve una etapa y
+     * nadie espera en un hilo. Comparte las cargas en curso y la caché con {@code obtener}, así que
+     * los llamadores sincrónicos y asíncronos de la misma clave se coalescen entre sí.
+     */
+    CompletableFuture<V> obtenerAsync(K clave, Supplier<? extends CompletionStage<V>> carga) {
+        consultas.increment();
+        if (ttlNanos > 0) {
+            Entrada<V> entrada = cache.get(clave);
+            if (entrada != null) {
+                if (entrada.vence - System.nanoTime() > 0) {
+                    aciertosCache.increment();
+                    return CompletableFuture.completedFuture(entrada.valor);
+                }
+                cache.remove(clave, entrada);
+            }
+        }
+
+        CompletableFuture<V> nuevo = new CompletableFuture<>();
+        CompletableFuture<V> existente = enCurso.putIfAbsent(clave, nuevo);
+        if (existente != null) {
+            coalescidas.increment();
+            // Copia: quien recibe el futuro no puede completar el compartido
+            return existente.copy();
+        }
+
+        cargas.increment();
+        try {
+            carga.get().whenComplete((valor, error) -> {
+                if (error != null) {
+                    enCurso.remove(clave, nuevo);
+                    nuevo.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                    return;
+                }
+                if (enCurso.remove(clave, nuevo) && ttlNanos > 0) {
+                    cachear(clave, valor);
+                }
+                nuevo.complete(valor);
+            });
+        } catch (RuntimeException e) {
+            enCurso.remove(clave, nuevo);
+            nuevo.completeExceptionally(e);
+        }
+        return nuevo.copy();
+    }
+
+    void invalidar(K clave) {
+        cache.remove(clave);
+        enCurso.remove(clave);
+    }
+
+    Map<String, Object> resumen() {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("consultas", consultas.sum());
+        resumen.put("consultasMongo", cargas.sum());
+        resumen.put("coalescidas", coalescidas.sum());
+        resumen.put("aciertosCache", aciertosCache.sum());
+        resumen.put("enCache", cache.size());
+        resumen.put("ttlMs", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        return resumen;
+    }
+
+    private void cachear(K clave, V valor) {
+        if (cache.size() >= maxEntradas) {
+            long ahora = System.nanoTime();
+            cache.values().removeIf(e -> e.vence - ahora <= 0);
+            if (cache.size() >= maxEntradas) {
+                return;
+            }
+        }
+        cache.put(clave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+    }
+
+    private static <V> V esperar(CompletableFuture<V> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entrada<V> {
+        private final V valor;
+        private final long vence;
+
+        Entrada(V valor, long vence) {
+            this.valor = valor;
+            this.vence = vence;
+        }
+    }
+}
@@ -28,6 +28,18 @@ public class PortalConfiguracionRepository {
         }
     }
 
+    /**
+     * Indica si el tenant fue dado de alta, es decir si existe su schema
+     * (ver TenantAdminService#createTenantSchema). Solo lee el catálogo.
+     */
+    public boolean existeTenant(String tenantId) {
+        Number cantidad = (Number) em.createNativeQuery(
+                "SELECT count(*) FROM information_schema.schemata WHERE schema_name = ?1")
+            .setParameter(1, "schema_clinica_" + tenantId)
+            .getSingleResult();
+        return cantidad.longValue() > 0;
+    }
+
     public PortalConfiguracion save(PortalConfiguracion config) {
         if (config.getId() == null) {
             em.persist(config);
@@ -1,6 +1,7 @@
 package uy.edu.tse.hcen.repository;
 
 import uy.edu.tse.hcen.model.ProfesionalSalud;
+import uy.edu.tse.hcen.perfilado.Perfilado;
 import jakarta.ejb.Stateless;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -8,6 +9,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Stateless
+@Perfilado(almacen = "postgres")
 public class ProfesionalSaludRepository {
 
     @PersistenceContext(unitName = "hcenPersistenceUnit")
@@ -0,0 +1,62 @@
+package uy.edu.tse.hcen.repository;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Updates;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Coordina entre instancias las tareas programadas que deben correr en un solo nodo aunque el
+ * timer se dispare en todos. Cada tarea tiene un documento en {@value #COLECCION} con la instancia
+ * que la reclamó y hasta cuándo; mientras esa reclamación está vigente, las demás no la corren.
+ */
+@ApplicationScoped
+public class TareasProgramadas {
+
+    public static final String COLECCION = "tareas_programadas";
+    private static final int CLAVE_DUPLICADA = 11000;
+
+    // Distinta en cada arranque: dos instancias con el mismo nombre de nodo no se confunden
+    private final String instancia = System.getProperty("jboss.node.name", "nodo") + "-" + UUID.randomUUID();
+
+    @Inject
+    private MongoDatabase database;
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public TareasProgramadas() {
+    }
+
+    /**
+     * Reclama la tarea para esta instancia durante {@code duracionMs} si ninguna la tiene reclamada.
+     * Es atómico: un findOneAndUpdate con upsert sobre el _id de la tarea que solo coincide si la
+     * reclamación anterior venció; si otra instancia la tiene vigente, el upsert choca con ese _id.
+     *
+     * @return true si esta instancia debe correr la tarea.
+     */
+    public boolean reclamar(String tarea, long duracionMs) {
+        Date ahora = new Date();
+        try {
+            database.getCollection(COLECCION).findOneAndUpdate(
+                    Filters.and(Filters.eq("_id", tarea), Filters.lt("hasta", ahora)),
+                    Updates.combine(Updates.set("instancia", instancia), Updates.set("desde", ahora),
+                            Updates.set("hasta", new Date(ahora.getTime() + duracionMs))),
+                    new FindOneAndUpdateOptions().upsert(true));
+            return true;
+        } catch (MongoException e) {
+            if (e.getCode() == CLAVE_DUPLICADA) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    public String getInstancia() {
+        return instancia;
+    }
+}
@@ -3,6 +3,7 @@ package uy.edu.tse.hcen.security;
 import uy.edu.tse.hcen.multitenancy.SchemaTenantResolver;
 import uy.edu.tse.hcen.utils.TokenUtils;
 import uy.edu.tse.hcen.context.TenantContext; // Clase de utilidad para almacenar el ID
+import uy.edu.tse.hcen.perfilado.AutenticacionEvento;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import jakarta.annotation.Priority;
@@ -46,6 +47,16 @@ public class TenantAuthFilter implements ContainerRequestFilter {
             return; 
         }
 
+        // La hoja de estilos del portal se referencia desde <link> (sin token); el tenant va en la URL
+        if (requestContext.getUriInfo().getPath().matches(".*/portal-configuracion/[^/]+/tema[^/]*\\.css")) {
+            return;
+        }
+
+        // Los logos se sirven por hash de contenido y también se referencian desde <img>
+        if ("GET".equals(requestContext.getMethod()) && requestContext.getUriInfo().getPath().contains("/assets/logos/")) {
+            return;
+        }
+
         if (authorizationHeader == null || !authorizationHeader.startsWith(AUTH_SCHEME + " ")) {
             // No hay token o el formato es incorrecto
             abortRequest(requestContext, "Token de autorización requerido.");
@@ -55,6 +66,9 @@ public class TenantAuthFilter implements ContainerRequestFilter {
         // Extraer el token (eliminar "Bearer ")
         String token = authorizationHeader.substring(AUTH_SCHEME.length()).trim();
 
+        // Evento JFR de la validación del token (ver AuthTokenFilter)
+        AutenticacionEvento autenticacion = new AutenticacionEvento();
+        autenticacion.begin();
         try {
             // 2. Verificar y obtener el Tenant ID usando TokenUtils
             String tenantId = TokenUtils.getTenantIdFromToken(token);
@@ -74,6 +88,8 @@ public class TenantAuthFilter implements ContainerRequestFilter {
             tenantContext.setTenantId(tenantId);
             tenantContext.setRole(role);
             tenantContext.setNickname(nickname);
+            // Misma propiedad que AuthTokenFilter: el filtro de métricas etiqueta la latencia con el tenant
+            requestContext.setProperty("auth.tenant", tenantId);
 
             // Crear un SecurityContext temporal que provee Principal y verificación de roles
             final String userRole = role != null ? role : "";
@@ -105,6 +121,8 @@ public class TenantAuthFilter implements ContainerRequestFilter {
 
             // Establecer el SecurityContext en la solicitud para que JAX-RS y @RolesAllowed funcionen
             requestContext.setSecurityContext(sc);
+            autenticacion.setTenant(tenantId);
+            autenticacion.setValido(true);
 
             
         } catch (JwtException e) {
@@ -112,6 +130,8 @@ public class TenantAuthFilter implements ContainerRequestFilter {
             abortRequest(requestContext, "Token inválido o expirado.");
         } catch (Exception e) {
              abortRequest(requestContext, "Error de servidor al procesar el token.");
+        } finally {
+            autenticacion.terminar("jwt");
         }
     }
     
@@ -0,0 +1,56 @@
+package uy.edu.tse.hcen.service;
+
+import com.mongodb.client.MongoCursor;
+import jakarta.ejb.AsyncResult;
+import jakarta.ejb.Asynchronous;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import uy.edu.tse.hcen.repository.ActividadDiaria;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tarea en segundo plano que reconstruye los resúmenes diarios de actividad (ver
+ * {@link ActividadDiaria}) recorriendo los documentos clínicos del tenant. Se usa una vez para la
+ * historia previa a los resúmenes, o para corregir un resumen que quedó desviado.
+ */
+@Stateless
+public class ActividadDiariaService {
+
+    private static final Logger LOGGER = Logger.getLogger(ActividadDiariaService.class.getName());
+    private static final int LOTE_LECTURA = 1000;
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    @Inject
+    private ActividadDiaria actividadDiaria;
+
+    /**
+     * Reconstruye los resúmenes de un tenant, o de todos los que tienen colección si
+     * {@code tenantId} es null. Devuelve el resumen por tenant.
+     */
+    @Asynchronous
+    public Future<Map<String, Map<String, Long>>> reconstruir(String tenantId) {
+        List<String> tenants = tenantId != null ? List.of(tenantId) : documentoClinicoRepository.listarTenantsConDocumentos();
+        List<String> campos = List.of(DocumentoClinicoRepository.CAMPO_FECHA, actividadDiaria.getCampoTipo());
+        Map<String, Map<String, Long>> resumen = new LinkedHashMap<>();
+        for (String tenant : tenants) {
+            try (MongoCursor<Document> documentos = documentoClinicoRepository.abrirCursorTenant(tenant, campos, LOTE_LECTURA)) {
+                Map<String, Long> resultado = actividadDiaria.reconstruir(tenant, documentos);
+                resumen.put(tenant, resultado);
+                LOGGER.log(Level.INFO, "Actividad diaria del tenant {0} reconstruida: {1}", new Object[]{tenant, resultado});
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Reconstrucción de la actividad diaria del tenant " + tenant + " fallida", e);
+            }
+        }
+        return new AsyncResult<>(resumen);
+    }
+}
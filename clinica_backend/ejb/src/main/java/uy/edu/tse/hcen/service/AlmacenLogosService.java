@@ -0,0 +1,284 @@
+package uy.edu.tse.hcen.service;
+
+import uy.edu.tse.hcen.utils.ConfigUtils;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Almacén local de logos direccionado por contenido (SHA-256).
+ *
+ * Cada logo se guarda una sola vez bajo {@code <data>/logos/<2 primeros hex>/<hash>.<ext>},
+ * junto con variantes PNG redimensionadas a los anchos de {@link #ANCHOS_VARIANTES}.
+ * Como el nombre depende del contenido, los archivos nunca cambian y pueden servirse
+ * con caché inmutable.
+ */
+@ApplicationScoped
+public class AlmacenLogosService {
+
+    private static final Logger LOGGER = Logger.getLogger(AlmacenLogosService.class.getName());
+
+    public static final List<Integer> ANCHOS_VARIANTES = List.of(64, 128, 256, 512);
+
+    private static final Pattern HASH_VALIDO = Pattern.compile("^[0-9a-f]{64}$");
+    private static final List<String> EXTENSIONES = List.of("png", "jpg", "gif");
+    private static final long MAX_PIXELES = 25_000_000L;
+
+    private final Path directorio = Paths.get(ConfigUtils.getDataDir(), "logos");
+    private final long maxBytes = ConfigUtils.getLong("HCEN_LOGO_MAX_BYTES", 2L * 1024 * 1024);
+
+    /**
+     * Ancho del original por hash, anotado al generar sus variantes (0 si no se pudo decodificar).
+     * Evita volver a decodificar la imagen en cada GET que pide un ancho sin variante.
+     */
+    private final Map<String, Integer> anchosOriginales = new ConcurrentHashMap<>();
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public AlmacenLogosService() {
+    }
+
+    /**
+     * Guarda el logo leído del stream (sin cargarlo entero en memoria), genera sus variantes
+     * y devuelve el hash de contenido. Si el mismo contenido ya existía, no se duplica.
+     *
+     * @throws IllegalArgumentException si el contenido supera el tamaño máximo o no es una imagen PNG/JPEG/GIF.
+     */
+    public String guardar(InputStream contenido) throws IOException {
+        Files.createDirectories(directorio);
+        Path temporal = Files.createTempFile(directorio, "subida-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long total = 0;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temporal), digest)) {
+                byte[] buffer = new byte[8192];
+                int leidos;
+                while ((leidos = contenido.read(buffer)) != -1) {
+                    total += leidos;
+                    if (total > maxBytes) {
+                        throw new IllegalArgumentException("El logo supera el tamaño máximo de " + maxBytes + " bytes");
+                    }
+                    out.write(buffer, 0, leidos);
+                }
+            }
+
+            String formato = detectarFormato(temporal);
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path destino = rutaOriginal(hash, extension(formato));
+            Files.createDirectories(destino.getParent());
+            moverSiNoExiste(temporal, destino);
+            generarVariantes(hash, destino);
+            return hash;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Resuelve el archivo a servir para un hash y un ancho pedido (opcional). Se elige la
+     * variante más chica que cubra el ancho; si ninguna lo cubre se devuelve el original.
+     * Las variantes no menores que el original nunca se generan: en ese caso también se
+     * devuelve el original, sin volver a intentar generarlas.
+     */
+    public Optional<ArchivoLogo> resolver(String hash, Integer ancho) throws IOException {
+        if (hash == null || !HASH_VALIDO.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Optional<Path> original = buscarOriginal(hash);
+        if (original.isEmpty()) {
+            return Optional.empty();
+        }
+        if (ancho != null) {
+            for (Integer variante : ANCHOS_VARIANTES) {
+                if (variante >= ancho) {
+                    Path ruta = rutaVariante(hash, variante);
+                    if (!Files.exists(ruta)) {
+                        Integer anchoOriginal = anchosOriginales.get(hash);
+                        if (anchoOriginal != null && variante >= anchoOriginal) {
+                            break;
+                        }
+                        generarVariantes(hash, original.get());
+                    }
+                    if (Files.exists(ruta)) {
+                        return Optional.of(new ArchivoLogo(ruta, "image/png", hash + "-" + variante));
+                    }
+                    break;
+                }
+            }
+        }
+        Path ruta = original.get();
+        return Optional.of(new ArchivoLogo(ruta, tipoMime(ruta), hash));
+    }
+
+    private Optional<Path> buscarOriginal(String hash) {
+        for (String ext : EXTENSIONES) {
+            Path ruta = rutaOriginal(hash, ext);
+            if (Files.exists(ruta)) {
+                return Optional.of(ruta);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Genera las variantes más chicas que el original que todavía no existan.
+     * Los errores se registran pero no invalidan el original.
+     */
+    private void generarVariantes(String hash, Path original) {
+        try {
+            BufferedImage imagen = ImageIO.read(original.toFile());
+            if (imagen == null) {
+                anchosOriginales.put(hash, 0);
+                return;
+            }
+            anchosOriginales.put(hash, imagen.getWidth());
+            for (Integer ancho : ANCHOS_VARIANTES) {
+                Path ruta = rutaVariante(hash, ancho);
+                if (ancho >= imagen.getWidth() || Files.exists(ruta)) {
+                    continue;
+                }
+                int alto = Math.max(1, Math.round((float) imagen.getHeight() * ancho / imagen.getWidth()));
+                BufferedImage escalada = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = escalada.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                    g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    g.drawImage(imagen, 0, 0, ancho, alto, null);
+                } finally {
+                    g.dispose();
+                }
+                Path temporal = Files.createTempFile(ruta.getParent(), "variante-", ".tmp");
+                try {
+                    ImageIO.write(escalada, "png", temporal.toFile());
+                    moverSiNoExiste(temporal, ruta);
+                } finally {
+                    Files.deleteIfExists(temporal);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            anchosOriginales.putIfAbsent(hash, 0);
+            LOGGER.log(Level.WARNING, "No se pudieron generar variantes del logo " + hash, e);
+        }
+    }
+
+    /**
+     * Valida la imagen leyendo solo su cabecera (formato y dimensiones) antes de decodificarla.
+     */
+    private static String detectarFormato(Path archivo) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(archivo.toFile())) {
+            Iterator<ImageReader> readers = iis == null ? null : ImageIO.getImageReaders(iis);
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("El archivo no es una imagen soportada (PNG, JPEG o GIF)");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                String formato = reader.getFormatName().toLowerCase();
+                if (!formato.equals("png") && !formato.equals("jpeg") && !formato.equals("gif")) {
+                    throw new IllegalArgumentException("Formato de imagen no soportado: " + formato);
+                }
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELES) {
+                    throw new IllegalArgumentException("La imagen tiene demasiados píxeles");
+                }
+                return formato;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static void moverSiNoExiste(Path origen, Path destino) throws IOException {
+        if (Files.exists(destino)) {
+            return;
+        }
+        try {
+            Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(origen, destino);
+            } catch (FileAlreadyExistsException ignored) {
+                // otra subida concurrente con el mismo contenido ganó la carrera
+            }
+        } catch (FileAlreadyExistsException ignored) {
+            // otra subida concurrente con el mismo contenido ganó la carrera
+        }
+    }
+
+    private Path rutaOriginal(String hash, String ext) {
+        return directorio.resolve(hash.substring(0, 2)).resolve(hash + "." + ext);
+    }
+
+    private Path rutaVariante(String hash, int ancho) {
+        return directorio.resolve(hash.substring(0, 2)).resolve(hash + "-" + ancho + ".png");
+    }
+
+    private static String extension(String formato) {
+        return formato.equals("jpeg") ? "jpg" : formato;
+    }
+
+    private static String tipoMime(Path ruta) {
+        String nombre = ruta.getFileName().toString();
+        if (nombre.endsWith(".jpg")) return "image/jpeg";
+        if (nombre.endsWith(".gif")) return "image/gif";
+        return "image/png";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Archivo resuelto listo para servir. El etag identifica de forma única el contenido.
+     */
+    public static final class ArchivoLogo {
+        private final Path ruta;
+        private final String tipoMime;
+        private final String etag;
+
+        ArchivoLogo(Path ruta, String tipoMime, String etag) {
+            this.ruta = ruta;
+            this.tipoMime = tipoMime;
+            this.etag = etag;
+        }
+
+        public Path getRuta() {
+            return ruta;
+        }
+
+        public String getTipoMime() {
+            return tipoMime;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package uy.edu.tse.hcen.service;
+
+import jakarta.ejb.AsyncResult;
+import jakarta.ejb.Asynchronous;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tarea en segundo plano que pasa al archivo frío los documentos clínicos más viejos que
+ * {@code HCEN_ARCHIVO_DIAS} (ver {@link uy.edu.tse.hcen.repository.ArchivoDocumentos}).
+ */
+@Stateless
+public class ArchivadoDocumentosService {
+
+    private static final Logger LOGGER = Logger.getLogger(ArchivadoDocumentosService.class.getName());
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    /**
+     * @return la antigüedad configurada en días; 0 si el archivado no está configurado.
+     */
+    public static int diasConfigurados() {
+        return ConfigUtils.getInt("HCEN_ARCHIVO_DIAS", 0);
+    }
+
+    /**
+     * Archiva los documentos de más de {@code dias} días de un tenant, o de todos los que tienen
+     * colección si {@code tenantId} es null. Devuelve el resumen por tenant.
+     */
+    @Asynchronous
+    public Future<Map<String, Map<String, Long>>> archivar(String tenantId, int dias) {
+        Date limite = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(dias));
+        List<String> tenants = tenantId != null ? List.of(tenantId) : documentoClinicoRepository.listarTenantsConDocumentos();
+        Map<String, Map<String, Long>> resumen = new LinkedHashMap<>();
+        for (String tenant : tenants) {
+            try {
+                resumen.put(tenant, documentoClinicoRepository.archivarAnteriores(tenant, limite));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Archivado de documentos del tenant " + tenant + " fallido", e);
+            }
+        }
+        return new AsyncResult<>(resumen);
+    }
+}
@@ -0,0 +1,59 @@
+package uy.edu.tse.hcen.service;
+
+import com.mongodb.client.MongoCursor;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.RawBsonDocument;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+import uy.edu.tse.hcen.utils.BsonJsonUtils;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exportación de la historia clínica completa de un paciente (p. ej. al cambiar de prestador)
+ * como NDJSON. Los documentos se escriben a medida que llegan del cursor de Mongo, así que la
+ * memoria usada depende del tamaño del lote del cursor y no de la cantidad de documentos.
+ * Cada documento se transcodifica de BSON a JSON sin decodificarlo a un {@code Document}.
+ */
+@ApplicationScoped
+public class ExportacionDocumentosService {
+
+    private static final Logger LOGGER = Logger.getLogger(ExportacionDocumentosService.class.getName());
+
+    private final int batchSize = ConfigUtils.getInt("HCEN_MONGO_EXPORT_BATCH", 500);
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public ExportacionDocumentosService() {
+    }
+
+    /**
+     * Escribe un documento JSON por línea en {@code salida}, en orden cronológico.
+     *
+     * @return la cantidad de documentos exportados.
+     */
+    public long exportarNdjson(String pacienteDoc, OutputStream salida) throws IOException {
+        long exportados = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+        try (MongoCursor<RawBsonDocument> cursor = documentoClinicoRepository.abrirCursorPorPaciente(pacienteDoc, batchSize)) {
+            while (cursor.hasNext()) {
+                BsonJsonUtils.escribirJson(cursor.next(), writer);
+                writer.write('\n');
+                exportados++;
+            }
+        }
+        writer.flush();
+        LOGGER.log(Level.FINE, "ExportacionDocumentosService: {0} documentos exportados", exportados);
+        return exportados;
+    }
+}
@@ -0,0 +1,528 @@
+package uy.edu.tse.hcen.service;
+
+import com.mongodb.client.MongoCursor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.FSDirectory;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import uy.edu.tse.hcen.config.MongoDBProducer;
+import uy.edu.tse.hcen.dto.DocumentosGuardados;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+import uy.edu.tse.hcen.utils.CompresionUtils;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Índice de texto completo del contenido de los documentos clínicos, con Lucene embebido.
+ *
+ * Cada tenant tiene su índice en disco local ({@code <HCEN_DATA_DIR>/lucene/<tenantId>}), así
+ * que una búsqueda nunca recorre colecciones de Mongo ni mezcla clínicas. El índice se mantiene
+ * incrementalmente observando {@link DocumentosGuardados}: los documentos confirmados se indexan
+ * en un hilo propio, fuera de la solicitud que los guardó. Los cambios quedan visibles para las
+ * búsquedas cada {@code HCEN_BUSQUEDA_REFRESCO_MS} (near real-time) y se confirman en disco cada
+ * {@code HCEN_BUSQUEDA_COMMIT_MS}. Lo guardado antes de habilitar el índice se recupera con
+ * {@link #reconstruir(String)}.
+ *
+ * Cada instancia tiene su propio índice y solo observa sus propias inserciones. Para que las
+ * búsquedas coincidan entre instancias, cada {@code HCEN_BUSQUEDA_SINCRONIZAR_S} segundos se
+ * recorren los _id ObjectId de la colección generados desde la marca de la última puesta al día
+ * (con {@value #MARGEN_SINCRONIZACION_MS} ms de margen) y se indexan los que falten. La marca se
+ * confirma en disco junto con el índice, así que también se recupera lo insertado por otras
+ * instancias mientras esta estaba caída y lo perdido por una caída entre commits. Los documentos
+ * con _id elegido por el cliente y guardados en otra instancia solo entran con una reconstrucción.
+ *
+ * El contenido se analiza con {@link SpanishAnalyzer} (minúsculas, stopwords y stemming en
+ * español), de modo que "fracturas" encuentra "fractura".
+ */
+@ApplicationScoped
+public class IndiceTextoService {
+
+    private static final Logger LOGGER = Logger.getLogger(IndiceTextoService.class.getName());
+
+    static final String CAMPO_ID = "id";
+    static final String CAMPO_PACIENTE = "paciente";
+    static final String CAMPO_FECHA = "fecha";
+    static final String CAMPO_CONTENIDO = "contenido";
+
+    public static final int LIMITE_MAXIMO = 100;
+
+    // Clave de los datos del commit con la marca de la última puesta al día desde Mongo
+    private static final String CLAVE_SINCRONIZADO = "hcen.sincronizadoHasta";
+    static final long MARGEN_SINCRONIZACION_MS = 120_000;
+    private static final int LOTE_SINCRONIZACION = 500;
+    private static final List<String> CAMPOS_INDEXADOS = List.of("_id", DocumentoClinicoRepository.CAMPO_PACIENTE,
+            DocumentoClinicoRepository.CAMPO_FECHA, CompresionUtils.CAMPO_CONTENIDO, CompresionUtils.CAMPO_CODEC);
+
+    // Guarda offsets para que el resaltado no tenga que volver a analizar el texto
+    private static final FieldType TIPO_CONTENIDO = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        TIPO_CONTENIDO.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        TIPO_CONTENIDO.freeze();
+    }
+
+    private final boolean habilitado = ConfigUtils.getBoolean("HCEN_BUSQUEDA_HABILITADA", true);
+    private final long refrescoMs = ConfigUtils.getLong("HCEN_BUSQUEDA_REFRESCO_MS", 1000);
+    private final long commitMs = ConfigUtils.getLong("HCEN_BUSQUEDA_COMMIT_MS", 30000);
+    private final int capacidadCola = ConfigUtils.getInt("HCEN_BUSQUEDA_COLA", 10000);
+    private final long sincronizarS = ConfigUtils.getLong("HCEN_BUSQUEDA_SINCRONIZAR_S", 30);
+    private final Path directorioBase = Paths.get(ConfigUtils.getDataDir(), "lucene");
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    @Inject
+    private MongoDBProducer mongoDBProducer;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private final Analyzer analizador = new SpanishAnalyzer();
+    private final Map<String, Indice> indices = new ConcurrentHashMap<>();
+    // Tenants en reconstrucción: no se refrescan sus searchers hasta el commit final
+    private final Set<String> reconstruyendo = ConcurrentHashMap.newKeySet();
+
+    // Un solo hilo indexa, en orden de llegada; con la cola llena indexa el hilo que guardó (backpressure)
+    private ThreadPoolExecutor indexador;
+    private ScheduledExecutorService mantenimiento;
+    // Aparte del mantenimiento: una consulta lenta a Mongo no demora refrescos ni commits
+    private ScheduledExecutorService sincronizacion;
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public IndiceTextoService() {
+    }
+
+    @PostConstruct
+    void init() {
+        if (!habilitado) {
+            return;
+        }
+        indexador = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, capacidadCola)), runnable -> {
+                    Thread hilo = threadFactory.newThread(runnable);
+                    hilo.setName("hcen-indice-texto");
+                    return hilo;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        mantenimiento = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread hilo = threadFactory.newThread(runnable);
+            hilo.setName("hcen-indice-texto-commit");
+            return hilo;
+        });
+        mantenimiento.scheduleWithFixedDelay(this::refrescar, refrescoMs, refrescoMs, TimeUnit.MILLISECONDS);
+        mantenimiento.scheduleWithFixedDelay(this::confirmar, commitMs, commitMs, TimeUnit.MILLISECONDS);
+        sincronizacion = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread hilo = threadFactory.newThread(runnable);
+            hilo.setName("hcen-indice-texto-sincronizacion");
+            return hilo;
+        });
+        // La primera puesta al día espera a que Mongo esté conectado (ver MongoDBProducer)
+        mongoDBProducer.iniciar().thenRun(() -> {
+            try {
+                long intervalo = Math.max(1, sincronizarS);
+                sincronizacion.scheduleWithFixedDelay(this::sincronizarTodos, 0, intervalo, TimeUnit.SECONDS);
+            } catch (RejectedExecutionException e) {
+                // Detenido antes de que Mongo estuviera listo
+            }
+        });
+        LOGGER.log(Level.INFO, "IndiceTextoService: índice de texto en {0} (refresco={1} ms, commit={2} ms)",
+                new Object[]{directorioBase, refrescoMs, commitMs});
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (!habilitado) {
+            return;
+        }
+        indexador.shutdown();
+        try {
+            indexador.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mantenimiento.shutdownNow();
+        sincronizacion.shutdownNow();
+        for (Map.Entry<String, Indice> entrada : indices.entrySet()) {
+            try {
+                entrada.getValue().cerrar();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "IndiceTextoService: error cerrando el índice del tenant " + entrada.getKey(), e);
+            }
+        }
+        indices.clear();
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Encola los documentos recién guardados para indexarlos. No se indexa en el hilo que guardó
+     * salvo que la cola esté llena.
+     */
+    void alGuardar(@Observes DocumentosGuardados evento) {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            indexador.execute(() -> indexarLote(evento.getTenantId(), evento.getDocumentos()));
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "IndiceTextoService: índice cerrado, no se indexan {0} documentos",
+                    evento.getDocumentos().size());
+        }
+    }
+
+    private void indexarLote(String tenantId, List<Document> documentos) {
+        try {
+            IndexWriter writer = indice(tenantId).writer;
+            for (Document documento : documentos) {
+                indexar(writer, documento);
+            }
+        } catch (IOException | RuntimeException e) {
+            // El documento ya está en Mongo; queda fuera del índice hasta la próxima reconstrucción
+            LOGGER.log(Level.WARNING, "IndiceTextoService: error indexando documentos del tenant " + tenantId, e);
+        }
+    }
+
+    private static void indexar(IndexWriter writer, Document documento) throws IOException {
+        Object id = documento.get("_id");
+        String texto = CompresionUtils.textoContenido(documento);
+        if (id == null || texto == null) {
+            return;
+        }
+        String clave = clave(id);
+        org.apache.lucene.document.Document doc = new org.apache.lucene.document.Document();
+        doc.add(new StringField(CAMPO_ID, clave, Field.Store.YES));
+        String paciente = documento.getString(DocumentoClinicoRepository.CAMPO_PACIENTE);
+        if (paciente != null) {
+            doc.add(new StringField(CAMPO_PACIENTE, paciente, Field.Store.YES));
+        }
+        if (documento.get(DocumentoClinicoRepository.CAMPO_FECHA) instanceof Date fecha) {
+            doc.add(new LongPoint(CAMPO_FECHA, fecha.getTime()));
+            doc.add(new StoredField(CAMPO_FECHA, fecha.getTime()));
+        }
+        doc.add(new Field(CAMPO_CONTENIDO, texto, TIPO_CONTENIDO));
+        // Reemplaza la versión anterior si el documento ya estaba indexado (reconstrucción, reintento)
+        writer.updateDocument(new Term(CAMPO_ID, clave), doc);
+    }
+
+    /**
+     * Busca en el contenido de los documentos del tenant del contexto, opcionalmente solo los
+     * de un paciente. La consulta admite la sintaxis simple de Lucene: términos (todos
+     * obligatorios), "frases", prefijo*, -exclusión y a | b.
+     *
+     * @return los resultados por relevancia, cada uno con _id, pacienteDoc, fechaCreacion,
+     *         score y un fragmento del contenido con los términos resaltados.
+     * @throws IllegalArgumentException si la consulta está vacía.
+     */
+    public List<Document> buscar(String consulta, String pacienteDoc, int limite) throws IOException {
+        if (consulta == null || consulta.isBlank()) {
+            throw new IllegalArgumentException("La consulta no puede estar vacía");
+        }
+        Indice indice = indice(DocumentoClinicoRepository.tenantRequerido());
+
+        SimpleQueryParser parser = new SimpleQueryParser(analizador, CAMPO_CONTENIDO);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query texto = parser.parse(consulta);
+        if (texto == null) {
+            // La consulta tenía solo stopwords
+            return List.of();
+        }
+        Query query = texto;
+        if (pacienteDoc != null && !pacienteDoc.isBlank()) {
+            query = new BooleanQuery.Builder()
+                    .add(texto, BooleanClause.Occur.MUST)
+                    .add(new TermQuery(new Term(CAMPO_PACIENTE, pacienteDoc)), BooleanClause.Occur.FILTER)
+                    .build();
+        }
+
+        IndexSearcher searcher = indice.searcherManager.acquire();
+        try {
+            TopDocs top = searcher.search(query, Math.max(1, Math.min(limite, LIMITE_MAXIMO)));
+            String[] fragmentos = UnifiedHighlighter.builder(searcher, analizador).build()
+                    .highlight(CAMPO_CONTENIDO, query, top);
+            List<Document> resultados = new ArrayList<>(top.scoreDocs.length);
+            for (int i = 0; i < top.scoreDocs.length; i++) {
+                ScoreDoc hit = top.scoreDocs[i];
+                org.apache.lucene.document.Document doc = searcher.storedFields()
+                        .document(hit.doc, Set.of(CAMPO_ID, CAMPO_PACIENTE, CAMPO_FECHA));
+                Document resultado = new Document("_id", valorId(doc.get(CAMPO_ID)))
+                        .append(DocumentoClinicoRepository.CAMPO_PACIENTE, doc.get(CAMPO_PACIENTE));
+                if (doc.getField(CAMPO_FECHA) != null) {
+                    resultado.append(DocumentoClinicoRepository.CAMPO_FECHA,
+                            new Date(doc.getField(CAMPO_FECHA).numericValue().longValue()));
+                }
+                resultado.append("score", (double) hit.score)
+                        .append("fragmento", fragmentos[i]);
+                resultados.add(resultado);
+            }
+            return resultados;
+        } finally {
+            indice.searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Vuelve a armar el índice de un tenant desde su colección en Mongo, leyendo solo los campos
+     * indexados. Las búsquedas siguen respondiendo con el índice anterior hasta el commit final;
+     * lo que se guarde mientras tanto se indexa igual por el camino incremental.
+     *
+     * @return cantidad de documentos recorridos e indexados.
+     */
+    public Map<String, Long> reconstruir(String tenantId) throws IOException {
+        if (!habilitado) {
+            throw new IllegalStateException("El índice de texto está deshabilitado (HCEN_BUSQUEDA_HABILITADA)");
+        }
+        DocumentoClinicoRepository.validarTenant(tenantId);
+        if (!reconstruyendo.add(tenantId)) {
+            throw new IllegalStateException("El índice del tenant " + tenantId + " ya se está reconstruyendo");
+        }
+        try {
+            return reconstruirIndice(tenantId);
+        } finally {
+            reconstruyendo.remove(tenantId);
+        }
+    }
+
+    private Map<String, Long> reconstruirIndice(String tenantId) throws IOException {
+        long revisados = 0;
+        long indexados = 0;
+        long inicio = System.currentTimeMillis();
+        Indice indice = indice(tenantId);
+        IndexWriter writer = indice.writer;
+        writer.deleteAll();
+        try (MongoCursor<Document> cursor = documentoClinicoRepository.abrirCursorTenant(tenantId, CAMPOS_INDEXADOS, 500)) {
+            while (cursor.hasNext()) {
+                Document documento = cursor.next();
+                revisados++;
+                if (CompresionUtils.textoContenido(documento) != null) {
+                    indexar(writer, documento);
+                    indexados++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Descarta el borrado y lo indexado desde el último commit: queda el índice anterior
+            writer.rollback();
+            indices.remove(tenantId, indice);
+            indice.cerrar();
+            throw e;
+        }
+        // Lo insertado por otras instancias durante el recorrido lo trae la próxima puesta al día
+        indice.marcarSincronizado(inicio);
+        writer.commit();
+        indice.searcherManager.maybeRefresh();
+
+        Map<String, Long> resumen = new LinkedHashMap<>();
+        resumen.put("revisados", revisados);
+        resumen.put("indexados", indexados);
+        return resumen;
+    }
+
+    private void sincronizarTodos() {
+        List<String> tenants;
+        try {
+            tenants = documentoClinicoRepository.listarTenantsConDocumentos();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "IndiceTextoService: no se pudieron listar los tenants -> {0}", e.getMessage());
+            return;
+        }
+        for (String tenantId : tenants) {
+            if (reconstruyendo.contains(tenantId)) {
+                continue;
+            }
+            try {
+                sincronizar(tenantId);
+            } catch (IOException | RuntimeException e) {
+                // La marca no avanza: la ventana se vuelve a leer en la próxima
+                LOGGER.log(Level.WARNING, "IndiceTextoService: error poniendo al día el índice del tenant " + tenantId, e);
+            }
+        }
+    }
+
+    /**
+     * Indexa los documentos creados desde la marca del tenant que el índice no tiene (guardados
+     * por otra instancia, o perdidos por una caída antes del commit). Primero se leen solo los _id
+     * y se buscan en el índice; el contenido se trae únicamente de los que faltan.
+     */
+    private void sincronizar(String tenantId) throws IOException {
+        Indice indice = indice(tenantId);
+        long inicio = System.currentTimeMillis();
+        Date desde = new Date(indice.sincronizadoHasta - MARGEN_SINCRONIZACION_MS);
+        List<Object> faltantes = new ArrayList<>();
+        long indexados = 0;
+        IndexSearcher searcher = indice.searcherManager.acquire();
+        try (MongoCursor<Document> cursor = documentoClinicoRepository.abrirCursorCreadosDesde(tenantId, desde,
+                List.of("_id"), LOTE_SINCRONIZACION)) {
+            while (cursor.hasNext()) {
+                Object id = cursor.next().get("_id");
+                if (searcher.count(new TermQuery(new Term(CAMPO_ID, clave(id)))) == 0) {
+                    faltantes.add(id);
+                }
+                if (faltantes.size() == LOTE_SINCRONIZACION) {
+                    indexados += indexarPorIds(tenantId, indice.writer, faltantes);
+                    faltantes.clear();
+                }
+            }
+        } finally {
+            indice.searcherManager.release(searcher);
+        }
+        if (!faltantes.isEmpty()) {
+            indexados += indexarPorIds(tenantId, indice.writer, faltantes);
+        }
+        indice.marcarSincronizado(inicio);
+        if (indexados > 0) {
+            LOGGER.log(Level.FINE, "IndiceTextoService: {0} documentos del tenant {1} indexados desde Mongo",
+                    new Object[]{indexados, tenantId});
+        }
+    }
+
+    private long indexarPorIds(String tenantId, IndexWriter writer, List<Object> ids) throws IOException {
+        long indexados = 0;
+        try (MongoCursor<Document> cursor = documentoClinicoRepository.abrirCursorPorIds(tenantId, ids, CAMPOS_INDEXADOS)) {
+            while (cursor.hasNext()) {
+                Document documento = cursor.next();
+                if (CompresionUtils.textoContenido(documento) != null) {
+                    indexar(writer, documento);
+                    indexados++;
+                }
+            }
+        }
+        return indexados;
+    }
+
+    private Indice indice(String tenantId) {
+        return indices.computeIfAbsent(DocumentoClinicoRepository.validarTenant(tenantId), id -> {
+            try {
+                return new Indice(directorioBase.resolve(id), analizador);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo abrir el índice de texto del tenant " + id, e);
+            }
+        });
+    }
+
+    private void refrescar() {
+        for (Map.Entry<String, Indice> entrada : indices.entrySet()) {
+            if (reconstruyendo.contains(entrada.getKey())) {
+                continue;
+            }
+            try {
+                entrada.getValue().searcherManager.maybeRefresh();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "IndiceTextoService: error refrescando el índice del tenant " + entrada.getKey(), e);
+            }
+        }
+    }
+
+    private void confirmar() {
+        for (Map.Entry<String, Indice> entrada : indices.entrySet()) {
+            try {
+                IndexWriter writer = entrada.getValue().writer;
+                if (!reconstruyendo.contains(entrada.getKey()) && writer.isOpen() && writer.hasUncommittedChanges()) {
+                    writer.commit();
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "IndiceTextoService: error confirmando el índice del tenant " + entrada.getKey(), e);
+            }
+        }
+    }
+
+    private static String clave(Object id) {
+        return id instanceof ObjectId oid ? oid.toHexString() : String.valueOf(id);
+    }
+
+    private static Object valorId(String clave) {
+        return ObjectId.isValid(clave) ? new ObjectId(clave) : clave;
+    }
+
+    /**
+     * Writer y searchers de un tenant. El writer es thread-safe y se comparte entre el indexador,
+     * la reconstrucción, la puesta al día y el commit periódico.
+     */
+    private static final class Indice {
+        private final FSDirectory directorio;
+        private final IndexWriter writer;
+        private final SearcherManager searcherManager;
+        // Documentos creados antes de esta marca (menos el margen) ya se buscaron en Mongo
+        private volatile long sincronizadoHasta;
+
+        Indice(Path ruta, Analyzer analizador) throws IOException {
+            this.directorio = FSDirectory.open(ruta);
+            String marca = DirectoryReader.indexExists(directorio)
+                    ? SegmentInfos.readLatestCommit(directorio).getUserData().get(CLAVE_SINCRONIZADO) : null;
+            IndexWriterConfig config = new IndexWriterConfig(analizador)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            this.writer = new IndexWriter(directorio, config);
+            this.searcherManager = new SearcherManager(writer, null);
+            // Índice nuevo o anterior a la marca: lo previo se recupera reconstruyendo
+            marcarSincronizado(marca != null ? Long.parseLong(marca) : System.currentTimeMillis());
+        }
+
+        /**
+         * Avanza la marca; se guarda en disco con el próximo commit, junto con lo indexado antes.
+         */
+        void marcarSincronizado(long hasta) {
+            sincronizadoHasta = hasta;
+            writer.setLiveCommitData(Map.of(CLAVE_SINCRONIZADO, Long.toString(hasta)).entrySet());
+        }
+
+        void cerrar() throws IOException {
+            try {
+                searcherManager.close();
+                if (writer.isOpen()) {
+                    writer.commit();
+                    writer.close();
+                }
+            } finally {
+                directorio.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package uy.edu.tse.hcen.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.BSONException;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonBinaryWriterSettings;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonSerializationException;
+import org.bson.BsonType;
+import org.bson.BsonWriterSettings;
+import org.bson.RawBsonDocument;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.json.JsonParseException;
+import org.bson.json.JsonReader;
+import org.bson.types.ObjectId;
+import uy.edu.tse.hcen.dto.ResultadoInsercion;
+import uy.edu.tse.hcen.exceptions.DocumentoDemasiadoGrandeException;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+import uy.edu.tse.hcen.utils.CompresionUtils;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+import uy.edu.tse.hcen.utils.HashContenidoUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ingesta de un documento clínico individual leyendo el cuerpo JSON como stream.
+ *
+ * El JSON se recorre token a token y cada valor se escribe directamente como BSON en un buffer,
+ * así que en memoria solo queda el documento en BSON (no el cuerpo completo, ni un String, ni un
+ * mapa). La validación se hace al recorrer: tamaño máximo (se corta apenas se supera), profundidad
+ * de anidamiento, nombres de campo y tipos admitidos. Si la compresión está habilitada, el
+ * contenido se comprime en el mismo recorrido (ver {@link CompresionUtils}), y también se calcula
+ * el hash de contenido que usa la deduplicación (ver {@link HashContenidoUtils}).
+ */
+@ApplicationScoped
+public class IngestaDocumentoService {
+
+    private final long maxBytes = ConfigUtils.getLong("HCEN_MONGO_DOC_MAX_BYTES", 16L * 1024 * 1024);
+    private final int maxProfundidad = ConfigUtils.getInt("HCEN_MONGO_DOC_MAX_PROFUNDIDAD", 32);
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public IngestaDocumentoService() {
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Guarda un documento obtenido con {@link #leerDocumento(InputStream)}. El resultado indica el
+     * _id asignado o, si el paciente ya tenía el mismo contenido, el del documento existente.
+     */
+    public ResultadoInsercion ingerir(RawBsonDocument documento) {
+        return documentoClinicoRepository.guardarDocumentoCrudo(documento);
+    }
+
+    /**
+     * Variante no bloqueante de {@link #ingerir(RawBsonDocument)} (ver
+     * {@link DocumentoClinicoRepository#guardarDocumentoCrudoAsync(RawBsonDocument)}).
+     */
+    public CompletableFuture<ResultadoInsercion> ingerirAsync(RawBsonDocument documento) {
+        return documentoClinicoRepository.guardarDocumentoCrudoAsync(documento);
+    }
+
+    /**
+     * Convierte el JSON del stream en el documento BSON a guardar, con _id, fechaCreacion y
+     * hashContenido agregados si no venían.
+     *
+     * @throws DocumentoDemasiadoGrandeException si el cuerpo o el BSON resultante superan el máximo.
+     * @throws IllegalArgumentException si el JSON no es válido o no cumple las reglas de estructura.
+     */
+    public RawBsonDocument leerDocumento(InputStream entrada) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        InputStreamReader texto = new InputStreamReader(new EntradaLimitada(entrada, maxBytes), StandardCharsets.UTF_8);
+        try (JsonReader lector = new JsonReader(texto);
+             BsonBinaryWriter escritor = new BsonBinaryWriter(new BsonWriterSettings(maxProfundidad + 1),
+                     new BsonBinaryWriterSettings((int) Math.min(Integer.MAX_VALUE, maxBytes)), buffer)) {
+            copiarRaiz(lector, escritor, buffer);
+        } catch (BsonSerializationException e) {
+            throw new DocumentoDemasiadoGrandeException(e.getMessage());
+        } catch (JsonParseException | BsonInvalidOperationException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getMessage(), e);
+        } catch (BSONException e) {
+            // JsonReader envuelve los errores de lectura del stream
+            throw new IllegalArgumentException("No se pudo leer el documento: " + e.getMessage(), e);
+        }
+        return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+    }
+
+    private void copiarRaiz(JsonReader lector, BsonBinaryWriter escritor, BasicOutputBuffer buffer) {
+        if (lector.readBsonType() != BsonType.DOCUMENT) {
+            throw new IllegalArgumentException("El documento debe ser un objeto JSON");
+        }
+        lector.readStartDocument();
+        escritor.writeStartDocument();
+        boolean tieneId = false;
+        boolean tieneFecha = false;
+        CompresionUtils.Comprimido comprimido = null;
+        // El hash se acumula con los bytes de cada elemento a medida que se escribe
+        HashContenidoUtils.Acumulador hash = new HashContenidoUtils.Acumulador();
+        while (lector.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String nombre = validarNombre(lector.readName());
+            if (!"_id".equals(nombre) && HashContenidoUtils.EXCLUIDOS.contains(nombre)) {
+                throw new IllegalArgumentException(nombre + " es un campo reservado");
+            }
+            if (CompresionUtils.CAMPO_CONTENIDO.equals(nombre) && CompresionUtils.isHabilitada()
+                    && lector.getCurrentBsonType() == BsonType.STRING) {
+                String contenido = lector.readString();
+                hash.agregarTexto(nombre, contenido);
+                comprimido = CompresionUtils.comprimir(contenido);
+                if (comprimido != null) {
+                    escritor.writeBinaryData(nombre, comprimido.getBinario());
+                } else {
+                    escritor.writeString(nombre, contenido);
+                }
+                continue;
+            }
+            if ("_id".equals(nombre)) {
+                tieneId = true;
+            } else if (DocumentoClinicoRepository.CAMPO_FECHA.equals(nombre)) {
+                // El listado paginado ordena y arma el cursor sobre este campo
+                if (lector.getCurrentBsonType() != BsonType.DATE_TIME) {
+                    throw new IllegalArgumentException(nombre + " debe ser una fecha ({\"$date\": ...})");
+                }
+                tieneFecha = true;
+            }
+            int inicio = buffer.getPosition();
+            escritor.writeName(nombre);
+            copiarValor(lector, escritor, 1);
+            if (!HashContenidoUtils.EXCLUIDOS.contains(nombre)) {
+                hash.agregarElemento(buffer.getInternalBuffer(), inicio, buffer.getPosition() - inicio);
+            }
+        }
+        lector.readEndDocument();
+        if (!tieneId) {
+            escritor.writeObjectId("_id", new ObjectId());
+        }
+        if (!tieneFecha) {
+            // Fuera del hash, igual que en DocumentoClinicoRepository
+            escritor.writeDateTime(DocumentoClinicoRepository.CAMPO_FECHA, System.currentTimeMillis());
+        }
+        escritor.writeString(HashContenidoUtils.CAMPO_HASH, hash.hex());
+        if (comprimido != null) {
+            escritor.writeName(CompresionUtils.CAMPO_CODEC);
+            escritor.pipe(new BsonDocumentReader(comprimido.getMetadata().toBsonDocument()));
+        }
+        escritor.writeEndDocument();
+    }
+
+    private void copiarValor(JsonReader lector, BsonBinaryWriter escritor, int profundidad) {
+        BsonType tipo = lector.getCurrentBsonType();
+        switch (tipo) {
+            case DOCUMENT -> {
+                verificarProfundidad(profundidad);
+                lector.readStartDocument();
+                escritor.writeStartDocument();
+                while (lector.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    escritor.writeName(validarNombre(lector.readName()));
+                    copiarValor(lector, escritor, profundidad + 1);
+                }
+                lector.readEndDocument();
+                escritor.writeEndDocument();
+            }
+            case ARRAY -> {
+                verificarProfundidad(profundidad);
+                lector.readStartArray();
+                escritor.writeStartArray();
+                while (lector.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    copiarValor(lector, escritor, profundidad + 1);
+                }
+                lector.readEndArray();
+                escritor.writeEndArray();
+            }
+            case STRING -> escritor.writeString(lector.readString());
+            case INT32 -> escritor.writeInt32(lector.readInt32());
+            case INT64 -> escritor.writeInt64(lector.readInt64());
+            case DOUBLE -> escritor.writeDouble(lector.readDouble());
+            case DECIMAL128 -> escritor.writeDecimal128(lector.readDecimal128());
+            case BOOLEAN -> escritor.writeBoolean(lector.readBoolean());
+            case NULL -> {
+                lector.readNull();
+                escritor.writeNull();
+            }
+            case DATE_TIME -> escritor.writeDateTime(lector.readDateTime());
+            case OBJECT_ID -> escritor.writeObjectId(lector.readObjectId());
+            case BINARY -> escritor.writeBinaryData(lector.readBinaryData());
+            case TIMESTAMP -> escritor.writeTimestamp(lector.readTimestamp());
+            case REGULAR_EXPRESSION -> escritor.writeRegularExpression(lector.readRegularExpression());
+            case MIN_KEY -> {
+                lector.readMinKey();
+                escritor.writeMinKey();
+            }
+            case MAX_KEY -> {
+                lector.readMaxKey();
+                escritor.writeMaxKey();
+            }
+            default -> throw new IllegalArgumentException("Tipo de valor no admitido en documentos clínicos: " + tipo);
+        }
+    }
+
+    private void verificarProfundidad(int profundidad) {
+        if (profundidad >= maxProfundidad) {
+            throw new IllegalArgumentException("El documento supera la profundidad máxima de anidamiento (" + maxProfundidad + ")");
+        }
+    }
+
+    private static String validarNombre(String nombre) {
+        if (nombre.isEmpty() || nombre.startsWith("$") || nombre.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("Nombre de campo inválido: '" + nombre + "'");
+        }
+        return nombre;
+    }
+
+    /**
+     * Cuenta los bytes leídos y corta la lectura apenas se supera el máximo, sin esperar a
+     * recibir el resto del cuerpo.
+     */
+    private static final class EntradaLimitada extends FilterInputStream {
+        private final long maxBytes;
+        private long leidos;
+
+        EntradaLimitada(InputStream entrada, long maxBytes) {
+            super(entrada);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                contar(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                contar(n);
+            }
+            return n;
+        }
+
+        private void contar(int n) {
+            leidos += n;
+            if (leidos > maxBytes) {
+                throw new DocumentoDemasiadoGrandeException(maxBytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package uy.edu.tse.hcen.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import uy.edu.tse.hcen.dto.ResultadoInsercion;
+import uy.edu.tse.hcen.repository.ArchivoDocumentos;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ingesta masiva de documentos clínicos en formato NDJSON (un documento JSON por línea).
+ *
+ * La entrada se lee de forma incremental y se escribe en lotes con bulkWrite no ordenado.
+ * No se lee el lote siguiente hasta que Mongo confirmó el actual, así que la memoria usada
+ * queda acotada a un lote y el ritmo de lectura lo marca la base (backpressure hacia el cliente).
+ * Un lote se escribe al llegar a {@code HCEN_MONGO_BULK_LOTE} documentos o a
+ * {@code HCEN_MONGO_BULK_LOTE_MAX_CARACTERES} caracteres de JSON, lo que ocurra primero.
+ * Por cada línea se escribe en la salida una línea NDJSON con su resultado.
+ */
+@ApplicationScoped
+public class IngestaMasivaService {
+
+    private static final Logger LOGGER = Logger.getLogger(IngestaMasivaService.class.getName());
+
+    // Marcador (comparado por identidad) para una línea que superó el máximo y fue descartada
+    private static final String LINEA_DESCARTADA = new String("");
+
+    private final int tamanoLote = Math.max(1, ConfigUtils.getInt("HCEN_MONGO_BULK_LOTE", 1000));
+    private final int maxCaracteresLinea = ConfigUtils.getInt("HCEN_MONGO_BULK_MAX_LINEA", 16 * 1024 * 1024);
+    private final long maxCaracteresLote = ConfigUtils.getLong("HCEN_MONGO_BULK_LOTE_MAX_CARACTERES", 32L * 1024 * 1024);
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public IngestaMasivaService() {
+    }
+
+    /**
+     * Procesa todo el stream NDJSON y escribe los resultados en {@code salida}.
+     * La última línea de la salida es un resumen con los totales, también si la ingesta se
+     * interrumpe por un error (en ese caso el resumen trae el error).
+     */
+    public void ingerirNdjson(InputStream entrada, Writer salida) throws IOException {
+        LectorLineas lector = new LectorLineas(new InputStreamReader(entrada, StandardCharsets.UTF_8), maxCaracteresLinea);
+
+        List<Document> lote = new ArrayList<>(tamanoLote);
+        List<Long> lineasLote = new ArrayList<>(tamanoLote);
+        long caracteresLote = 0;
+        long numeroLinea = 0;
+        long insertados = 0;
+        long fallidos = 0;
+
+        try {
+            String linea;
+            while ((linea = lector.leer()) != null) {
+                numeroLinea++;
+                if (linea == LINEA_DESCARTADA) {
+                    fallidos++;
+                    escribirResultado(salida, numeroLinea,
+                            ResultadoInsercion.error("Línea demasiado larga (máximo " + maxCaracteresLinea + " caracteres)"));
+                    continue;
+                }
+                if (linea.isBlank()) {
+                    continue;
+                }
+                Document documento;
+                try {
+                    documento = Document.parse(linea);
+                } catch (RuntimeException e) {
+                    fallidos++;
+                    escribirResultado(salida, numeroLinea, ResultadoInsercion.error("JSON inválido: " + e.getMessage()));
+                    continue;
+                }
+                if (documento.containsKey(ArchivoDocumentos.CAMPO_ARCHIVO)) {
+                    // Un documento con este campo se leería como stub de uno archivado
+                    fallidos++;
+                    escribirResultado(salida, numeroLinea,
+                            ResultadoInsercion.error(ArchivoDocumentos.CAMPO_ARCHIVO + " es un campo reservado"));
+                    continue;
+                }
+                if (documento.containsKey(DocumentoClinicoRepository.CAMPO_FECHA)
+                        && !(documento.get(DocumentoClinicoRepository.CAMPO_FECHA) instanceof Date)) {
+                    // Misma regla que la ingesta individual: el listado paginado arma el cursor sobre este campo
+                    fallidos++;
+                    escribirResultado(salida, numeroLinea, ResultadoInsercion.error(
+                            DocumentoClinicoRepository.CAMPO_FECHA + " debe ser una fecha ({\"$date\": ...})"));
+                    continue;
+                }
+                lote.add(documento);
+                lineasLote.add(numeroLinea);
+                caracteresLote += linea.length();
+
+                if (lote.size() >= tamanoLote || caracteresLote >= maxCaracteresLote) {
+                    long ok = escribirLote(lote, lineasLote, salida);
+                    insertados += ok;
+                    fallidos += lineasLote.size() - ok;
+                    lote.clear();
+                    lineasLote.clear();
+                    caracteresLote = 0;
+                }
+            }
+            if (!lote.isEmpty()) {
+                long ok = escribirLote(lote, lineasLote, salida);
+                insertados += ok;
+                fallidos += lineasLote.size() - ok;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Las líneas del lote en curso no tienen resultado: cuentan como fallidas
+            fallidos += lineasLote.size();
+            LOGGER.log(Level.WARNING, "IngestaMasivaService: ingesta interrumpida en la línea " + numeroLinea, e);
+            try {
+                escribirResumen(salida, insertados, fallidos, "Ingesta interrumpida en la línea " + numeroLinea + ": " + e.getMessage());
+            } catch (IOException | RuntimeException salidaCerrada) {
+                e.addSuppressed(salidaCerrada);
+            }
+            throw e;
+        }
+        escribirResumen(salida, insertados, fallidos, null);
+        LOGGER.log(Level.INFO, "IngestaMasivaService: {0} insertados, {1} fallidos", new Object[]{insertados, fallidos});
+    }
+
+    private static void escribirResumen(Writer salida, long insertados, long fallidos, String error) throws IOException {
+        Document resumen = new Document("total", insertados + fallidos)
+                .append("insertados", insertados)
+                .append("fallidos", fallidos);
+        if (error != null) {
+            resumen.append("error", error);
+        }
+        salida.write(new Document("resumen", resumen).toJson());
+        salida.write('\n');
+        salida.flush();
+    }
+
+    private long escribirLote(List<Document> lote, List<Long> lineas, Writer salida) throws IOException {
+        List<ResultadoInsercion> resultados = documentoClinicoRepository.insertarLote(lote);
+        long ok = 0;
+        for (int i = 0; i < resultados.size(); i++) {
+            ResultadoInsercion resultado = resultados.get(i);
+            if (resultado.isExitoso()) {
+                ok++;
+            }
+            escribirResultado(salida, lineas.get(i), resultado);
+        }
+        // Se entrega el progreso al cliente lote a lote
+        salida.flush();
+        return ok;
+    }
+
+    private static void escribirResultado(Writer salida, long linea, ResultadoInsercion resultado) throws IOException {
+        Document d = new Document("linea", linea).append("ok", resultado.isExitoso());
+        if (resultado.isExitoso()) {
+            d.append("_id", resultado.getId());
+            if (resultado.isDuplicado()) {
+                d.append("duplicado", true);
+            }
+        } else {
+            d.append("error", resultado.getError());
+        }
+        salida.write(d.toJson());
+        salida.write('\n');
+    }
+
+    /**
+     * Como {@link java.io.BufferedReader#readLine()} pero sin acumular más que el máximo
+     * configurado: una línea más larga se descarta hasta el siguiente salto y se devuelve
+     * {@link #LINEA_DESCARTADA}, para que una entrada sin saltos de línea no agote la memoria.
+     * Lee el stream por bloques y busca los saltos dentro del bloque.
+     */
+    private static final class LectorLineas {
+        private final Reader entrada;
+        private final int maxCaracteres;
+        private final char[] bloque = new char[64 * 1024];
+        private int posicion;
+        private int limite;
+
+        LectorLineas(Reader entrada, int maxCaracteres) {
+            this.entrada = entrada;
+            this.maxCaracteres = maxCaracteres;
+        }
+
+        String leer() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            boolean descartando = false;
+            boolean leyo = false;
+            while (true) {
+                if (posicion == limite) {
+                    limite = entrada.read(bloque);
+                    posicion = 0;
+                    if (limite == -1) {
+                        limite = 0;
+                        if (descartando) {
+                            return LINEA_DESCARTADA;
+                        }
+                        return leyo ? sinRetorno(sb) : null;
+                    }
+                }
+                leyo = true;
+                int inicio = posicion;
+                while (posicion < limite && bloque[posicion] != '\n') {
+                    posicion++;
+                }
+                int largo = posicion - inicio;
+                if (!descartando) {
+                    if (sb.length() + largo > maxCaracteres + 1) {
+                        // +1: el \r de un fin de línea CRLF no cuenta para el máximo
+                        descartando = true;
+                        sb = new StringBuilder();
+                    } else {
+                        sb.append(bloque, inicio, largo);
+                    }
+                }
+                if (posicion < limite) {
+                    posicion++;
+                    if (descartando) {
+                        return LINEA_DESCARTADA;
+                    }
+                    return sinRetorno(sb);
+                }
+            }
+        }
+
+        private String sinRetorno(StringBuilder sb) {
+            int largo = sb.length();
+            if (largo > 0 && sb.charAt(largo - 1) == '\r') {
+                sb.setLength(largo - 1);
+            } else if (largo > maxCaracteres) {
+                return LINEA_DESCARTADA;
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import uy.edu.tse.hcen.utils.PasswordUtils;
 import uy.edu.tse.hcen.model.ProfesionalSalud;
 import uy.edu.tse.hcen.model.AdministradorClinica;
 import uy.edu.tse.hcen.model.UsuarioPeriferico;
+import uy.edu.tse.hcen.perfilado.LoginEvento;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
@@ -38,6 +39,19 @@ public class LoginService {
     }
 
     public LoginResponse authenticateAndGenerateToken(String nickname, String rawPassword) throws SecurityException {
+        // JFR event covering lookup, password verification and token generation
+        LoginEvento evento = new LoginEvento();
+        evento.begin();
+        try {
+            LoginResponse response = authenticate(nickname, rawPassword);
+            evento.setExitoso(true);
+            return response;
+        } finally {
+            evento.terminar("login");
+        }
+    }
+
+    private LoginResponse authenticate(String nickname, String rawPassword) {
     // Resolve authentication against the GLOBAL schema (public).
     tenantResolver.setTenantIdentifier(null);
     TenantContext.clear();
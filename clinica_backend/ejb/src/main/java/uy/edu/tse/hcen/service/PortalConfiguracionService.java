@@ -2,15 +2,21 @@ package uy.edu.tse.hcen.service;
 
 import uy.edu.tse.hcen.dto.ConfiguracionPortalDTO;
 import uy.edu.tse.hcen.model.PortalConfiguracion;
+import uy.edu.tse.hcen.multitenancy.TenantContext;
 import uy.edu.tse.hcen.repository.PortalConfiguracionRepository;
+import uy.edu.tse.hcen.service.TemaPortalService.TemaCompilado;
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
+import java.util.Objects;
 
 @Stateless
 public class PortalConfiguracionService {
 
     @Inject
     private PortalConfiguracionRepository configRepository;
+
+    @Inject
+    private TemaPortalService temaService;
      
     /**
      * Obtiene la configuración actual del tenant, o crea la configuración por defecto si no existe.
@@ -27,13 +33,58 @@ public class PortalConfiguracionService {
         PortalConfiguracion config = configRepository.findCurrentConfig()
             .orElseGet(this::createDefaultConfig);
 
+        boolean cambio = false;
+
         // Mapeo DTO a Entidad
-        if (dto.colorPrimario != null) config.setColorPrimario(dto.colorPrimario);
-        if (dto.colorSecundario != null) config.setColorSecundario(dto.colorSecundario);
-        if (dto.logoUrl != null) config.setLogoUrl(dto.logoUrl);
-        if (dto.nombrePortal != null) config.setNombrePortal(dto.nombrePortal);
+        if (dto.colorPrimario != null && !dto.colorPrimario.equals(config.getColorPrimario())) {
+            config.setColorPrimario(dto.colorPrimario);
+            cambio = true;
+        }
+        if (dto.colorSecundario != null && !dto.colorSecundario.equals(config.getColorSecundario())) {
+            config.setColorSecundario(dto.colorSecundario);
+            cambio = true;
+        }
+        if (dto.logoUrl != null && !dto.logoUrl.equals(config.getLogoUrl())) {
+            config.setLogoUrl(dto.logoUrl);
+            cambio = true;
+        }
+        if (dto.nombrePortal != null && !dto.nombrePortal.equals(config.getNombrePortal())) {
+            config.setNombrePortal(dto.nombrePortal);
+            cambio = true;
+        }
+
+        PortalConfiguracion guardada = configRepository.save(config);
+
+        // Solo se regenera la hoja de estilos cuando algo cambió; si no, el hash y la URL se mantienen
+        if (cambio || temaService.obtener(tenantActual()) == null) {
+            temaService.compilar(tenantActual(), guardada);
+        }
+        return guardada;
+    }
+
+    /**
+     * Devuelve la hoja de estilos compilada del tenant actual. Solo consulta la base
+     * cuando el tema todavía no está en caché (p. ej. tras un redeploy). La usa el endpoint
+     * público del CSS, sin token, así que es de solo lectura: nunca escribe en la base ni
+     * cachea temas de tenants inexistentes. Un tenant sin configuración guardada recibe el
+     * tema por defecto.
+     *
+     * @return null si el tenant actual no existe.
+     */
+    public TemaCompilado getTemaCompilado() {
+        String tenant = tenantActual();
+        TemaCompilado tema = temaService.obtener(tenant);
+        if (tema != null) {
+            return tema;
+        }
+        if (!configRepository.existeTenant(tenant)) {
+            return null;
+        }
+        return temaService.compilar(tenant, configRepository.findCurrentConfig().orElseGet(PortalConfiguracion::new));
+    }
 
-        return configRepository.save(config);
+    private static String tenantActual() {
+        return Objects.requireNonNullElse(TenantContext.getCurrentTenant(), "public");
     }
 
     private PortalConfiguracion createDefaultConfig() {
@@ -0,0 +1,45 @@
+package uy.edu.tse.hcen.service;
+
+import jakarta.ejb.AsyncResult;
+import jakarta.ejb.Asynchronous;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tarea en segundo plano que comprime el contenido de los documentos clínicos guardados antes
+ * de habilitar la compresión (ver {@link uy.edu.tse.hcen.utils.CompresionUtils}).
+ */
+@Stateless
+public class RecompresionDocumentosService {
+
+    private static final Logger LOGGER = Logger.getLogger(RecompresionDocumentosService.class.getName());
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    /**
+     * Recomprime los documentos de un tenant, o de todos los que tienen colección si
+     * {@code tenantId} es null. Devuelve el resumen por tenant.
+     */
+    @Asynchronous
+    public Future<Map<String, Map<String, Long>>> recomprimir(String tenantId) {
+        List<String> tenants = tenantId != null ? List.of(tenantId) : documentoClinicoRepository.listarTenantsConDocumentos();
+        Map<String, Map<String, Long>> resumen = new LinkedHashMap<>();
+        for (String tenant : tenants) {
+            try {
+                resumen.put(tenant, documentoClinicoRepository.comprimirExistentes(tenant));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Recompresión de documentos del tenant " + tenant + " fallida", e);
+            }
+        }
+        return new AsyncResult<>(resumen);
+    }
+}
@@ -0,0 +1,51 @@
+package uy.edu.tse.hcen.service;
+
+import jakarta.ejb.AsyncResult;
+import jakarta.ejb.Asynchronous;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tarea en segundo plano que reconstruye el índice de texto de los documentos clínicos desde
+ * Mongo (ver {@link IndiceTextoService}).
+ */
+@Stateless
+public class ReindexacionTextoService {
+
+    private static final Logger LOGGER = Logger.getLogger(ReindexacionTextoService.class.getName());
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    @Inject
+    private IndiceTextoService indiceTextoService;
+
+    /**
+     * Reconstruye el índice de un tenant, o de todos los que tienen colección si
+     * {@code tenantId} es null. Devuelve el resumen por tenant.
+     */
+    @Asynchronous
+    public Future<Map<String, Map<String, Long>>> reindexar(String tenantId) {
+        List<String> tenants = tenantId != null ? List.of(tenantId) : documentoClinicoRepository.listarTenantsConDocumentos();
+        Map<String, Map<String, Long>> resumen = new LinkedHashMap<>();
+        for (String tenant : tenants) {
+            try {
+                Map<String, Long> resultado = indiceTextoService.reconstruir(tenant);
+                resumen.put(tenant, resultado);
+                LOGGER.log(Level.INFO, "Índice de texto del tenant {0} reconstruido: {1}", new Object[]{tenant, resultado});
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Reconstrucción del índice de texto del tenant " + tenant + " fallida", e);
+            }
+        }
+        return new AsyncResult<>(resumen);
+    }
+}
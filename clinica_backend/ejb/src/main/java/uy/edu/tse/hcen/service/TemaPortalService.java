@@ -0,0 +1,130 @@
+package uy.edu.tse.hcen.service;
+
+import uy.edu.tse.hcen.model.PortalConfiguracion;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Compila la {@link PortalConfiguracion} de cada tenant a una hoja de estilos CSS estática
+ * y la mantiene en memoria junto con un hash de su contenido.
+ *
+ * El hash forma parte de la URL pública del CSS, por lo que cada versión puede servirse como
+ * inmutable: un cambio de configuración produce un hash (y una URL) nuevos.
+ */
+@ApplicationScoped
+public class TemaPortalService {
+
+    private static final Pattern COLOR_HEX = Pattern.compile("^#(?:[0-9a-fA-F]{3}|[0-9a-fA-F]{6}|[0-9a-fA-F]{8})$");
+    private static final String COLOR_PRIMARIO_DEFECTO = "#007bff";
+    private static final String COLOR_SECUNDARIO_DEFECTO = "#6c757d";
+    private static final int LARGO_HASH = 16;
+
+    private final Map<String, TemaCompilado> temas = new ConcurrentHashMap<>();
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public TemaPortalService() {
+    }
+
+    /**
+     * @return el tema compilado en caché para el tenant, o null si todavía no se compiló.
+     */
+    public TemaCompilado obtener(String tenantId) {
+        return temas.get(tenantId);
+    }
+
+    /**
+     * Compila la configuración y reemplaza la entrada en caché del tenant.
+     */
+    public TemaCompilado compilar(String tenantId, PortalConfiguracion config) {
+        byte[] css = generarCss(config).getBytes(StandardCharsets.UTF_8);
+        TemaCompilado tema = new TemaCompilado(calcularHash(css), css);
+        temas.put(tenantId, tema);
+        return tema;
+    }
+
+    private String generarCss(PortalConfiguracion config) {
+        String primario = colorValido(config.getColorPrimario(), COLOR_PRIMARIO_DEFECTO);
+        String secundario = colorValido(config.getColorSecundario(), COLOR_SECUNDARIO_DEFECTO);
+
+        StringBuilder sb = new StringBuilder(512);
+        sb.append(":root {\n");
+        sb.append("  --portal-color-primario: ").append(primario).append(";\n");
+        sb.append("  --portal-color-secundario: ").append(secundario).append(";\n");
+        sb.append("  --portal-nombre: ").append(cadenaCss(config.getNombrePortal())).append(";\n");
+        if (config.getLogoUrl() != null && !config.getLogoUrl().isBlank()) {
+            sb.append("  --portal-logo-url: url(").append(cadenaCss(config.getLogoUrl())).append(");\n");
+        }
+        sb.append("}\n");
+        sb.append(".portal-primario { background-color: var(--portal-color-primario); }\n");
+        sb.append(".portal-secundario { background-color: var(--portal-color-secundario); }\n");
+        sb.append(".portal-texto-primario { color: var(--portal-color-primario); }\n");
+        sb.append(".portal-nombre::after { content: var(--portal-nombre); }\n");
+        return sb.toString();
+    }
+
+    private static String colorValido(String color, String porDefecto) {
+        return color != null && COLOR_HEX.matcher(color).matches() ? color : porDefecto;
+    }
+
+    /**
+     * Escapa un valor como string CSS entre comillas dobles.
+     */
+    private static String cadenaCss(String valor) {
+        if (valor == null) {
+            return "\"\"";
+        }
+        StringBuilder sb = new StringBuilder(valor.length() + 2).append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n', '\r', '\f' -> sb.append("\\A ");
+                default -> {
+                    if (c < 0x20 || c == 0x7f) {
+                        sb.append('\\').append(Integer.toHexString(c)).append(' ');
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String calcularHash(byte[] contenido) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(contenido);
+            return HexFormat.of().formatHex(digest).substring(0, LARGO_HASH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Hoja de estilos compilada de un tenant. Inmutable.
+     */
+    public static final class TemaCompilado {
+        private final String hash;
+        private final byte[] css;
+
+        TemaCompilado(String hash, byte[] css) {
+            this.hash = hash;
+            this.css = css;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public byte[] getCss() {
+            return css.clone();
+        }
+    }
+}
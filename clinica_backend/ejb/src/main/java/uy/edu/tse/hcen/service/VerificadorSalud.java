@@ -0,0 +1,220 @@
+package uy.edu.tse.hcen.service;
+
+import com.mongodb.client.MongoDatabase;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import uy.edu.tse.hcen.config.MongoDBProducer;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Estado de salud de las dependencias (PostgreSQL, MongoDB y el registro de tenants), verificado
+ * en segundo plano cada {@code HCEN_SALUD_INTERVALO_MS}.
+ *
+ * Las sondas del orquestador solo leen el último resultado en memoria: no abren conexiones ni
+ * consultan nada, así que cuestan lo mismo aunque se llamen cada segundo. Cada componente guarda
+ * su estado, la latencia de la verificación y el error si falló. Si el verificador se atrasa (p. ej.
+ * una conexión colgada) el resultado envejece y la disponibilidad pasa a false.
+ */
+@ApplicationScoped
+public class VerificadorSalud {
+
+    private static final Logger LOGGER = Logger.getLogger(VerificadorSalud.class.getName());
+
+    public static final String UP = "UP";
+    public static final String DOWN = "DOWN";
+
+    private static final String SQL_TENANTS = "SELECT count(*) AS total, count(*) FILTER (WHERE NOT EXISTS ("
+            + "SELECT 1 FROM information_schema.schemata s WHERE s.schema_name = 'schema_clinica_' || n.id)) AS sin_schema "
+            + "FROM public.nodoperiferico n";
+
+    private final long intervaloMs = Math.max(100, ConfigUtils.getLong("HCEN_SALUD_INTERVALO_MS", 5000));
+    private final int timeoutSegundos = Math.max(1, ConfigUtils.getInt("HCEN_SALUD_TIMEOUT_S", 2));
+    private final boolean mongoRequerido = ConfigUtils.getBoolean("HCEN_SALUD_MONGO_REQUERIDO", true);
+
+    @Resource(lookup = "java:/jdbc/MyMainDataSource")
+    private DataSource dataSource;
+
+    @Inject
+    private MongoDBProducer mongoDBProducer;
+
+    @Inject
+    private MongoDatabase database;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private ScheduledExecutorService verificaciones;
+    private volatile Map<String, Object> componentes = Collections.emptyMap();
+    private volatile long verificadoNanos;
+    private volatile Date verificado;
+
+    // Public no-arg constructor required so CDI can create proxies for application-scoped beans
+    public VerificadorSalud() {
+    }
+
+    void alIniciar(@Observes @Initialized(ApplicationScoped.class) Object evento) {
+        iniciar();
+    }
+
+    private synchronized void iniciar() {
+        if (verificaciones != null) {
+            return;
+        }
+        // Un solo hilo: una verificación lenta atrasa a la siguiente en vez de acumularlas
+        verificaciones = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread hilo = threadFactory.newThread(runnable);
+            hilo.setName("hcen-salud");
+            return hilo;
+        });
+        verificaciones.scheduleWithFixedDelay(this::verificar, 0, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    synchronized void destroy() {
+        if (verificaciones != null) {
+            verificaciones.shutdownNow();
+        }
+    }
+
+    /**
+     * Disponibilidad según el último resultado: todos los componentes requeridos en UP y una
+     * verificación reciente. MongoDB no cuenta con {@code HCEN_SALUD_MONGO_REQUERIDO=false}.
+     */
+    public boolean isDisponible() {
+        Map<String, Object> actuales = componentes;
+        if (actuales.isEmpty() || edadMs() > 3 * intervaloMs) {
+            return false;
+        }
+        for (Map.Entry<String, Object> componente : actuales.entrySet()) {
+            if (!mongoRequerido && "mongo".equals(componente.getKey())) {
+                continue;
+            }
+            if (!UP.equals(((Map<?, ?>) componente.getValue()).get("estado"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Último resultado, con la antigüedad de la verificación; no consulta ninguna dependencia.
+     */
+    public Map<String, Object> resumen() {
+        iniciar();
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("estado", isDisponible() ? UP : DOWN);
+        resumen.put("verificado", verificado);
+        resumen.put("edadMs", verificado == null ? null : edadMs());
+        resumen.put("componentes", componentes);
+        return resumen;
+    }
+
+    private long edadMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - verificadoNanos);
+    }
+
+    private void verificar() {
+        try {
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("postgres", verificarPostgres());
+            resultado.put("tenants", verificarTenants());
+            resultado.put("mongo", verificarMongo());
+            componentes = Collections.unmodifiableMap(resultado);
+            verificado = new Date();
+            verificadoNanos = System.nanoTime();
+        } catch (RuntimeException e) {
+            // No debería pasar (cada verificación captura sus errores), pero no puede frenar el programa
+            LOGGER.log(Level.WARNING, "VerificadorSalud: error verificando dependencias", e);
+        }
+    }
+
+    private Map<String, Object> verificarPostgres() {
+        long inicio = System.nanoTime();
+        try (Connection c = dataSource.getConnection()) {
+            if (!c.isValid(timeoutSegundos)) {
+                return componente(DOWN, inicio, "La conexión no respondió en " + timeoutSegundos + " s");
+            }
+            return componente(UP, inicio, null);
+        } catch (Exception e) {
+            return caido("postgres", inicio, "Sin conexión a PostgreSQL", e.getMessage());
+        }
+    }
+
+    /**
+     * Tenants registrados en {@code public.nodoperiferico} y cuántos no tienen su schema. Un
+     * tenant sin schema no afecta la disponibilidad del resto; se informa para diagnóstico.
+     */
+    private Map<String, Object> verificarTenants() {
+        long inicio = System.nanoTime();
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(SQL_TENANTS)) {
+            ps.setQueryTimeout(timeoutSegundos);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                Map<String, Object> estado = componente(UP, inicio, null);
+                estado.put("registrados", rs.getLong("total"));
+                estado.put("sinSchema", rs.getLong("sin_schema"));
+                return estado;
+            }
+        } catch (Exception e) {
+            return caido("tenants", inicio, "No se pudo consultar el registro de tenants", e.getMessage());
+        }
+    }
+
+    private Map<String, Object> verificarMongo() {
+        long inicio = System.nanoTime();
+        if (!mongoDBProducer.isListo()) {
+            return caido("mongo", inicio, "Conectando", mongoDBProducer.getUltimoError());
+        }
+        try {
+            database.runCommand(new Document("ping", 1));
+            return componente(UP, inicio, null);
+        } catch (Exception e) {
+            return caido("mongo", inicio, "Sin respuesta de MongoDB", e.getMessage());
+        }
+    }
+
+    /**
+     * Componente caído con un error genérico: /health/ready es anónimo y los mensajes de los
+     * drivers pueden nombrar hosts, usuarios o bases. El detalle va al log, con nivel WARNING
+     * solo cuando el componente recién cae para no repetirlo en cada verificación.
+     */
+    private Map<String, Object> caido(String nombre, long inicioNanos, String error, String detalle) {
+        Object anterior = componentes.get(nombre);
+        boolean yaCaido = anterior instanceof Map<?, ?> previo && DOWN.equals(previo.get("estado"));
+        LOGGER.log(yaCaido ? Level.FINE : Level.WARNING, "VerificadorSalud: {0} no disponible -> {1}",
+                new Object[]{nombre, detalle});
+        return componente(DOWN, inicioNanos, error);
+    }
+
+    private static Map<String, Object> componente(String estado, long inicioNanos, String error) {
+        Map<String, Object> componente = new LinkedHashMap<>();
+        componente.put("estado", estado);
+        // Con décimas de milisegundo: un ping local tarda bastante menos de 1 ms
+        componente.put("latenciaMs", Math.round((System.nanoTime() - inicioNanos) / 100_000.0) / 10.0);
+        if (error != null) {
+            componente.put("error", error);
+        }
+        return componente;
+    }
+}
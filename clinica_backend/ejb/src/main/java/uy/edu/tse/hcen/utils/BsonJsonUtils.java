@@ -0,0 +1,48 @@
+package uy.edu.tse.hcen.utils;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriter;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.Writer;
+
+/**
+ * Conversión de BSON crudo a JSON sin pasar por {@link org.bson.Document}.
+ *
+ * El {@link JsonWriter} recorre los bytes del {@link RawBsonDocument} con un lector BSON y
+ * escribe cada valor directo en el {@link Writer}: no se arma el mapa ni el String intermedio.
+ * Usa el mismo modo (relaxed) que {@code Document.toJson()}, así que la salida es equivalente.
+ * Los documentos con contenido comprimido (ver {@link CompresionUtils}) sí se decodifican, para
+ * entregar el contenido como texto.
+ */
+public class BsonJsonUtils {
+
+    private static final JsonWriterSettings SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.RELAXED)
+            .build();
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    private BsonJsonUtils() {
+        // utility class
+    }
+
+    public static void escribirJson(RawBsonDocument documento, Writer destino) {
+        if (documento.containsKey(CompresionUtils.CAMPO_CODEC)) {
+            // Contenido comprimido: hay que decodificar para entregarlo como texto
+            BsonDocument plano = CompresionUtils.descomprimirContenido(CODEC.decode(
+                    new BsonBinaryReader(documento.getByteBuffer().asNIO()), DecoderContext.builder().build()));
+            CODEC.encode(new JsonWriter(destino, SETTINGS), plano, EncoderContext.builder().build());
+            return;
+        }
+        try (BsonBinaryReader lector = new BsonBinaryReader(documento.getByteBuffer().asNIO())) {
+            new JsonWriter(destino, SETTINGS).pipe(lector);
+        }
+    }
+}
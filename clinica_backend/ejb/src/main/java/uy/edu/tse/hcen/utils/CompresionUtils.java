@@ -0,0 +1,203 @@
+package uy.edu.tse.hcen.utils;
+
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.Binary;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresión del campo {@code contenido} de los documentos clínicos.
+ *
+ * Si la compresión está habilitada ({@code HCEN_MONGO_COMPRESION}) y el contenido tiene al menos
+ * {@code HCEN_MONGO_COMPRESION_UMBRAL} caracteres, se guarda comprimido con deflate como binario y
+ * se agrega {@value #CAMPO_CODEC} con el algoritmo y los tamaños. La lectura siempre descomprime
+ * cuando encuentra ese campo, esté o no habilitada la compresión, así que se puede apagar sin migrar.
+ */
+public class CompresionUtils {
+
+    public static final String CAMPO_CONTENIDO = "contenido";
+    public static final String CAMPO_CODEC = "contenidoCodec";
+    public static final String ALG_DEFLATE = "deflate";
+
+    private static final boolean HABILITADA = ConfigUtils.getBoolean("HCEN_MONGO_COMPRESION", false);
+    private static final int UMBRAL = ConfigUtils.getInt("HCEN_MONGO_COMPRESION_UMBRAL", 4096);
+    private static final int NIVEL = ConfigUtils.getInt("HCEN_MONGO_COMPRESION_NIVEL", Deflater.DEFAULT_COMPRESSION);
+
+    private CompresionUtils() {
+        // utility class
+    }
+
+    public static boolean isHabilitada() {
+        return HABILITADA;
+    }
+
+    /**
+     * Comprime el contenido del documento si corresponde (habilitada, texto sobre el umbral y
+     * con ahorro real). Modifica el documento.
+     *
+     * @return true si el contenido quedó comprimido.
+     */
+    public static boolean comprimirContenido(Document documento) {
+        if (!HABILITADA) {
+            return false;
+        }
+        return comprimirContenidoForzado(documento);
+    }
+
+    /**
+     * Como {@link #comprimirContenido(Document)} pero sin mirar si la compresión está habilitada
+     * (la usa la recompresión de documentos existentes).
+     */
+    public static boolean comprimirContenidoForzado(Document documento) {
+        if (documento.containsKey(CAMPO_CODEC) || !(documento.get(CAMPO_CONTENIDO) instanceof String texto)) {
+            return false;
+        }
+        Comprimido comprimido = comprimir(texto);
+        if (comprimido == null) {
+            return false;
+        }
+        documento.put(CAMPO_CONTENIDO, new Binary(comprimido.getDatos()));
+        documento.put(CAMPO_CODEC, comprimido.getMetadata());
+        return true;
+    }
+
+    /**
+     * @return el texto comprimido, o null si es más corto que el umbral o no se reduce.
+     */
+    public static Comprimido comprimir(String texto) {
+        if (texto == null || texto.length() < UMBRAL) {
+            return null;
+        }
+        byte[] original = texto.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(NIVEL);
+        try {
+            deflater.setInput(original);
+            deflater.finish();
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(64, original.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                salida.write(buffer, 0, n);
+                if (salida.size() >= original.length) {
+                    return null;
+                }
+            }
+            return new Comprimido(salida.toByteArray(), original.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Deja el contenido del documento en texto plano si estaba comprimido. Modifica el documento.
+     */
+    public static Document descomprimirContenido(Document documento) {
+        if (documento == null || !(documento.get(CAMPO_CODEC) instanceof Document codec)) {
+            return documento;
+        }
+        Object datos = documento.get(CAMPO_CONTENIDO);
+        if (datos instanceof Binary binario) {
+            documento.put(CAMPO_CONTENIDO, descomprimir(binario.getData(), codec.getString("alg"), codec.get("bytes", Number.class)));
+        }
+        documento.remove(CAMPO_CODEC);
+        return documento;
+    }
+
+    /**
+     * @return el contenido del documento como texto (descomprimido si hace falta), sin modificar
+     * el documento; null si no tiene contenido de texto.
+     */
+    public static String textoContenido(Document documento) {
+        Object datos = documento.get(CAMPO_CONTENIDO);
+        if (datos instanceof String texto) {
+            return texto;
+        }
+        if (datos instanceof Binary binario && documento.get(CAMPO_CODEC) instanceof Document codec) {
+            return descomprimir(binario.getData(), codec.getString("alg"), codec.get("bytes", Number.class));
+        }
+        return null;
+    }
+
+    /**
+     * Igual que {@link #descomprimirContenido(Document)} para documentos BSON.
+     */
+    public static BsonDocument descomprimirContenido(BsonDocument documento) {
+        BsonValue codec = documento.get(CAMPO_CODEC);
+        if (codec == null || !codec.isDocument()) {
+            return documento;
+        }
+        BsonValue datos = documento.get(CAMPO_CONTENIDO);
+        if (datos != null && datos.isBinary()) {
+            BsonDocument meta = codec.asDocument();
+            Number bytes = meta.isNumber("bytes") ? meta.getNumber("bytes").longValue() : null;
+            documento.put(CAMPO_CONTENIDO, new BsonString(
+                    descomprimir(datos.asBinary().getData(), meta.getString("alg", new BsonString("")).getValue(), bytes)));
+        }
+        documento.remove(CAMPO_CODEC);
+        return documento;
+    }
+
+    private static String descomprimir(byte[] datos, String alg, Number bytesOriginales) {
+        if (!ALG_DEFLATE.equals(alg)) {
+            throw new IllegalStateException("Codec de contenido desconocido: " + alg);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(datos);
+            int estimado = bytesOriginales != null ? bytesOriginales.intValue() : datos.length * 4;
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(64, estimado));
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Contenido comprimido truncado o dañado");
+                }
+                salida.write(buffer, 0, n);
+            }
+            return salida.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Contenido comprimido dañado", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Resultado de comprimir un texto: los bytes deflate y la metadata a guardar en {@value #CAMPO_CODEC}.
+     */
+    public static final class Comprimido {
+        private final byte[] datos;
+        private final int bytesOriginales;
+
+        Comprimido(byte[] datos, int bytesOriginales) {
+            this.datos = datos;
+            this.bytesOriginales = bytesOriginales;
+        }
+
+        public byte[] getDatos() {
+            return datos;
+        }
+
+        public int getBytesOriginales() {
+            return bytesOriginales;
+        }
+
+        public Document getMetadata() {
+            return new Document("alg", ALG_DEFLATE)
+                    .append("bytes", bytesOriginales)
+                    .append("comprimidos", datos.length);
+        }
+
+        public BsonBinary getBinario() {
+            return new BsonBinary(datos);
+        }
+    }
+}
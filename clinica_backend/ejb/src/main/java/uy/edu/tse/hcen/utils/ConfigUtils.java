@@ -0,0 +1,82 @@
+package uy.edu.tse.hcen.utils;
+
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lectura de parámetros de configuración. Cada parámetro se busca primero como variable de
+ * entorno (p. ej. {@code HCEN_ASSETS_DIR}) y luego como propiedad del sistema con el nombre
+ * equivalente en minúsculas y con puntos (p. ej. {@code hcen.assets.dir}), igual que
+ * {@link TokenUtils} con la clave JWT.
+ */
+public class ConfigUtils {
+
+    private static final Logger LOGGER = Logger.getLogger(ConfigUtils.class.getName());
+
+    private ConfigUtils() {
+        // utility class
+    }
+
+    public static String getString(String nombre, String porDefecto) {
+        String valor = System.getenv(nombre);
+        if (valor == null || valor.isBlank()) {
+            valor = System.getProperty(nombre.toLowerCase(Locale.ROOT).replace('_', '.'));
+        }
+        return (valor == null || valor.isBlank()) ? porDefecto : valor.trim();
+    }
+
+    public static int getInt(String nombre, int porDefecto) {
+        String valor = getString(nombre, null);
+        if (valor == null) {
+            return porDefecto;
+        }
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Valor inválido para {0}: {1}. Se usa {2}", new Object[]{nombre, valor, porDefecto});
+            return porDefecto;
+        }
+    }
+
+    public static long getLong(String nombre, long porDefecto) {
+        String valor = getString(nombre, null);
+        if (valor == null) {
+            return porDefecto;
+        }
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Valor inválido para {0}: {1}. Se usa {2}", new Object[]{nombre, valor, porDefecto});
+            return porDefecto;
+        }
+    }
+
+    public static double getDouble(String nombre, double porDefecto) {
+        String valor = getString(nombre, null);
+        if (valor == null) {
+            return porDefecto;
+        }
+        try {
+            return Double.parseDouble(valor);
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Valor inválido para {0}: {1}. Se usa {2}", new Object[]{nombre, valor, porDefecto});
+            return porDefecto;
+        }
+    }
+
+    public static boolean getBoolean(String nombre, boolean porDefecto) {
+        String valor = getString(nombre, null);
+        return valor == null ? porDefecto : Boolean.parseBoolean(valor);
+    }
+
+    /**
+     * Directorio base para datos locales de la aplicación (assets, índices, archivos).
+     * Por defecto el directorio de datos de WildFly.
+     */
+    public static String getDataDir() {
+        String porDefecto = System.getProperty("jboss.server.data.dir", System.getProperty("java.io.tmpdir"))
+                + java.io.File.separator + "hcen";
+        return getString("HCEN_DATA_DIR", porDefecto);
+    }
+}
@@ -0,0 +1,116 @@
+package uy.edu.tse.hcen.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro de Bloom de strings, seguro para agregar y consultar desde varios hilos sin bloqueo.
+ *
+ * {@link #puedeContener(String)} en false es definitivo (el valor nunca se agregó); en true puede
+ * ser un falso positivo con probabilidad cercana a la configurada mientras no se agreguen más
+ * valores que los esperados. El tamaño (bits y funciones de hash) se calcula con las fórmulas
+ * usuales a partir de la cantidad esperada y la tasa de falsos positivos.
+ */
+public class FiltroBloom {
+
+    private static final long SEMILLA_FNV = 0xcbf29ce484222325L;
+    private static final long PRIMO_FNV = 0x100000001b3L;
+
+    private final AtomicLongArray bits;
+    private final long cantidadBits;
+    private final int cantidadHashes;
+    private final long esperados;
+    private final LongAdder agregados = new LongAdder();
+
+    public FiltroBloom(long esperados, double tasaFalsosPositivos) {
+        if (tasaFalsosPositivos <= 0 || tasaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("La tasa de falsos positivos debe estar entre 0 y 1: " + tasaFalsosPositivos);
+        }
+        this.esperados = Math.max(1, esperados);
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-this.esperados * Math.log(tasaFalsosPositivos) / (ln2 * ln2));
+        // Múltiplo de 64 y dentro del máximo de AtomicLongArray
+        long palabras = Math.min(Integer.MAX_VALUE, Math.max(1, (m + 63) / 64));
+        this.bits = new AtomicLongArray((int) palabras);
+        this.cantidadBits = palabras * 64;
+        this.cantidadHashes = Math.max(1, (int) Math.round((double) cantidadBits / this.esperados * ln2));
+    }
+
+    public void agregar(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < cantidadHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, cantidadBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long actual = bits.get(palabra);
+            while ((actual & mascara) == 0 && !bits.weakCompareAndSetVolatile(palabra, actual, actual | mascara)) {
+                actual = bits.get(palabra);
+            }
+        }
+        agregados.increment();
+    }
+
+    public boolean puedeContener(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < cantidadHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, cantidadBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getCantidadBits() {
+        return cantidadBits;
+    }
+
+    public int getCantidadHashes() {
+        return cantidadHashes;
+    }
+
+    public long getEsperados() {
+        return esperados;
+    }
+
+    /**
+     * Cantidad de llamadas a {@link #agregar(String)}, incluidas las repetidas.
+     */
+    public long getAgregados() {
+        return agregados.sum();
+    }
+
+    /**
+     * Tasa de falsos positivos estimada a partir de la proporción de bits en uno.
+     */
+    public double tasaEstimada() {
+        long unos = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            unos += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) unos / cantidadBits, cantidadHashes);
+    }
+
+    // FNV-1a de 64 bits sobre UTF-8
+    private static long hash(String valor) {
+        long h = SEMILLA_FNV;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= PRIMO_FNV;
+        }
+        return mezclar(h ^ 0x9e3779b97f4a7c15L);
+    }
+
+    // Finalizador de MurmurHash3: dispersa bien los bits para el doble hashing
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
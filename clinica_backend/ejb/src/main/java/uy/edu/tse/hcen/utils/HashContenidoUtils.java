@@ -0,0 +1,110 @@
+package uy.edu.tse.hcen.utils;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Hash de contenido de los documentos clínicos, usado para detectar reenvíos del mismo documento.
+ *
+ * Es el SHA-256 de los elementos BSON de primer nivel en el orden recibido, salvo los que asigna
+ * el servidor ({@link #EXCLUIDOS}: _id, contadores y metadata de compresión). La fechaCreacion
+ * entra en el hash si la envió el cliente: el mismo contenido con otra fecha es otro documento.
+ * Cuando la asigna el servidor no entra, porque se agrega después de calcular el hash. El
+ * contenido se hashea siempre en texto plano, así que el hash no depende de si se guardó
+ * comprimido ni del camino de ingesta (Document o stream JSON).
+ */
+public class HashContenidoUtils {
+
+    public static final String CAMPO_HASH = "hashContenido";
+    public static final String CAMPO_RECEPCIONES = "recepciones";
+    public static final String CAMPO_ULTIMA_RECEPCION = "ultimaRecepcion";
+
+    // "archivo" es la ubicación de los documentos archivados (ver ArchivoDocumentos)
+    public static final Set<String> EXCLUIDOS = Set.of("_id", CAMPO_HASH, CAMPO_RECEPCIONES,
+            CAMPO_ULTIMA_RECEPCION, CompresionUtils.CAMPO_CODEC, "archivo");
+
+    private static final DocumentCodec CODEC = new DocumentCodec();
+
+    private HashContenidoUtils() {
+        // utility class
+    }
+
+    /**
+     * Hash de un documento con el contenido en texto plano (antes de comprimirlo).
+     */
+    public static String calcular(Document documento) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter escritor = new BsonBinaryWriter(buffer)) {
+            CODEC.encode(escritor, documento, EncoderContext.builder().build());
+        }
+        Acumulador acumulador = new Acumulador();
+        byte[] bytes = buffer.getInternalBuffer();
+        try (BsonBinaryReader lector = new BsonBinaryReader(ByteBuffer.wrap(bytes, 0, buffer.getPosition()))) {
+            lector.readStartDocument();
+            while (true) {
+                int inicio = lector.getBsonInput().getPosition();
+                if (lector.readBsonType() == BsonType.END_OF_DOCUMENT) {
+                    break;
+                }
+                String nombre = lector.readName();
+                lector.skipValue();
+                if (!EXCLUIDOS.contains(nombre)) {
+                    acumulador.agregarElemento(bytes, inicio, lector.getBsonInput().getPosition() - inicio);
+                }
+            }
+        }
+        return acumulador.hex();
+    }
+
+    /**
+     * Acumula el hash elemento por elemento, para calcularlo mientras se escribe el BSON.
+     */
+    public static final class Acumulador {
+        private final MessageDigest digest;
+
+        public Acumulador() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 no disponible", e);
+            }
+        }
+
+        /**
+         * Agrega un elemento BSON ya codificado (tipo, nombre y valor).
+         */
+        public void agregarElemento(byte[] bytes, int inicio, int longitud) {
+            digest.update(bytes, inicio, longitud);
+        }
+
+        /**
+         * Agrega un elemento string con la misma codificación que usaría BSON, sin armarlo en un buffer.
+         */
+        public void agregarTexto(String nombre, String valor) {
+            byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+            int longitud = utf8.length + 1;
+            digest.update((byte) BsonType.STRING.getValue());
+            digest.update(nombre.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(new byte[]{(byte) longitud, (byte) (longitud >> 8), (byte) (longitud >> 16), (byte) (longitud >> 24)});
+            digest.update(utf8);
+            digest.update((byte) 0);
+        }
+
+        public String hex() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+    }
+}
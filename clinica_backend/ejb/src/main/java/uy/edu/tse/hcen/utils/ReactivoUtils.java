@@ -0,0 +1,187 @@
+package uy.edu.tse.hcen.utils;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Adaptadores mínimos entre los {@link Publisher} del driver reactivo de Mongo y
+ * {@link CompletableFuture}, para no agregar una librería reactiva completa a la aplicación.
+ *
+ * Los futuros se completan en los hilos del driver: quien los encadena no debe bloquear ahí.
+ */
+public final class ReactivoUtils {
+
+    private ReactivoUtils() {
+        // utility class
+    }
+
+    /**
+     * Primer elemento publicado (o null si no hay ninguno). Pide un solo elemento y cancela la
+     * suscripción apenas lo recibe.
+     */
+    public static <T> CompletableFuture<T> primero(Publisher<T> publicador) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        publicador.subscribe(new Subscriber<T>() {
+            private Subscription suscripcion;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                suscripcion = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(T elemento) {
+                if (resultado.complete(elemento)) {
+                    suscripcion.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                resultado.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                resultado.complete(null);
+            }
+        });
+        return resultado;
+    }
+
+    /**
+     * Todos los elementos publicados, en orden. Solo para resultados acotados (p. ej. con limit).
+     */
+    public static <T> CompletableFuture<List<T>> lista(Publisher<T> publicador) {
+        CompletableFuture<List<T>> resultado = new CompletableFuture<>();
+        publicador.subscribe(new Subscriber<T>() {
+            private final List<T> elementos = new ArrayList<>();
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(T elemento) {
+                elementos.add(elemento);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                resultado.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                resultado.complete(elementos);
+            }
+        });
+        return resultado;
+    }
+
+    /**
+     * Publicador que aplica {@code funcion} a cada elemento en {@code ejecutor}, para no hacer
+     * trabajo pesado (lecturas de disco, descompresión) en los hilos de I/O del driver. Los
+     * elementos se procesan de a uno y en orden. La demanda y la cancelación pasan sin cambios al
+     * publicador original, así que los elementos en espera nunca superan lo pedido por el
+     * suscriptor. Si la función falla se cancela el original y el error se entrega al suscriptor.
+     */
+    public static <T, R> Publisher<R> mapear(Publisher<T> publicador, Function<? super T, ? extends R> funcion, Executor ejecutor) {
+        return suscriptor -> publicador.subscribe(new Subscriber<T>() {
+            private final Queue<Object> pendientes = new ConcurrentLinkedQueue<>();
+            private final AtomicInteger senales = new AtomicInteger();
+            private volatile Subscription suscripcion;
+            // Solo se usa dentro de drenar(), que nunca corre en paralelo consigo mismo
+            private boolean terminado;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                suscripcion = s;
+                suscriptor.onSubscribe(s);
+            }
+
+            @Override
+            public void onNext(T elemento) {
+                encolar(elemento);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                encolar(new Fin(error));
+            }
+
+            @Override
+            public void onComplete() {
+                encolar(new Fin(null));
+            }
+
+            private void encolar(Object senal) {
+                pendientes.add(senal);
+                if (senales.getAndIncrement() == 0) {
+                    try {
+                        ejecutor.execute(this::drenar);
+                    } catch (RejectedExecutionException e) {
+                        // El ejecutor se está apagando: se entrega en el hilo actual
+                        drenar();
+                    }
+                }
+            }
+
+            private void drenar() {
+                int vistas = 1;
+                do {
+                    Object senal;
+                    while ((senal = pendientes.poll()) != null) {
+                        entregar(senal);
+                    }
+                    vistas = senales.addAndGet(-vistas);
+                } while (vistas != 0);
+            }
+
+            @SuppressWarnings("unchecked")
+            private void entregar(Object senal) {
+                if (terminado) {
+                    return;
+                }
+                if (senal instanceof Fin fin) {
+                    terminado = true;
+                    if (fin.error == null) {
+                        suscriptor.onComplete();
+                    } else {
+                        suscriptor.onError(fin.error);
+                    }
+                    return;
+                }
+                R mapeado;
+                try {
+                    mapeado = funcion.apply((T) senal);
+                } catch (RuntimeException e) {
+                    terminado = true;
+                    suscripcion.cancel();
+                    suscriptor.onError(e);
+                    return;
+                }
+                suscriptor.onNext(mapeado);
+            }
+        });
+    }
+
+    /**
+     * Marca de fin de un publicador dentro de la cola de {@link #mapear}: error null si completó bien.
+     */
+    private record Fin(Throwable error) {
+    }
+}
@@ -0,0 +1,278 @@
+package uy.edu.tse.hcen.rest;
+
+import com.mongodb.client.gridfs.GridFSDownloadStream;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import uy.edu.tse.hcen.exceptions.DocumentoDemasiadoGrandeException;
+import uy.edu.tse.hcen.repository.AdjuntoRepository;
+import uy.edu.tse.hcen.rest.filter.RequiereTenant;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Adjuntos de documentos clínicos guardados en GridFS.
+ *
+ * La descarga soporta {@code Range} (un solo rango por solicitud) para reanudar transferencias
+ * o posicionarse dentro de un archivo grande. Las descargas completas se validan contra el
+ * SHA-256 registrado al subir: el último bloque se retiene hasta comparar el hash y, si no
+ * coincide, se corta la conexión sin enviarlo, así el cliente nunca recibe la respuesta completa.
+ *
+ * Los adjuntos siempre se sirven como descarga ({@code attachment}, con {@code nosniff}) y el
+ * tipo declarado al subir solo se respeta si está en {@link #TIPOS_SERVIDOS}: un HTML o SVG subido
+ * como adjunto nunca se interpreta en el origen de la aplicación.
+ */
+@Path("/adjuntos")
+@RequiereTenant
+public class AdjuntoResource {
+
+    private static final Logger LOGGER = Logger.getLogger(AdjuntoResource.class.getName());
+
+    private static final Pattern RANGO = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    // Tipos pasivos que se devuelven tal cual; el resto se sirve como application/octet-stream
+    private static final Set<String> TIPOS_SERVIDOS = Set.of("application/pdf", "application/dicom", "image/png",
+            "image/jpeg", "image/gif", "image/webp", "text/plain");
+
+    @Inject
+    private AdjuntoRepository adjuntoRepository;
+
+    /**
+     * Sube un adjunto para el documento clínico {@code documentoId}. El cuerpo es el contenido
+     * binario del archivo; su Content-Type se guarda como tipo del adjunto.
+     */
+    @POST
+    @Path("/documento/{documentoId}")
+    @Consumes(MediaType.WILDCARD)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response subir(@PathParam("documentoId") String documentoId,
+                          @QueryParam("nombre") String nombre,
+                          @HeaderParam("Content-Type") String contentType,
+                          @HeaderParam("Content-Length") Long contentLength,
+                          InputStream contenido) {
+        try {
+            if (contentLength != null && contentLength > adjuntoRepository.getMaxBytes()) {
+                throw new DocumentoDemasiadoGrandeException("El adjunto supera el tamaño máximo de "
+                        + adjuntoRepository.getMaxBytes() + " bytes");
+            }
+            String nombreArchivo = (nombre == null || nombre.isBlank()) ? "adjunto" : nombre.trim();
+            String tipo = (contentType == null || contentType.isBlank()) ? MediaType.APPLICATION_OCTET_STREAM : contentType;
+
+            Document referencia = adjuntoRepository.guardar(idDocumento(documentoId), nombreArchivo, tipo, contenido);
+            if (referencia == null) {
+                return error(Response.Status.NOT_FOUND, "Documento clínico no encontrado: " + documentoId);
+            }
+            return Response.status(Response.Status.CREATED)
+                    .entity(referencia.toJson()).type(MediaType.APPLICATION_JSON).build();
+        } catch (DocumentoDemasiadoGrandeException e) {
+            return error(Response.Status.REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error subiendo adjunto", e);
+            return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    @GET
+    @Path("/documento/{documentoId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response listar(@PathParam("documentoId") String documentoId) {
+        try {
+            List<Document> adjuntos = new ArrayList<>();
+            for (GridFSFile archivo : adjuntoRepository.listarPorDocumento(idDocumento(documentoId))) {
+                adjuntos.add(descripcion(archivo));
+            }
+            return Response.ok(new Document("adjuntos", adjuntos).toJson()).type(MediaType.APPLICATION_JSON).build();
+        } catch (Exception e) {
+            return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    @GET
+    @Path("/{id: [0-9a-f]{24}}")
+    public Response descargar(@PathParam("id") String id, @HeaderParam("Range") String range) {
+        GridFSDownloadStream lectura;
+        try {
+            lectura = adjuntoRepository.abrir(new ObjectId(id));
+        } catch (Exception e) {
+            return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+        if (lectura == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        GridFSFile archivo = lectura.getGridFSFile();
+        long total = archivo.getLength();
+        String sha = AdjuntoRepository.sha256Registrado(archivo);
+
+        long inicio = 0;
+        long fin = total - 1;
+        boolean parcial = false;
+        if (range != null) {
+            Matcher m = RANGO.matcher(range.trim());
+            // Varios rangos o sintaxis desconocida: se ignora el header y se envía completo
+            if (m.matches() && !(m.group(1).isEmpty() && m.group(2).isEmpty())) {
+                try {
+                    if (m.group(1).isEmpty()) {
+                        // bytes=-N: los últimos N bytes
+                        inicio = Math.max(0, total - Long.parseLong(m.group(2)));
+                    } else {
+                        inicio = Long.parseLong(m.group(1));
+                        if (!m.group(2).isEmpty()) {
+                            fin = Math.min(fin, Long.parseLong(m.group(2)));
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    inicio = total;
+                }
+                if (inicio >= total || inicio > fin) {
+                    lectura.close();
+                    return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header("Content-Range", "bytes */" + total).build();
+                }
+                parcial = true;
+            }
+        }
+
+        long desde = inicio;
+        long longitud = fin - inicio + 1;
+        boolean validar = !parcial && sha != null;
+        StreamingOutput cuerpo = output -> {
+            MessageDigest digest = validar ? AdjuntoRepository.sha256() : null;
+            try (lectura) {
+                long salteados = 0;
+                while (salteados < desde) {
+                    long n = lectura.skip(desde - salteados);
+                    if (n <= 0) {
+                        throw new IOException("No se pudo posicionar en el byte " + desde + " del adjunto " + id);
+                    }
+                    salteados += n;
+                }
+                // Dos buffers: cada bloque se escribe recién cuando se leyó el siguiente, así el
+                // último queda retenido hasta validar el hash
+                byte[] buffer = new byte[64 * 1024];
+                byte[] pendiente = new byte[buffer.length];
+                int enPendiente = 0;
+                long restante = longitud;
+                while (restante > 0) {
+                    int leidos = lectura.read(buffer, 0, (int) Math.min(buffer.length, restante));
+                    if (leidos == -1) {
+                        throw new IOException("El adjunto " + id + " terminó antes de lo esperado");
+                    }
+                    if (digest != null) {
+                        digest.update(buffer, 0, leidos);
+                    }
+                    if (enPendiente > 0) {
+                        output.write(pendiente, 0, enPendiente);
+                    }
+                    byte[] leido = buffer;
+                    buffer = pendiente;
+                    pendiente = leido;
+                    enPendiente = leidos;
+                    restante -= leidos;
+                }
+                if (digest != null && !HexFormat.of().formatHex(digest.digest()).equals(sha)) {
+                    // No se puede cambiar el status a esta altura: sin el último bloque el cliente
+                    // recibe menos bytes que el Content-Length y descarta la respuesta
+                    LOGGER.log(Level.SEVERE, "El adjunto {0} no coincide con su SHA-256 registrado", id);
+                    throw new IOException("Checksum inválido para el adjunto " + id);
+                }
+                if (enPendiente > 0) {
+                    output.write(pendiente, 0, enPendiente);
+                }
+            }
+        };
+
+        String tipo = archivo.getMetadata() == null ? null : archivo.getMetadata().getString(AdjuntoRepository.META_TIPO);
+        Response.ResponseBuilder rb = Response.status(parcial ? Response.Status.PARTIAL_CONTENT : Response.Status.OK)
+                .entity(cuerpo)
+                .type(tipoServido(tipo))
+                .header("Accept-Ranges", "bytes")
+                .header("Content-Length", longitud)
+                .header("X-Content-Type-Options", "nosniff")
+                .header("Content-Disposition", "attachment; filename=\"" + archivo.getFilename().replaceAll("[\"\\\\\\r\\n]", "_") + "\"");
+        if (parcial) {
+            rb.header("Content-Range", "bytes " + inicio + "-" + fin + "/" + total);
+        }
+        if (sha != null) {
+            rb.tag(sha).header("Repr-Digest", "sha-256=:" + Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha)) + ":");
+        }
+        return rb.build();
+    }
+
+    /**
+     * Relee el adjunto completo y compara su SHA-256 con el registrado al subirlo.
+     */
+    @GET
+    @Path("/{id: [0-9a-f]{24}}/verificar")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response verificar(@PathParam("id") String id) {
+        try {
+            Document resultado = adjuntoRepository.verificar(new ObjectId(id));
+            if (resultado == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            return Response.ok(resultado.toJson()).type(MediaType.APPLICATION_JSON).build();
+        } catch (Exception e) {
+            return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    private static Document descripcion(GridFSFile archivo) {
+        Document meta = archivo.getMetadata() == null ? new Document() : archivo.getMetadata();
+        return new Document("id", archivo.getObjectId())
+                .append("nombre", archivo.getFilename())
+                .append(AdjuntoRepository.META_TIPO, meta.getString(AdjuntoRepository.META_TIPO))
+                .append("tamano", archivo.getLength())
+                .append(AdjuntoRepository.META_SHA256, meta.getString(AdjuntoRepository.META_SHA256))
+                .append("subido", archivo.getUploadDate());
+    }
+
+    /**
+     * El tipo declarado al subir (sin parámetros) si es uno de {@link #TIPOS_SERVIDOS}; si no,
+     * application/octet-stream.
+     */
+    private static String tipoServido(String tipo) {
+        if (tipo == null) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        int parametros = tipo.indexOf(';');
+        String base = (parametros >= 0 ? tipo.substring(0, parametros) : tipo).trim().toLowerCase(Locale.ROOT);
+        return TIPOS_SERVIDOS.contains(base) ? base : MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    /**
+     * Los _id de documentos clínicos suelen ser ObjectId; si el valor no lo es se usa como String.
+     */
+    private static Object idDocumento(String documentoId) {
+        return ObjectId.isValid(documentoId) ? new ObjectId(documentoId) : documentoId;
+    }
+
+    private static Response error(Response.Status status, String mensaje) {
+        return Response.status(status)
+                .entity(new Document("error", mensaje).toJson()).type(MediaType.APPLICATION_JSON).build();
+    }
+}
@@ -0,0 +1,116 @@
+package uy.edu.tse.hcen.rest;
+
+import uy.edu.tse.hcen.dto.ConfiguracionPortalDTO;
+import uy.edu.tse.hcen.service.AlmacenLogosService;
+import uy.edu.tse.hcen.service.AlmacenLogosService.ArchivoLogo;
+import uy.edu.tse.hcen.service.PortalConfiguracionService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Logos de las clínicas servidos desde el almacén local direccionado por contenido.
+ * La subida requiere ADMINISTRADOR; la descarga es pública (se usa desde <img>).
+ */
+@Path("/assets/logos")
+public class LogoResource {
+
+    private static final int UN_ANIO_SEGUNDOS = 31536000;
+
+    @Inject
+    private AlmacenLogosService almacenLogos;
+
+    @Inject
+    private PortalConfiguracionService configService;
+
+    @POST
+    @Consumes({"image/png", "image/jpeg", "image/gif", MediaType.APPLICATION_OCTET_STREAM})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response subirLogo(InputStream contenido, @Context SecurityContext sc, @Context UriInfo uriInfo) {
+        if (sc == null || !sc.isUserInRole("ADMINISTRADOR")) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+
+        String hash;
+        try {
+            hash = almacenLogos.guardar(contenido);
+        } catch (IllegalArgumentException ex) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("error", ex.getMessage())).build();
+        } catch (Exception ex) {
+            return Response.serverError().entity(Map.of("error", ex.getMessage())).build();
+        }
+
+        URI location = uriInfo.getBaseUriBuilder().path("assets/logos/{hash}").build(hash);
+
+        // El portal pasa a apuntar al logo local en lugar de a una URL externa
+        ConfiguracionPortalDTO dto = new ConfiguracionPortalDTO();
+        dto.logoUrl = location.getRawPath();
+        configService.updateConfiguracion(dto);
+
+        return Response.created(location)
+                .entity(Map.of("hash", hash, "url", dto.logoUrl, "anchos", AlmacenLogosService.ANCHOS_VARIANTES))
+                .build();
+    }
+
+    /**
+     * Sirve el logo (o la variante de {@code ancho} píxeles) con caché inmutable.
+     * El cuerpo se copia por bloques desde el archivo hacia la salida, sin cargarlo entero en el heap.
+     */
+    @GET
+    @Path("/{hash: [0-9a-f]{64}}")
+    public Response getLogo(@PathParam("hash") String hash, @QueryParam("ancho") Integer ancho, @Context Request request) {
+        Optional<ArchivoLogo> archivo;
+        try {
+            archivo = almacenLogos.resolver(hash, ancho);
+        } catch (Exception ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+        if (archivo.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        CacheControl inmutable = new CacheControl();
+        inmutable.setMaxAge(UN_ANIO_SEGUNDOS);
+        inmutable.setPrivate(false);
+        inmutable.getCacheExtension().put("immutable", null);
+
+        EntityTag etag = new EntityTag(archivo.get().getEtag());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.cacheControl(inmutable).build();
+        }
+
+        java.nio.file.Path ruta = archivo.get().getRuta();
+        StreamingOutput cuerpo = output -> Files.copy(ruta, output);
+
+        try {
+            return Response.ok(cuerpo, archivo.get().getTipoMime())
+                    .header("Content-Length", Files.size(ruta))
+                    .tag(etag)
+                    .cacheControl(inmutable)
+                    .build();
+        } catch (IOException ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package uy.edu.tse.hcen.rest;
+
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import uy.edu.tse.hcen.metricas.EscritorPrometheus;
+import uy.edu.tse.hcen.metricas.FuenteMetricas;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Métricas de la instancia en formato de texto de Prometheus, reunidas de todos los beans que
+ * implementan {@link FuenteMetricas}. Solo para ADMINISTRADOR; como los JWT vencen en una hora,
+ * el scraper puede autenticarse en su lugar con el encabezado {@code X-Metricas-Token} si se
+ * configuró {@code HCEN_METRICAS_TOKEN}.
+ */
+@Path("/metrics")
+public class MetricasResource {
+
+    private static final Logger LOGGER = Logger.getLogger(MetricasResource.class.getName());
+
+    private static final String TOKEN = ConfigUtils.getString("HCEN_METRICAS_TOKEN", null);
+
+    @Inject
+    @Any
+    private Instance<FuenteMetricas> fuentes;
+
+    @GET
+    @Produces(EscritorPrometheus.CONTENT_TYPE)
+    public Response metricas(@HeaderParam("X-Metricas-Token") String token, @Context SecurityContext sc) {
+        if (!tokenValido(token) && (sc == null || !sc.isUserInRole("ADMINISTRADOR"))) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+        EscritorPrometheus salida = new EscritorPrometheus();
+        for (FuenteMetricas fuente : fuentes) {
+            try {
+                EscritorPrometheus parcial = new EscritorPrometheus();
+                fuente.escribir(parcial);
+                salida.agregar(parcial);
+            } catch (RuntimeException e) {
+                // Una fuente con error se omite entera y no deja sin métricas a las demás
+                LOGGER.log(Level.WARNING, "MetricasResource: error en " + fuente.getClass().getName(), e);
+            }
+        }
+        return Response.ok(salida.toString(), EscritorPrometheus.CONTENT_TYPE).build();
+    }
+
+    private static boolean tokenValido(String token) {
+        return TOKEN != null && token != null
+                && MessageDigest.isEqual(TOKEN.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+}
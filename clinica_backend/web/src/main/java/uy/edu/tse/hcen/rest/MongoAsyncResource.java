@@ -0,0 +1,274 @@
+package uy.edu.tse.hcen.rest;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import uy.edu.tse.hcen.exceptions.DocumentoDemasiadoGrandeException;
+import uy.edu.tse.hcen.multitenancy.TenantContext;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+import uy.edu.tse.hcen.rest.filter.RequiereTenant;
+import uy.edu.tse.hcen.service.IngestaDocumentoService;
+import uy.edu.tse.hcen.utils.BsonJsonUtils;
+import uy.edu.tse.hcen.utils.ConfigUtils;
+
+/**
+ * Variantes asíncronas de los endpoints de documentos de {@link MongoTestResource}, sobre el
+ * cliente reactivo de Mongo (ver MongoReactivoProducer).
+ *
+ * El hilo de la solicitud solo arma la consulta y se libera; la respuesta se completa cuando Mongo
+ * contesta. Armar el JSON y escribirlo corre en el ejecutor administrado, nunca en los hilos de
+ * E/S del driver. La historia completa se publica como Server-Sent Events pidiendo un documento
+ * por vez: el siguiente se pide recién cuando se envió el anterior, así que un cliente lento frena
+ * la lectura en Mongo.
+ */
+@Path("/mongo/async")
+@RequiereTenant
+public class MongoAsyncResource {
+
+    private static final Logger LOGGER = Logger.getLogger(MongoAsyncResource.class.getName());
+
+    private static final long TIMEOUT_MS = ConfigUtils.getLong("HCEN_MONGO_REACTIVO_TIMEOUT_MS", 30000);
+    private static final int LOTE_STREAM = ConfigUtils.getInt("HCEN_MONGO_REACTIVO_LOTE", 100);
+
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+    @Inject
+    private IngestaDocumentoService ingestaDocumentoService;
+
+    @Resource
+    private ManagedExecutorService ejecutor;
+
+    /**
+     * Documento más reciente del paciente (como GET /mongo/document/{documento}).
+     */
+    @GET
+    @Path("/document/{documento}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void findByDocumento(@PathParam("documento") String documentoPaciente, @Suspended AsyncResponse respuesta) {
+        responder(respuesta, () -> documentoClinicoRepository.buscarCrudoPorDocumentoPacienteAsync(documentoPaciente),
+                encontrado -> encontrado == null
+                        ? Response.status(Response.Status.NOT_FOUND).build()
+                        : Response.ok(json(encontrado)).type(MediaType.APPLICATION_JSON).build());
+    }
+
+    /**
+     * Historia del paciente paginada por cursor (como GET /mongo/documents/paciente/{documento}).
+     */
+    @GET
+    @Path("/documents/paciente/{documento}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void listByPaciente(@PathParam("documento") String documentoPaciente,
+                               @QueryParam("cursor") String cursor,
+                               @QueryParam("limit") @DefaultValue("20") int limit,
+                               @QueryParam("fields") String fields,
+                               @Suspended AsyncResponse respuesta) {
+        List<String> campos = (fields == null || fields.isBlank()) ? null : Arrays.asList(fields.split(","));
+        responder(respuesta, () -> documentoClinicoRepository.listarPorPacienteAsync(documentoPaciente, cursor, limit, campos),
+                pagina -> Response.ok(pagina.toJson()).type(MediaType.APPLICATION_JSON).build());
+    }
+
+    /**
+     * Guarda un documento clínico (como POST /mongo/document). El cuerpo se lee en el hilo de la
+     * solicitud, con los mismos límites que la variante sincrónica; la inserción no ocupa hilos.
+     */
+    @POST
+    @Path("/document")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void insertDocument(InputStream body, @HeaderParam("Content-Length") Long contentLength,
+                               @Suspended AsyncResponse respuesta) {
+        RawBsonDocument documento;
+        try {
+            if (contentLength != null && contentLength > ingestaDocumentoService.getMaxBytes()) {
+                throw new DocumentoDemasiadoGrandeException(ingestaDocumentoService.getMaxBytes());
+            }
+            documento = ingestaDocumentoService.leerDocumento(body);
+        } catch (RuntimeException e) {
+            TenantContext.clear();
+            respuesta.resume(respuestaError(e));
+            return;
+        }
+        responder(respuesta, () -> ingestaDocumentoService.ingerirAsync(documento), resultado -> {
+            if (!resultado.isExitoso()) {
+                return respuestaError(new IllegalStateException(resultado.getError()));
+            }
+            if (resultado.isDuplicado()) {
+                // Reenvío del mismo contenido: se devuelve la referencia al documento existente
+                Document referencia = new Document("_id", resultado.getId()).append("duplicado", true);
+                return Response.ok(referencia.toJson()).type(MediaType.APPLICATION_JSON).build();
+            }
+            return Response.status(Response.Status.CREATED).entity(json(documento)).type(MediaType.APPLICATION_JSON).build();
+        });
+    }
+
+    /**
+     * Toda la historia del paciente, en orden cronológico, como eventos {@code documento}; termina
+     * con un evento {@code fin} (o {@code error}).
+     */
+    @GET
+    @Path("/documents/paciente/{documento}/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamByPaciente(@PathParam("documento") String documentoPaciente,
+                                 @Context SseEventSink sink, @Context Sse sse) {
+        try {
+            Publisher<RawBsonDocument> publicador = documentoClinicoRepository.publicarPorPaciente(documentoPaciente, LOTE_STREAM);
+            publicador.subscribe(new EnvioSse(sink, sse));
+        } catch (RuntimeException e) {
+            new EnvioSse(sink, sse).onError(e);
+        } finally {
+            // La respuesta se completa en otro hilo: el de la solicitud no puede quedar con el tenant
+            TenantContext.clear();
+        }
+    }
+
+    /**
+     * Inicia la operación en el hilo de la solicitud y completa la respuesta en el ejecutor.
+     * Los errores de validación (también los que ocurren al iniciar) se responden con 400 y los
+     * documentos demasiado grandes con 413, igual que en los endpoints sincrónicos.
+     */
+    private <T> void responder(AsyncResponse respuesta, Supplier<CompletionStage<T>> operacion, Function<T, Response> armar) {
+        respuesta.setTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        try {
+            operacion.get().whenCompleteAsync((valor, error) -> {
+                try {
+                    respuesta.resume(error == null ? armar.apply(valor) : respuestaError(error));
+                } catch (RuntimeException e) {
+                    respuesta.resume(respuestaError(e));
+                }
+            }, ejecutor);
+        } catch (RuntimeException e) {
+            respuesta.resume(respuestaError(e));
+        } finally {
+            // La respuesta se completa en otro hilo: el de la solicitud no puede quedar con el tenant
+            TenantContext.clear();
+        }
+    }
+
+    private static Response respuestaError(Throwable error) {
+        Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        Response.Status estado;
+        if (causa instanceof DocumentoDemasiadoGrandeException) {
+            estado = Response.Status.REQUEST_ENTITY_TOO_LARGE;
+        } else if (causa instanceof IllegalArgumentException) {
+            estado = Response.Status.BAD_REQUEST;
+        } else {
+            estado = Response.Status.INTERNAL_SERVER_ERROR;
+        }
+        Document err = new Document("error", causa.getMessage());
+        return Response.status(estado).entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    private static String json(RawBsonDocument documento) {
+        StringWriter writer = new StringWriter(documento.getByteBuffer().remaining());
+        BsonJsonUtils.escribirJson(documento, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Suscriptor que envía cada documento como evento SSE con demanda de a uno. Las señales del
+     * driver llegan en sus hilos de E/S; el armado y el envío del evento pasan al ejecutor.
+     */
+    private final class EnvioSse implements Subscriber<RawBsonDocument> {
+
+        private final SseEventSink sink;
+        private final Sse sse;
+        private Subscription suscripcion;
+
+        EnvioSse(SseEventSink sink, Sse sse) {
+            this.sink = sink;
+            this.sse = sse;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            suscripcion = s;
+            s.request(1);
+        }
+
+        @Override
+        public void onNext(RawBsonDocument documento) {
+            ejecutar(() -> {
+                if (sink.isClosed()) {
+                    // El cliente se desconectó: se deja de leer
+                    suscripcion.cancel();
+                    return;
+                }
+                sink.send(sse.newEventBuilder().name("documento").mediaType(MediaType.APPLICATION_JSON_TYPE)
+                                .data(String.class, json(documento)).build())
+                        .whenComplete((enviado, error) -> {
+                            if (error != null) {
+                                suscripcion.cancel();
+                                sink.close();
+                            } else {
+                                suscripcion.request(1);
+                            }
+                        });
+            });
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            LOGGER.log(Level.WARNING, "MongoAsyncResource: error publicando la historia -> {0}", error.getMessage());
+            ejecutar(() -> terminar("error", new Document("error", error.getMessage()).toJson()));
+        }
+
+        @Override
+        public void onComplete() {
+            ejecutar(() -> terminar("fin", "{}"));
+        }
+
+        private void terminar(String nombre, String datos) {
+            if (sink.isClosed()) {
+                return;
+            }
+            sink.send(sse.newEventBuilder().name(nombre).mediaType(MediaType.APPLICATION_JSON_TYPE).data(String.class, datos).build())
+                    .whenComplete((enviado, error) -> sink.close());
+        }
+
+        private void ejecutar(Runnable tarea) {
+            try {
+                ejecutor.execute(tarea);
+            } catch (RejectedExecutionException e) {
+                if (suscripcion != null) {
+                    suscripcion.cancel();
+                }
+                sink.close();
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package uy.edu.tse.hcen.rest;
 
-import jakarta.ejb.EJB;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.GET;
@@ -8,13 +7,40 @@ import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.bson.Document;
-import com.mongodb.client.MongoCollection;
+import org.bson.RawBsonDocument;
 
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import uy.edu.tse.hcen.dto.PaginaDocumentos;
+import uy.edu.tse.hcen.dto.ResultadoInsercion;
+import uy.edu.tse.hcen.exceptions.DocumentoDemasiadoGrandeException;
+import uy.edu.tse.hcen.multitenancy.TenantContext;
+import uy.edu.tse.hcen.rest.filter.RequiereTenant;
+import uy.edu.tse.hcen.repository.ActividadDiaria;
 import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
-import uy.edu.tse.hcen.service.MongoDBService;
+import uy.edu.tse.hcen.repository.EstadisticasDeduplicacion;
+import uy.edu.tse.hcen.repository.FiltroPacientes;
+import uy.edu.tse.hcen.service.ExportacionDocumentosService;
+import uy.edu.tse.hcen.service.IndiceTextoService;
+import uy.edu.tse.hcen.service.IngestaDocumentoService;
+import uy.edu.tse.hcen.service.IngestaMasivaService;
+import uy.edu.tse.hcen.utils.BsonJsonUtils;
 
 
 
@@ -24,11 +50,38 @@ public class MongoTestResource {
 
     @Inject
     private DocumentoClinicoRepository documentoClinicoRepository;
-    @EJB
-    private MongoDBService mongoDBService;
+    @Inject
+    private IngestaMasivaService ingestaMasivaService;
+    @Inject
+    private IngestaDocumentoService ingestaDocumentoService;
+    @Inject
+    private EstadisticasDeduplicacion estadisticasDeduplicacion;
+    @Inject
+    private FiltroPacientes filtroPacientes;
+    @Inject
+    private ExportacionDocumentosService exportacionDocumentosService;
+    @Inject
+    private IndiceTextoService indiceTextoService;
+    @Inject
+    private ActividadDiaria actividadDiaria;
 
-    private MongoCollection<Document> getCollection() {
-        return mongoDBService.getDatabase().getCollection("documentos_clinicos");
+    private static final String NDJSON = "application/x-ndjson";
+
+    /**
+     * El AuthTokenFilter limpia el TenantContext en el filtro de respuesta, que corre antes de
+     * que se escriba un StreamingOutput. Se captura el tenant de la solicitud y se restablece
+     * mientras se genera el cuerpo.
+     */
+    private static StreamingOutput conTenantActual(StreamingOutput cuerpo) {
+        String tenantId = TenantContext.getCurrentTenant();
+        return output -> {
+            TenantContext.setCurrentTenant(tenantId);
+            try {
+                cuerpo.write(output);
+            } finally {
+                TenantContext.clear();
+            }
+        };
     }
 
     @GET
@@ -36,7 +89,10 @@ public class MongoTestResource {
     @Produces(MediaType.TEXT_PLAIN)
     public Response health() {
         try {
-            long count = mongoDBService == null ? -1 : getCollection().countDocuments();
+            // Los documentos están particionados por tenant: sin tenant no hay colección que contar.
+            // Conteo estimado (metadatos de la colección): countDocuments recorre toda la colección
+            String tenantId = TenantContext.getCurrentTenant();
+            long count = tenantId == null ? -1 : documentoClinicoRepository.contarEstimado(tenantId);
             return Response.ok("ok - collection count: " + count).build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -44,16 +100,68 @@ public class MongoTestResource {
         }
     }
 
+    /**
+     * Contadores de deduplicación de documentos y adjuntos, del filtro de pacientes (ver
+     * FiltroPacientes) y de las lecturas compartidas por paciente desde el arranque de la instancia.
+     * Son de toda la instancia, no del tenant: solo para ADMINISTRADOR, como los diagnósticos de
+     * AdminTenantResource. El filtro de pacientes se informa para el tenant del token, si tiene.
+     */
+    @GET
+    @Path("/documents/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response stats(@Context SecurityContext sc) {
+        if (sc == null || !sc.isUserInRole("ADMINISTRADOR")) {
+            Document err = new Document("error", "Access denied");
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
+        }
+        Document resumen = new Document(estadisticasDeduplicacion.resumen())
+                .append("filtroPacientes", new Document(filtroPacientes.resumen(TenantContext.getCurrentTenant())))
+                .append("lecturasPaciente", new Document(documentoClinicoRepository.resumenLecturas()));
+        return Response.ok(resumen.toJson()).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Guarda un documento clínico leyendo el cuerpo como stream (ver IngestaDocumentoService):
+     * no se arma el cuerpo en memoria y los documentos que superan el máximo se rechazan con 413
+     * sin terminar de leerlos. Responde con el documento almacenado, o con una referencia al
+     * existente (200, {@code duplicado: true}) si el paciente ya tenía el mismo contenido.
+     */
     @POST
     @Path("/document")
+    @RequiereTenant
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response insertDocument(String bodyJson) {
+    public Response insertDocument(InputStream body, @HeaderParam("Content-Length") Long contentLength) {
         try {
-            Document doc = Document.parse(bodyJson);
-            getCollection().insertOne(doc);
+            if (contentLength != null && contentLength > ingestaDocumentoService.getMaxBytes()) {
+                throw new DocumentoDemasiadoGrandeException(ingestaDocumentoService.getMaxBytes());
+            }
+            RawBsonDocument guardado = ingestaDocumentoService.leerDocumento(body);
+            ResultadoInsercion resultado = ingestaDocumentoService.ingerir(guardado);
+            if (!resultado.isExitoso()) {
+                throw new IllegalStateException(resultado.getError());
+            }
+            if (resultado.isDuplicado()) {
+                // Reenvío del mismo contenido: se devuelve la referencia al documento existente
+                Document referencia = new Document("_id", resultado.getId()).append("duplicado", true);
+                return Response.ok(referencia.toJson()).type(MediaType.APPLICATION_JSON).build();
+            }
+            StreamingOutput cuerpo = output -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                BsonJsonUtils.escribirJson(guardado, writer);
+                writer.flush();
+            };
             return Response.status(Response.Status.CREATED)
-                    .entity(doc.toJson()).type(MediaType.APPLICATION_JSON).build();
+                    .entity(cuerpo).type(MediaType.APPLICATION_JSON).build();
+        } catch (DocumentoDemasiadoGrandeException e) {
+            Document err = new Document("error", e.getMessage());
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
+        } catch (IllegalArgumentException e) {
+            Document err = new Document("error", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
         } catch (Exception e) {
             Document err = new Document("error", e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -63,6 +171,7 @@ public class MongoTestResource {
 
     @POST 
     @Path("/documentoClinico")
+    @RequiereTenant
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public Response createDocumentoClinico(String bodyJson){
@@ -80,20 +189,202 @@ public class MongoTestResource {
     }
     
 
+    /**
+     * Documento más reciente del paciente. Se lee como BSON crudo y se transcodifica a JSON
+     * directo sobre la respuesta, sin armar el Document ni el String intermedio.
+     */
     @GET
     @Path("/document/{documento}")
+    @RequiereTenant
     @Produces(MediaType.APPLICATION_JSON)
     public Response findByDocumento(@PathParam("documento") String documentoPaciente) {
         try {
-            Document found = getCollection().find(new Document("pacienteDoc", documentoPaciente)).first();
+            RawBsonDocument found = documentoClinicoRepository.buscarCrudoPorDocumentoPaciente(documentoPaciente);
             if (found == null) {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
-            return Response.ok(found.toJson()).type(MediaType.APPLICATION_JSON).build();
+            StreamingOutput cuerpo = output -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                BsonJsonUtils.escribirJson(found, writer);
+                writer.flush();
+            };
+            return Response.ok(cuerpo).type(MediaType.APPLICATION_JSON).build();
+        } catch (Exception e) {
+            Document err = new Document("error", e.getMessage());
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
+        }
+    }
+
+    /**
+     * Búsqueda de texto completo en el contenido de los documentos del tenant (ver
+     * IndiceTextoService), opcionalmente solo los de un paciente. Devuelve los resultados por
+     * relevancia con un fragmento del contenido; no consulta Mongo.
+     */
+    @GET
+    @Path("/documents/search")
+    @RequiereTenant
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response search(@QueryParam("q") String consulta,
+                           @QueryParam("paciente") String pacienteDoc,
+                           @QueryParam("limit") @DefaultValue("20") int limit) {
+        if (!indiceTextoService.isHabilitado()) {
+            Document err = new Document("error", "La búsqueda de texto está deshabilitada");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
+        }
+        try {
+            List<Document> resultados = indiceTextoService.buscar(consulta, pacienteDoc, limit);
+            Document respuesta = new Document("resultados", resultados);
+            return Response.ok(respuesta.toJson()).type(MediaType.APPLICATION_JSON).build();
+        } catch (IllegalArgumentException e) {
+            Document err = new Document("error", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
+        } catch (Exception e) {
+            Document err = new Document("error", e.getMessage());
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
+        }
+    }
+
+    /**
+     * Documentos creados por día y por tipo entre {@code desde} y {@code hasta} (yyyy-MM-dd,
+     * inclusive; por defecto los últimos 30 días). Se arma con los resúmenes diarios (ver
+     * ActividadDiaria): lee un documento por día, sin recorrer los documentos clínicos.
+     */
+    @GET
+    @Path("/documents/actividad")
+    @RequiereTenant
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response actividad(@QueryParam("desde") String desde, @QueryParam("hasta") String hasta) {
+        try {
+            Document respuesta = actividadDiaria.consultar(DocumentoClinicoRepository.tenantRequerido(), desde, hasta);
+            return Response.ok(respuesta.toJson()).type(MediaType.APPLICATION_JSON).build();
+        } catch (IllegalArgumentException e) {
+            Document err = new Document("error", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
         } catch (Exception e) {
             Document err = new Document("error", e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
         }
     }
+
+    /**
+     * Historia del paciente, del documento más nuevo al más viejo, paginada por cursor.
+     * {@code fields} (separados por coma) limita los campos devueltos.
+     */
+    @GET
+    @Path("/documents/paciente/{documento}")
+    @RequiereTenant
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response listByPaciente(@PathParam("documento") String documentoPaciente,
+                                   @QueryParam("cursor") String cursor,
+                                   @QueryParam("limit") @DefaultValue("20") int limit,
+                                   @QueryParam("fields") String fields) {
+        try {
+            List<String> campos = (fields == null || fields.isBlank()) ? null : Arrays.asList(fields.split(","));
+            PaginaDocumentos pagina = documentoClinicoRepository.listarPorPaciente(documentoPaciente, cursor, limit, campos);
+            return Response.ok(pagina.toJson()).type(MediaType.APPLICATION_JSON).build();
+        } catch (IllegalArgumentException e) {
+            Document err = new Document("error", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
+        } catch (Exception e) {
+            Document err = new Document("error", e.getMessage());
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(err.toJson()).type(MediaType.APPLICATION_JSON).build();
+        }
+    }
+
+    /**
+     * Ingesta masiva NDJSON: un documento por línea. La respuesta también es NDJSON, con una
+     * línea de resultado por documento (en orden) y un resumen final; se va escribiendo a
+     * medida que se confirma cada lote.
+     */
+    @POST
+    @Path("/documents/bulk")
+    @RequiereTenant
+    @Consumes(NDJSON)
+    @Produces(NDJSON)
+    public Response bulkInsert(InputStream body) {
+        StreamingOutput salida = conTenantActual(output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            ingestaMasivaService.ingerirNdjson(body, writer);
+            writer.flush();
+        });
+        return Response.ok(salida, NDJSON).build();
+    }
+
+    /**
+     * Exporta toda la historia del paciente como NDJSON, escribiendo cada documento directo
+     * en la respuesta a medida que se lee del cursor. Se comprime con gzip si se pide
+     * ({@code gzip=true}) o si el cliente lo acepta en {@code Accept-Encoding} con q mayor que 0.
+     */
+    @GET
+    @Path("/documents/paciente/{documento}/export")
+    @RequiereTenant
+    @Produces(NDJSON)
+    public Response exportByPaciente(@PathParam("documento") String documentoPaciente,
+                                     @QueryParam("gzip") Boolean gzip,
+                                     @HeaderParam("Accept-Encoding") String acceptEncoding) {
+        boolean comprimir = gzip != null ? gzip : aceptaGzip(acceptEncoding);
+
+        StreamingOutput salida = conTenantActual(output -> {
+            if (comprimir) {
+                GZIPOutputStream gz = new GZIPOutputStream(output, 64 * 1024);
+                exportacionDocumentosService.exportarNdjson(documentoPaciente, gz);
+                gz.finish();
+            } else {
+                exportacionDocumentosService.exportarNdjson(documentoPaciente, output);
+            }
+        });
+
+        Response.ResponseBuilder rb = Response.ok(salida, NDJSON)
+                .header("Content-Disposition", "attachment; filename=\"historia-" + documentoPaciente.replaceAll("[^A-Za-z0-9_-]", "_") + ".ndjson\"")
+                // También sin comprimir: una caché no debe servir esta versión a quien sí acepta gzip
+                .header("Vary", "Accept-Encoding");
+        if (comprimir) {
+            rb.header("Content-Encoding", "gzip");
+        }
+        return rb.build();
+    }
+
+    /**
+     * Interpreta {@code Accept-Encoding} con sus q-values (RFC 9110): gzip se acepta si aparece
+     * (o {@code *} lo cubre) con q mayor que 0. {@code gzip;q=0} lo rechaza aunque haya {@code *}.
+     */
+    private static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double qGzip = null;
+        Double qComodin = null;
+        for (String elemento : acceptEncoding.split(",")) {
+            String[] partes = elemento.split(";");
+            String codificacion = partes[0].trim().toLowerCase();
+            double q = 1.0;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim();
+                if (parametro.length() > 2 && parametro.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        q = Double.parseDouble(parametro.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (codificacion.equals("gzip") || codificacion.equals("x-gzip")) {
+                qGzip = qGzip == null ? q : Math.max(qGzip, q);
+            } else if (codificacion.equals("*")) {
+                qComodin = q;
+            }
+        }
+        if (qGzip != null) {
+            return qGzip > 0;
+        }
+        return qComodin != null && qComodin > 0;
+    }
 }
@@ -2,11 +2,19 @@ package uy.edu.tse.hcen.rest;
 
 import uy.edu.tse.hcen.dto.ConfiguracionPortalDTO;
 import uy.edu.tse.hcen.model.PortalConfiguracion;
+import uy.edu.tse.hcen.multitenancy.TenantContext;
 import uy.edu.tse.hcen.service.PortalConfiguracionService;
+import uy.edu.tse.hcen.service.TemaPortalService.TemaCompilado;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriBuilder;
+import java.net.URI;
 import jakarta.annotation.security.RolesAllowed; // Anotación estándar
 
 @Path("/portal-configuracion")
@@ -14,6 +22,9 @@ import jakarta.annotation.security.RolesAllowed; // Anotación estándar
 @Consumes(MediaType.APPLICATION_JSON)
 public class PortalConfiguracionResource {
 
+    private static final String TEXT_CSS = "text/css; charset=UTF-8";
+    private static final int UN_ANIO_SEGUNDOS = 31536000;
+
     @Inject
     private PortalConfiguracionService configService;
 
@@ -55,4 +66,74 @@ public class PortalConfiguracionResource {
         PortalConfiguracion updatedConfig = configService.updateConfiguracion(dto);
         return Response.ok(updatedConfig).build();
     }
+
+    // -------------------------------------------------------------------------
+    // HOJA DE ESTILOS PRECOMPILADA (pública, sin token: se referencia desde <link>)
+    // -------------------------------------------------------------------------
+
+    /**
+     * URL estable del tema: redirige a la versión inmutable identificada por el hash
+     * del contenido. La redirección no se cachea, de modo que un cambio de configuración
+     * se ve en la siguiente carga de la página. Es de solo lectura: un tenant inexistente
+     * recibe 404.
+     */
+    @GET
+    @Path("/{tenantId: [A-Za-z0-9_]+}/tema.css")
+    @Produces(TEXT_CSS)
+    public Response getTema(@PathParam("tenantId") String tenantId) {
+        TenantContext.setCurrentTenant(tenantId);
+        TemaCompilado tema = configService.getTemaCompilado();
+        if (tema == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        CacheControl noCache = new CacheControl();
+        noCache.setNoCache(true);
+        return Response.seeOther(urlTema(tenantId, tema.getHash()))
+                .cacheControl(noCache)
+                .build();
+    }
+
+    /**
+     * Versión inmutable del tema. Si el hash pedido ya no es el vigente se redirige a la
+     * versión actual en lugar de servir contenido viejo bajo una URL cacheable para siempre.
+     */
+    @GET
+    @Path("/{tenantId: [A-Za-z0-9_]+}/tema-{hash: [0-9a-f]+}.css")
+    @Produces(TEXT_CSS)
+    public Response getTemaVersionado(@PathParam("tenantId") String tenantId,
+                                      @PathParam("hash") String hash,
+                                      @Context Request request) {
+        TenantContext.setCurrentTenant(tenantId);
+        TemaCompilado tema = configService.getTemaCompilado();
+        if (tema == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        if (!tema.getHash().equals(hash)) {
+            return getTema(tenantId);
+        }
+
+        CacheControl inmutable = new CacheControl();
+        inmutable.setMaxAge(UN_ANIO_SEGUNDOS);
+        inmutable.setPrivate(false);
+        inmutable.getCacheExtension().put("immutable", null);
+
+        EntityTag etag = new EntityTag(tema.getHash());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.cacheControl(inmutable).build();
+        }
+
+        return Response.ok(tema.getCss(), TEXT_CSS)
+                .tag(etag)
+                .cacheControl(inmutable)
+                .build();
+    }
+
+    private static URI urlTema(String tenantId, String hash) {
+        // Relativa a la base de la aplicación JAX-RS (/api)
+        return UriBuilder.fromPath("portal-configuracion/{tenantId}/tema-{hash}.css")
+                .build(tenantId, hash);
+    }
 }
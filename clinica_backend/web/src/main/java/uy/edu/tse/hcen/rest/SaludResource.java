@@ -0,0 +1,47 @@
+package uy.edu.tse.hcen.rest;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import uy.edu.tse.hcen.service.VerificadorSalud;
+
+import java.util.Map;
+
+/**
+ * Sondas de vida y disponibilidad para el orquestador. Ninguna consulta las bases: la de
+ * disponibilidad devuelve el último resultado de {@link VerificadorSalud}, que verifica PostgreSQL,
+ * el registro de tenants y MongoDB en segundo plano.
+ */
+@Path("/health")
+public class SaludResource {
+
+    @Inject
+    private VerificadorSalud verificadorSalud;
+
+    /**
+     * La aplicación está desplegada y atiende solicitudes; no depende de ninguna base.
+     */
+    @GET
+    @Path("/live")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response live() {
+        return Response.ok(Map.of("estado", VerificadorSalud.UP)).build();
+    }
+
+    /**
+     * 200 si las dependencias requeridas respondieron en la última verificación, 503 si no (o si
+     * la verificación está atrasada). El cuerpo detalla estado, latencia y error por componente.
+     */
+    @GET
+    @Path("/ready")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response ready() {
+        Map<String, Object> resumen = verificadorSalud.resumen();
+        Response.Status estado = VerificadorSalud.UP.equals(resumen.get("estado"))
+                ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE;
+        return Response.status(estado).entity(resumen).build();
+    }
+}
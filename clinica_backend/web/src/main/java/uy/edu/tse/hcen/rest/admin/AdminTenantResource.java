@@ -1,12 +1,21 @@
 package uy.edu.tse.hcen.rest.admin;
 
+import uy.edu.tse.hcen.metricas.EstadisticasTenant;
+import uy.edu.tse.hcen.repository.DocumentoClinicoRepository;
+import uy.edu.tse.hcen.service.ActividadDiariaService;
+import uy.edu.tse.hcen.service.ArchivadoDocumentosService;
+import uy.edu.tse.hcen.service.RecompresionDocumentosService;
+import uy.edu.tse.hcen.service.ReindexacionTextoService;
 import uy.edu.tse.hcen.service.TenantAdminService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -20,6 +29,21 @@ public class AdminTenantResource {
     @Inject
     private TenantAdminService tenantAdminService;
 
+    @Inject
+    private DocumentoClinicoRepository documentoClinicoRepository;
+
+    @Inject
+    private RecompresionDocumentosService recompresionDocumentosService;
+
+    @Inject
+    private ReindexacionTextoService reindexacionTextoService;
+
+    @Inject
+    private ArchivadoDocumentosService archivadoDocumentosService;
+
+    @Inject
+    private ActividadDiariaService actividadDiariaService;
+
     public static class TenantCreateRequest {
         public String tenantId; // numeric suffix used in schema name (e.g., 103)
         public String nombrePortal;
@@ -63,4 +87,140 @@ public class AdminTenantResource {
             return Response.serverError().entity(ex.getMessage()).build();
         }
     }
+
+    /**
+     * Migra los documentos clínicos de la colección global previa a la colección del tenant.
+     * Con {@code incluirSinTenant=true} también se mueven los documentos sin campo tenantId
+     * (usar solo para el tenant al que pertenecían todos los datos previos).
+     */
+    @POST
+    @Path("/{id}/documentos/migrar")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response migrarDocumentos(@PathParam("id") String tenantId,
+                                     @QueryParam("incluirSinTenant") boolean incluirSinTenant,
+                                     @Context SecurityContext sc) {
+        if (sc == null || !sc.isUserInRole("ADMINISTRADOR")) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+
+        try {
+            return Response.ok(documentoClinicoRepository.migrarDesdeColeccionGlobal(tenantId, incluirSinTenant)).build();
+        } catch (IllegalArgumentException ex) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(ex.getMessage()).build();
+        } catch (Exception ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * Completa {@code fechaCreacion} de los documentos guardados antes de que existiera el campo,
+     * a partir del timestamp de su ObjectId. Migración única: recorre toda la colección del tenant.
+     */
+    @POST
+    @Path("/{id}/documentos/fechas")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response completarFechasDocumentos(@PathParam("id") String tenantId, @Context SecurityContext sc) {
+        if (sc == null || !sc.isUserInRole("ADMINISTRADOR")) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+
+        try {
+            return Response.ok(documentoClinicoRepository.completarFechaCreacion(tenantId)).build();
+        } catch (IllegalArgumentException ex) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(ex.getMessage()).build();
+        } catch (Exception ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * Lanza en segundo plano la compresión de los documentos existentes del tenant
+     * ({@code id = *} para todos). El resultado queda en el log del servidor.
+     */
+    @POST
+    @Path("/{id}/documentos/recomprimir")
+    public Response recomprimirDocumentos(@PathParam("id") String tenantId, @Context SecurityContext sc) {
+        if (sc == null || !sc.isUserInRole("ADMINISTRADOR")) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+
+        recompresionDocumentosService.recomprimir("*".equals(tenantId) ? null : tenantId);
+        return Response.accepted().build();
+    }
+
+    /**
+     * Lanza en segundo plano la reconstrucción del índice de texto de los documentos del tenant
+     * ({@code id = *} para todos) a partir de Mongo. El resultado queda en el log del servidor.
+     */
+    @POST
+    @Path("/{id}/documentos/reindexar")
+    public Response reindexarDocumentos(@PathParam("id") String tenantId, @Context SecurityContext sc) {
+        if (sc == null || !sc.isUserInRole("ADMINISTRADOR")) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+
+        reindexacionTextoService.reindexar("*".equals(tenantId) ? null : tenantId);
+        return Response.accepted().build();
+    }
+
+    /**
+     * Lanza en segundo plano la reconstrucción de los resúmenes diarios de actividad del tenant
+     * ({@code id = *} para todos) a partir de sus documentos. El resultado queda en el log del servidor.
+     */
+    @POST
+    @Path("/{id}/documentos/actividad/reconstruir")
+    public Response reconstruirActividad(@PathParam("id") String tenantId, @Context SecurityContext sc) {
+        if (sc == null || !sc.isUserInRole("ADMINISTRADOR")) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+
+        actividadDiariaService.reconstruir("*".equals(tenantId) ? null : tenantId);
+        return Response.accepted().build();
+    }
+
+    /**
+     * Lanza en segundo plano el archivado en disco de los documentos del tenant ({@code id = *}
+     * para todos) con más de {@code dias} días, o los de {@code HCEN_ARCHIVO_DIAS} si no se indica.
+     * El resultado queda en el log del servidor.
+     */
+    @POST
+    @Path("/{id}/documentos/archivar")
+    public Response archivarDocumentos(@PathParam("id") String tenantId,
+                                       @QueryParam("dias") Integer dias,
+                                       @Context SecurityContext sc) {
+        if (sc == null || !sc.isUserInRole("ADMINISTRADOR")) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+
+        int antiguedad = dias != null ? dias : ArchivadoDocumentosService.diasConfigurados();
+        if (antiguedad <= 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Indicar dias > 0 o configurar HCEN_ARCHIVO_DIAS").build();
+        }
+        archivadoDocumentosService.archivar("*".equals(tenantId) ? null : tenantId, antiguedad);
+        return Response.accepted().build();
+    }
+
+    /**
+     * Estadísticas JPA/JDBC del tenant (id {@code ninguno} para lo ejecutado sin tenant) y sus
+     * {@code top} sentencias por {@code orden}: tiempo, ejecuciones o maximo. Requiere
+     * {@code HCEN_HIBERNATE_ESTADISTICAS=true}; si no, los contadores quedan en cero.
+     */
+    @GET
+    @Path("/{id}/hibernate/consultas")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response consultasHibernate(@PathParam("id") String tenantId,
+                                       @QueryParam("top") @DefaultValue("20") int top,
+                                       @QueryParam("orden") String orden,
+                                       @Context SecurityContext sc) {
+        if (sc == null || !sc.isUserInRole("ADMINISTRADOR")) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+
+        try {
+            return Response.ok(EstadisticasTenant.resumen(tenantId, top, orden)).build();
+        } catch (IllegalArgumentException ex) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(ex.getMessage()).build();
+        }
+    }
 }
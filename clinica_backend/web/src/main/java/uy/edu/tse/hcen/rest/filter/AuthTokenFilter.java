@@ -2,6 +2,9 @@ package uy.edu.tse.hcen.rest.filter;
 
 import uy.edu.tse.hcen.utils.TokenUtils;
 import uy.edu.tse.hcen.multitenancy.TenantContext;
+import uy.edu.tse.hcen.perfilado.AutenticacionEvento;
+import uy.edu.tse.hcen.perfilado.ContextoSolicitud;
+import uy.edu.tse.hcen.perfilado.SolicitudEvento;
 import io.jsonwebtoken.Claims;
 import jakarta.annotation.Priority;
 import jakarta.ws.rs.Priorities;
@@ -20,16 +23,34 @@ import java.util.Map;
  * Filtro JAX-RS de autenticación que valida el JWT (Bearer) y establece
  * TenantContext con el claim "tenantId" para que el provider de multi-tenant
  * seleccione el esquema adecuado en llamadas posteriores.
+ *
+ * También abre los eventos JFR de la solicitud: {@link SolicitudEvento} hasta la respuesta y
+ * {@link AutenticacionEvento} para la validación del token, y deja el endpoint en
+ * {@link ContextoSolicitud} para los eventos de los repositorios.
  */
 @Provider
 @Priority(Priorities.AUTHENTICATION)
 public class AuthTokenFilter implements ContainerRequestFilter, ContainerResponseFilter {
 
+    // Tenant de la solicitud, para quien lo necesite después de que se limpie el TenantContext (métricas)
+    public static final String PROPIEDAD_TENANT = "auth.tenant";
+
+    private static final String PROPIEDAD_EVENTO = "auth.evento";
+
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
+        ContextoSolicitud.setEndpoint((String) requestContext.getProperty(MetricasFilter.PROPIEDAD_METODO));
+        SolicitudEvento solicitud = new SolicitudEvento();
+        if (solicitud.isEnabled()) {
+            solicitud.begin();
+            requestContext.setProperty(PROPIEDAD_EVENTO, solicitud);
+        }
+
         String auth = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
         if (auth != null && auth.startsWith("Bearer ")) {
             String token = auth.substring("Bearer ".length()).trim();
+            AutenticacionEvento autenticacion = new AutenticacionEvento();
+            autenticacion.begin();
             try {
                 Claims claims = TokenUtils.parseToken(token);
                 String tenantId = claims.get("tenantId", String.class);
@@ -38,6 +59,7 @@ public class AuthTokenFilter implements ContainerRequestFilter, ContainerRespons
 
                 if (tenantId != null && !tenantId.isBlank()) {
                     TenantContext.setCurrentTenant(tenantId);
+                    requestContext.setProperty(PROPIEDAD_TENANT, tenantId);
                 }
 
                 // expose auth info to request properties and SecurityContext
@@ -72,6 +94,7 @@ public class AuthTokenFilter implements ContainerRequestFilter, ContainerRespons
                     }
                 });
 
+                autenticacion.setValido(true);
             } catch (Exception ex) {
                 // Token inválido: abortar con 401
                 Map<String, String> err = Map.of("error", "Token inválido o expirado");
@@ -79,6 +102,8 @@ public class AuthTokenFilter implements ContainerRequestFilter, ContainerRespons
                         .type(MediaType.APPLICATION_JSON_TYPE)
                         .entity(err)
                         .build());
+            } finally {
+                autenticacion.terminar("jwt");
             }
         }
         // Si no hay header Authorization, dejamos pasar la request (endpoints públicos)
@@ -86,7 +111,15 @@ public class AuthTokenFilter implements ContainerRequestFilter, ContainerRespons
 
     @Override
     public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
+        if (requestContext.getProperty(PROPIEDAD_EVENTO) instanceof SolicitudEvento solicitud) {
+            // El tenant de la propiedad: en respuestas asíncronas este hilo no es el de la solicitud
+            solicitud.setTenant((String) requestContext.getProperty(PROPIEDAD_TENANT));
+            solicitud.setEndpoint((String) requestContext.getProperty(MetricasFilter.PROPIEDAD_METODO));
+            solicitud.setEstado(responseContext.getStatus());
+            solicitud.terminar(requestContext.getMethod());
+        }
         // Limpiar el TenantContext al finalizar la petición para evitar fugas entre hilos
         TenantContext.clear();
+        ContextoSolicitud.clear();
     }
 }
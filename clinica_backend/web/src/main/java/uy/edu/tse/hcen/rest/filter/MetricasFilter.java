@@ -0,0 +1,74 @@
+package uy.edu.tse.hcen.rest.filter;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import uy.edu.tse.hcen.metricas.MetricasHttp;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mide cada solicitud REST para {@link MetricasHttp}: corre antes que los demás filtros de
+ * solicitud y después que los demás filtros de respuesta, así que la latencia incluye la
+ * autenticación. En las respuestas asíncronas el filtro de respuesta corre al reanudarlas; en las
+ * que se escriben en streaming mide hasta que se empieza a escribir el cuerpo. El tenant lo deja
+ * AuthTokenFilter en la propiedad {@value AuthTokenFilter#PROPIEDAD_TENANT}.
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION - 200)
+public class MetricasFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    // Método de recurso de la solicitud (Clase.metodo), también para los eventos JFR de AuthTokenFilter
+    public static final String PROPIEDAD_METODO = "metricas.metodo";
+
+    private static final String INICIO = "metricas.inicio";
+    private static final String SIN_METODO = "desconocido";
+
+    // Nombre de la serie por método de recurso, para no concatenar en cada solicitud
+    private static final Map<Method, String> NOMBRES = new ConcurrentHashMap<>();
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Inject
+    private MetricasHttp metricasHttp;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String metodo = metodo();
+        requestContext.setProperty(PROPIEDAD_METODO, metodo);
+        requestContext.setProperty(INICIO, System.nanoTime());
+        metricasHttp.iniciada(metodo);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
+        Object inicio = requestContext.getProperty(INICIO);
+        if (!(inicio instanceof Long nanos)) {
+            // Sin recurso (404/405 antes de los filtros de solicitud): no hay medición iniciada
+            return;
+        }
+        requestContext.removeProperty(INICIO);
+        metricasHttp.terminada((String) requestContext.getProperty(AuthTokenFilter.PROPIEDAD_TENANT),
+                (String) requestContext.getProperty(PROPIEDAD_METODO), responseContext.getStatus(), System.nanoTime() - nanos);
+    }
+
+    private String metodo() {
+        Method metodo = resourceInfo.getResourceMethod();
+        Class<?> clase = resourceInfo.getResourceClass();
+        if (metodo == null || clase == null) {
+            return SIN_METODO;
+        }
+        return NOMBRES.computeIfAbsent(metodo, m -> clase.getSimpleName() + "." + m.getName());
+    }
+}
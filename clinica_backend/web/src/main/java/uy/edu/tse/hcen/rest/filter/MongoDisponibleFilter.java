@@ -0,0 +1,47 @@
+package uy.edu.tse.hcen.rest.filter;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import org.bson.Document;
+import uy.edu.tse.hcen.config.MongoDBProducer;
+
+import java.io.IOException;
+
+/**
+ * Compuerta de disponibilidad de MongoDB: mientras la conexión se establece en segundo plano (ver
+ * MongoDBProducer), las solicitudes a endpoints que usan Mongo ({@code /mongo}, {@code /adjuntos})
+ * se responden enseguida con 503 y {@code Retry-After}, sin ocupar un hilo esperando. El resto de
+ * la API (PostgreSQL) no pasa por acá.
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION - 100)
+public class MongoDisponibleFilter implements ContainerRequestFilter {
+
+    @Inject
+    private MongoDBProducer mongoDBProducer;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String path = requestContext.getUriInfo().getPath();
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (!(path.startsWith("mongo") || path.startsWith("adjuntos")) || mongoDBProducer.isListo()) {
+            return;
+        }
+        mongoDBProducer.iniciar();
+        // Sin el error del driver: este filtro corre antes de autenticar (el detalle queda en el log de MongoDBProducer)
+        Document err = new Document("error", "MongoDB todavía no está disponible");
+        requestContext.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", Math.max(1, (mongoDBProducer.getReintentoMs() + 999) / 1000))
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(err.toJson())
+                .build());
+    }
+}
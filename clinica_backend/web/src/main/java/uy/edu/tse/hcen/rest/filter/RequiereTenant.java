@@ -0,0 +1,18 @@
+package uy.edu.tse.hcen.rest.filter;
+
+import jakarta.ws.rs.NameBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca los endpoints (o recursos completos) que solo funcionan con un tenant en el contexto,
+ * como los de documentos clínicos particionados por tenant. Ver {@link TenantRequeridoFilter}.
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RequiereTenant {
+}
@@ -0,0 +1,41 @@
+package uy.edu.tse.hcen.rest.filter;
+
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import org.bson.Document;
+import uy.edu.tse.hcen.multitenancy.TenantContext;
+
+import java.io.IOException;
+
+/**
+ * Rechaza las solicitudes a endpoints {@link RequiereTenant} que llegan sin tenant, antes de leer
+ * el cuerpo: 401 si no traen token y 403 si el token es válido pero no tiene claim
+ * {@code tenantId}. Sin este filtro el repositorio fallaba con IllegalStateException y el
+ * endpoint respondía 500.
+ */
+@Provider
+@RequiereTenant
+@Priority(Priorities.AUTHORIZATION)
+public class TenantRequeridoFilter implements ContainerRequestFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String tenantId = TenantContext.getCurrentTenant();
+        if (tenantId != null && !tenantId.isBlank()) {
+            return;
+        }
+        boolean autenticado = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION) != null;
+        Response.Status estado = autenticado ? Response.Status.FORBIDDEN : Response.Status.UNAUTHORIZED;
+        String mensaje = autenticado ? "El token no tiene un tenant asociado" : "Autenticación requerida";
+        requestContext.abortWith(Response.status(estado)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(new Document("error", mensaje).toJson())
+                .build());
+    }
+}
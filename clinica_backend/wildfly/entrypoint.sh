@@ -12,5 +12,13 @@ else
   echo "No configure-wildfly.cli found in image"
 fi
 
+# Continuous JFR recording with the application events (hcen.jfc) on top of the JDK defaults.
+# Set HCEN_JFR=false to disable it; dump it at any time with: jcmd <pid> JFR.dump name=hcen
+if [ "${HCEN_JFR:-true}" != "false" ] && [ -f "$WILDFLY_HOME/hcen.jfc" ]; then
+  JFR_DIR=${HCEN_JFR_DIR:-$WILDFLY_HOME/standalone/log/jfr}
+  mkdir -p "$JFR_DIR"
+  export PREPEND_JAVA_OPTS="${PREPEND_JAVA_OPTS:-} -XX:StartFlightRecording:name=hcen,settings=default,settings=$WILDFLY_HOME/hcen.jfc,disk=true,maxage=${HCEN_JFR_MAXAGE:-6h},maxsize=${HCEN_JFR_MAXSIZE:-512m},dumponexit=true,filename=$JFR_DIR"
+fi
+
 echo "Starting WildFly server"
 exec $WILDFLY_HOME/bin/standalone.sh -c standalone.xml -b 0.0.0.0